@@ -474,6 +474,7 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		addToEnableGroup("cg", "cg.spark", getcgcg_sparkset_impl_widget(), "set-impl");
 		addToEnableGroup("cg", "cg.spark", getcgcg_sparkdouble_set_old_widget(), "double-set-old");
 		addToEnableGroup("cg", "cg.spark", getcgcg_sparkdouble_set_new_widget(), "double-set-new");
+		addToEnableGroup("cg", "cg.spark", getcgcg_sparkp2set_memory_budget_widget(), "p2set-memory-budget");
 		addToEnableGroup("cg", "cg.spark", getcgcg_sparkdump_html_widget(), "dump-html");
 		addToEnableGroup("cg", "cg.spark", getcgcg_sparkdump_pag_widget(), "dump-pag");
 		addToEnableGroup("cg", "cg.spark", getcgcg_sparkdump_solution_widget(), "dump-solution");
@@ -1200,6 +1201,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		if (boolRes != defBoolRes) {
 			getConfig().put(getInput_Optionsdrop_bodies_after_load_widget().getAlias(), new Boolean(boolRes));
 		}
+		boolRes = getInput_Optionsprefetch_class_sources_widget().getButton().getSelection();
+		defBoolRes = false;
+
+		if (boolRes != defBoolRes) {
+			getConfig().put(getInput_Optionsprefetch_class_sources_widget().getAlias(), new Boolean(boolRes));
+		}
+		boolRes = getInput_Optionspipeline_bodies_widget().getButton().getSelection();
+		defBoolRes = false;
+
+		if (boolRes != defBoolRes) {
+			getConfig().put(getInput_Optionspipeline_bodies_widget().getAlias(), new Boolean(boolRes));
+		}
 		stringRes = getInput_Optionssoot_classpath_widget().getText().getText();
 		defStringRes = "";
 
@@ -1248,6 +1261,12 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
 			getConfig().put(getInput_Optionsmain_class_widget().getAlias(), stringRes);
 		}
+		stringRes = getInput_Optionsbody_cache_dir_widget().getText().getText();
+		defStringRes = "";
+
+		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getInput_Optionsbody_cache_dir_widget().getAlias(), stringRes);
+		}
 		stringRes = getInput_Optionssrc_prec_widget().getSelectedAlias();
 		defStringRes = "c class";
 
@@ -1337,6 +1356,12 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		if (!stringRes.equals(defStringRes)) {
 			getConfig().put(getOutput_Optionsjava_version_widget().getAlias(), stringRes);
 		}
+		boolRes = getProcessing_Optionscompact_unit_chains_widget().getButton().getSelection();
+		defBoolRes = false;
+
+		if (boolRes != defBoolRes) {
+			getConfig().put(getProcessing_Optionscompact_unit_chains_widget().getAlias(), new Boolean(boolRes));
+		}
 		boolRes = getProcessing_Optionsoptimize_widget().getButton().getSelection();
 		defBoolRes = false;
 
@@ -1985,6 +2010,12 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		if (boolRes != defBoolRes) {
 			getConfig().put(getcgcg_sparkignore_types_for_sccs_widget().getAlias(), new Boolean(boolRes));
 		}
+		stringRes = getcgcg_sparkp2set_memory_budget_widget().getText().getText();
+		defStringRes = "0";
+
+		if ((!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getcgcg_sparkp2set_memory_budget_widget().getAlias(), stringRes);
+		}
 		stringRes = getcgcg_sparkpropagator_widget().getSelectedAlias();
 		defStringRes = "worklist";
 
@@ -4871,6 +4902,26 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		return Input_Optionsdrop_bodies_after_load_widget;
 	}	
 	
+	private BooleanOptionWidget Input_Optionsprefetch_class_sources_widget;
+	
+	private void setInput_Optionsprefetch_class_sources_widget(BooleanOptionWidget widget) {
+		Input_Optionsprefetch_class_sources_widget = widget;
+	}
+	
+	public BooleanOptionWidget getInput_Optionsprefetch_class_sources_widget() {
+		return Input_Optionsprefetch_class_sources_widget;
+	}	
+	
+	private BooleanOptionWidget Input_Optionspipeline_bodies_widget;
+	
+	private void setInput_Optionspipeline_bodies_widget(BooleanOptionWidget widget) {
+		Input_Optionspipeline_bodies_widget = widget;
+	}
+	
+	public BooleanOptionWidget getInput_Optionspipeline_bodies_widget() {
+		return Input_Optionspipeline_bodies_widget;
+	}	
+	
 
 	private ListOptionWidget Input_Optionsprocess_dir_widget;
 	
@@ -4968,6 +5019,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 	
 	
 	
+	private StringOptionWidget Input_Optionsbody_cache_dir_widget;
+	
+	private void setInput_Optionsbody_cache_dir_widget(StringOptionWidget widget) {
+		Input_Optionsbody_cache_dir_widget = widget;
+	}
+	
+	public StringOptionWidget getInput_Optionsbody_cache_dir_widget() {
+		return Input_Optionsbody_cache_dir_widget;
+	}
+	
+	
+	
 	private MultiOptionWidget Input_Optionssrc_prec_widget;
 	
 	private void setInput_Optionssrc_prec_widget(MultiOptionWidget widget) {
@@ -5129,6 +5192,16 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 	}	
 	
 	
+	private BooleanOptionWidget Processing_Optionscompact_unit_chains_widget;
+	
+	private void setProcessing_Optionscompact_unit_chains_widget(BooleanOptionWidget widget) {
+		Processing_Optionscompact_unit_chains_widget = widget;
+	}
+	
+	public BooleanOptionWidget getProcessing_Optionscompact_unit_chains_widget() {
+		return Processing_Optionscompact_unit_chains_widget;
+	}	
+	
 	private BooleanOptionWidget Processing_Optionsoptimize_widget;
 	
 	private void setProcessing_Optionsoptimize_widget(BooleanOptionWidget widget) {
@@ -6230,6 +6303,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 	}	
 	
 	
+	private StringOptionWidget cgcg_sparkp2set_memory_budget_widget;
+	
+	private void setcgcg_sparkp2set_memory_budget_widget(StringOptionWidget widget) {
+		cgcg_sparkp2set_memory_budget_widget = widget;
+	}
+	
+	public StringOptionWidget getcgcg_sparkp2set_memory_budget_widget() {
+		return cgcg_sparkp2set_memory_budget_widget;
+	}
+	
+	
+	
 	private MultiOptionWidget cgcg_sparkpropagator_widget;
 	
 	private void setcgcg_sparkpropagator_widget(MultiOptionWidget widget) {
@@ -8957,6 +9042,28 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 
 		setInput_Optionsdrop_bodies_after_load_widget(new BooleanOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Drop method source after loading bodies", "", "","drop-bodies-after-load", "\nEach method is associated with a method source for loading its \nbody. When this option is disabled, a reference to this source \nis kept around even after the body has already been loaded. This \nis a waste of memory for most use cases. When this option is \nenabled, the reference is dropped, allowing for garbage \ncollection of the method source. On the other hand, if the body \nis ever released, it cannot easily be recovered (i.e., loaded \nagain) easily.", defaultBool)));
 
+		defKey = ""+" "+""+" "+"prefetch-class-sources";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultBool = getBoolDef(defKey);	
+		} else {
+			defaultBool = false;
+		}
+
+		setInput_Optionsprefetch_class_sources_widget(new BooleanOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Prefetch class sources", "", "","prefetch-class-sources", "\nWhen this option is enabled, the resolver looks up the sources \nof the classes waiting in its worklist and reads their class \nfiles into memory on background threads, while it resolves the \nclasses that come before them. This overlaps the file system and \narchive I/O with the construction of the SootClasses. \nPrefetching is only done for the class file front end with the \nclass or only-class source precedence.", defaultBool)));
+
+		defKey = ""+" "+""+" "+"pipeline-bodies";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultBool = getBoolDef(defKey);	
+		} else {
+			defaultBool = false;
+		}
+
+		setInput_Optionspipeline_bodies_widget(new BooleanOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Pipeline body construction", "", "","pipeline-bodies", "\nWhen this option is enabled, the naive Jimple bodies of the \nmethods of a class are built on background threads as soon as \nthe class has been resolved to the bodies level, while the \nresolver continues with the remaining classes. The jb pack still \nruns when a body is retrieved, that is after the class hierarchy \nis complete. This is done for classes read through the ASM and \nthe dex front ends. Methods containing invokedynamic \ninstructions are converted when they are retrieved.", defaultBool)));
+
 		data = new OptionData [] {
 		
 				new OptionData("Class File",
@@ -8983,6 +9090,10 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 						"apk-class-jimple apk-c-j",
 						"\nTry to resolve classes first from .apk (Android Package) files \nfound in the Soot classpath. Fall back to .class, or .jimple \nfiles only when unable to find a class in .apk files. Never load \na .java file.",
 						false),
+				new OptionData("Binary Jimple File",
+						"jimplebin",
+						"\nTry to resolve classes first from .jimplebin files found in the \nSoot classpath, as written by -output-format jimplebin. Fall \nback to .class files only when unable to find a .jimplebin file.",
+						false),
 		};
 
 
@@ -9093,6 +9204,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		setInput_Optionsmain_class_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Main Class",  "", "","main-class", "\nBy default, the first class encountered with a main method is \ntreated as the main class (entry point) in whole-program \nanalysis. This option overrides this default.", defaultString)));
 		
 
+		defKey = ""+" "+""+" "+"body-cache-dir";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		} else {
+			defaultString = "";
+		}
+
+		setInput_Optionsbody_cache_dir_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Body cache directory",  "", "","body-cache-dir", "\nStore the Jimple bodies that the jb pack creates for classes \nread from class files in the directory DIR, and reuse them in \nlater runs instead of converting the bytecode and running the jb \npack again. Cache entries are keyed by a hash of the class file, \nof the sizes and modification times of all files on the class \npath and of all options that influence the jb pack. Since the \ntype assignment in the jb pack depends on the hierarchy of the \nclasses a method refers to, any change to the class path \ninvalidates all entries. An entry holds the bodies of those \nmethods of a class that were loaded; bodies loaded in later runs \nare added to it. Bodies that refer to classes synthesized while \nloading bodies, such as the classes modelling lambda \nexpressions, are never cached. The cache is not used together \nwith -keep-line-number and -keep-bytecode-offset since the \ncached bodies do not carry tags.", defaultString)));
+		
+
 
 		return editGroupInput_Options;
 	}
@@ -9292,6 +9415,10 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 						"a asm",
 						"\nProduce .asm files as textual bytecode representation generated \nwith the ASM back end.",
 						false),
+				new OptionData("Binary Jimple File",
+						"jimplebin",
+						"\nProduce .jimplebin files, which contain Soot's Jimple internal \nrepresentation in a compact binary form. They can be read back \nmuch faster than .jimple files, see -src-prec jimplebin.",
+						false),
 		};
 
 
@@ -9440,6 +9567,17 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 		
 		
 
+		defKey = ""+" "+""+" "+"compact-unit-chains";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultBool = getBoolDef(defKey);	
+		} else {
+			defaultBool = false;
+		}
+
+		setProcessing_Optionscompact_unit_chains_widget(new BooleanOptionWidget(editGroupProcessing_Options, SWT.NONE, new OptionData("Compact Unit Chains", "", "","compact-unit-chains", "\nStore the units of newly created method bodies in index-based \nchains that keep their links in flat arrays instead of one link \nobject and one hash map entry per unit. This lowers the memory \nfootprint of large bodies at the cost of slightly slower \nlookups.", defaultBool)));
+
 		defKey = ""+" "+""+" "+"O optimize";
 		defKey = defKey.trim();
 
@@ -12016,6 +12154,10 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 						"none",
 						"\nNone means that propagation is not done; the graph is only built \nand simplified. This is useful if an external solver is being \nused to perform the propagation.",
 						false),
+				new OptionData("Parallel",
+						"parallel",
+						"\nParallel propagates points-to sets in rounds. Within each round, \nthe propagation along simple and load edges is spread over \nseveral threads, as many as given by the global num-threads \noption, or one per processor if that is not set. Stores and call \ngraph updates run on one thread. This propagator always uses \nconcurrent bit-vector points-to sets, so the set-impl option is \nignored.",
+						false),
 		};
 
 
@@ -12060,6 +12202,10 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 						"double",
 						"\nDouble is an implementation that itself uses a pair of sets for \neach points-to set. The first set in the pair stores new \npointed-to objects that have not yet been propagated, while the \nsecond set stores old pointed-to objects that have been \npropagated and need not be reconsidered. This allows the \npropagation algorithms to be incremental, often speeding them up \nsignificantly.",
 						true),
+				new OptionData("Roaring",
+						"roaring",
+						"\nRoaring is an implementation using a compressed bit vector. The \nallocation sites are grouped into chunks of 65536, and only the \nchunks that are present in the set are stored, as a sorted \narray, a bit vector or a list of runs, whichever is smallest. It \nneeds much less memory than Bit and Hybrid for large sparse \nsets.",
+						false),
 		};
 
 
@@ -12100,6 +12246,10 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 						"sharedlist",
 						"\nShared List stores its elements in a linked list, and might \nshare its tail with other similar points-to sets.",
 						false),
+				new OptionData("Roaring",
+						"roaring",
+						"\nRoaring is an implementation using a compressed bit vector. The \nallocation sites are grouped into chunks of 65536, and only the \nchunks that are present in the set are stored, as a sorted \narray, a bit vector or a list of runs, whichever is smallest. It \nneeds much less memory than Bit and Hybrid for large sparse \nsets.",
+						false),
 		};
 
 
@@ -12140,6 +12290,10 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 						"sharedlist",
 						"\nShared List stores its elements in a linked list, and might \nshare its tail with other similar points-to sets.",
 						false),
+				new OptionData("Roaring",
+						"roaring",
+						"\nRoaring is an implementation using a compressed bit vector. The \nallocation sites are grouped into chunks of 65536, and only the \nchunks that are present in the set are stored, as a sorted \narray, a bit vector or a list of runs, whichever is smallest. It \nneeds much less memory than Bit and Hybrid for large sparse \nsets.",
+						false),
 		};
 
 
@@ -12154,6 +12308,18 @@ public class PhaseOptionsDialog extends AbstractOptionsDialog implements Selecti
 			getcgcg_sparkdouble_set_new_widget().setDef(defaultString);
 		}
 
+		defKey = "p phase-option"+" "+"cg.spark"+" "+"p2set-memory-budget";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		} else {
+			defaultString = "0";
+		}
+
+		setcgcg_sparkp2set_memory_budget_widget(new StringOptionWidget(editGroupcgSpark_Points_To_Set_Flowing_Options, SWT.NONE, new OptionData("Points-to set memory budget",  "p phase-option", "cg.spark","p2set-memory-budget", "\nWhen this option is set to a positive number, Spark estimates \nthe memory used by the points-to sets between the iterations of \nthe propagator. When the estimate exceeds the given number of \nmegabytes, the old parts of double sets that contain the same \nobjects are replaced by a single shared copy. A shared set is \ncopied again before it is modified. The estimates per set \nimplementation are logged in verbose mode. A value of 0 disables \nthe budget.", defaultString)));
+		
+
 
 		return editGroupcgSpark_Points_To_Set_Flowing_Options;
 	}
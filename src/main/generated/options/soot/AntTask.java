@@ -278,6 +278,7 @@ public class AntTask extends MatchingTask {
                 || arg.equals( "apk" )
                 || arg.equals( "apk-class-jimple" )
                 || arg.equals( "apk-c-j" )
+                || arg.equals( "jimplebin" )
                 ) {
                 addArg("-src-prec");
                 addArg(arg);
@@ -327,6 +328,19 @@ public class AntTask extends MatchingTask {
             if(arg) addArg("-drop-bodies-after-load");
         }
   
+        public void setprefetch_class_sources(boolean arg) {
+            if(arg) addArg("-prefetch-class-sources");
+        }
+  
+        public void setpipeline_bodies(boolean arg) {
+            if(arg) addArg("-pipeline-bodies");
+        }
+  
+        public void setbody_cache_dir(String arg) {
+            addArg("-body-cache-dir");
+            addArg(arg);
+        }
+  
         public void setoutput_dir(String arg) {
             addArg("-output-dir");
             addArg(arg);
@@ -365,6 +379,7 @@ public class AntTask extends MatchingTask {
                 || arg.equals( "template" )
                 || arg.equals( "a" )
                 || arg.equals( "asm" )
+                || arg.equals( "jimplebin" )
                 ) {
                 addArg("-output-format");
                 addArg(arg);
@@ -510,6 +525,10 @@ public class AntTask extends MatchingTask {
             }
         }
   
+        public void setcompact_unit_chains(boolean arg) {
+            if(arg) addArg("-compact-unit-chains");
+        }
+  
         public void setoptimize(boolean arg) {
             if(arg) addArg("-optimize");
         }
@@ -1700,6 +1719,12 @@ public class AntTask extends MatchingTask {
             addArg("double-set-new:"+arg);
           }
       
+          public void setp2set_memory_budget(String arg) {
+            addArg("-p");
+            addArg("cg.spark");
+            addArg("p2set-memory-budget:"+arg);
+          }
+      
           public void settraversal(String arg) {
             addArg("-p");
             addArg("cg.spark");
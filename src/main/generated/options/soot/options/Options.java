@@ -51,6 +51,7 @@ public class Options extends OptionsBase {
     public static final int src_prec_apk = 5;
     public static final int src_prec_apk_class_jimple = 6;
     public static final int src_prec_apk_c_j = 6;
+    public static final int src_prec_jimplebin = 7;
     public static final int output_format_J = 1;
     public static final int output_format_jimple = 1;
     public static final int output_format_j = 2;
@@ -81,6 +82,7 @@ public class Options extends OptionsBase {
     public static final int output_format_template = 16;
     public static final int output_format_a = 17;
     public static final int output_format_asm = 17;
+    public static final int output_format_jimplebin = 18;
     public static final int java_version_default = 1;
     public static final int java_version_1_1 = 2;
     public static final int java_version_1 = 2;
@@ -438,6 +440,15 @@ public class Options extends OptionsBase {
                     }
                     src_prec = src_prec_apk_c_j;
                 }
+                else if (false
+                        || value.equals("jimplebin")
+                ) {
+                    if (src_prec != 0 && src_prec != src_prec_jimplebin) {
+                        G.v().out.println("Multiple values given for option " + option);
+                        return false;
+                    }
+                    src_prec = src_prec_jimplebin;
+                }
                 else {
                     G.v().out.println(String.format("Invalid value %s given for option -%s", value, option));
                     return false;
@@ -495,6 +506,30 @@ public class Options extends OptionsBase {
                     || option.equals("no-drop-bodies-after-load")
             )
                 drop_bodies_after_load = false;
+            else if (false
+                    || option.equals("prefetch-class-sources")
+            )
+                prefetch_class_sources = true;
+            else if (false
+                    || option.equals("pipeline-bodies")
+            )
+                pipeline_bodies = true;
+            else if (false
+                    || option.equals("body-cache-dir")
+            ) {
+                if (!hasMoreOptions()) {
+                    G.v().out.println("No value given for option -" + option);
+                    return false;
+                }
+
+                String value = nextOption();
+                if (body_cache_dir.isEmpty())
+                    body_cache_dir = value;
+                else {
+                    G.v().out.println("Duplicate values " + body_cache_dir + " and " + value + " for option -" + option);
+                    return false;
+                }
+            }
             else if (false
                     || option.equals("d")
                     || option.equals("output-dir")
@@ -690,6 +725,15 @@ public class Options extends OptionsBase {
                     }
                     output_format = output_format_asm;
                 }
+                else if (false
+                        || value.equals("jimplebin")
+                ) {
+                    if (output_format != 0 && output_format != output_format_jimplebin) {
+                        G.v().out.println("Multiple values given for option " + option);
+                        return false;
+                    }
+                    output_format = output_format_jimplebin;
+                }
                 else {
                     G.v().out.println(String.format("Invalid value %s given for option -%s", value, option));
                     return false;
@@ -1052,6 +1096,10 @@ public class Options extends OptionsBase {
                     return false;
                 }
             }
+            else if (false
+                    || option.equals("compact-unit-chains")
+            )
+                compact_unit_chains = true;
             else if (false
                 || option.equals("O")
                 || option.equals("optimize")
@@ -1578,6 +1626,18 @@ public class Options extends OptionsBase {
     private boolean drop_bodies_after_load = true;
     public void set_drop_bodies_after_load(boolean setting) { drop_bodies_after_load = setting; }
 
+    public boolean prefetch_class_sources() { return prefetch_class_sources; }
+    private boolean prefetch_class_sources = false;
+    public void set_prefetch_class_sources(boolean setting) { prefetch_class_sources = setting; }
+
+    public boolean pipeline_bodies() { return pipeline_bodies; }
+    private boolean pipeline_bodies = false;
+    public void set_pipeline_bodies(boolean setting) { pipeline_bodies = setting; }
+
+    public String body_cache_dir() { return body_cache_dir; }
+    public void set_body_cache_dir(String setting) { body_cache_dir = setting; }
+    private String body_cache_dir = "";
+
     public String output_dir() { return output_dir; }
     public void set_output_dir(String setting) { output_dir = setting; }
     private String output_dir = "";
@@ -1667,6 +1727,10 @@ public class Options extends OptionsBase {
     public void set_num_threads(int setting) { num_threads = setting; }
     private int num_threads = -1;
 
+    public boolean compact_unit_chains() { return compact_unit_chains; }
+    private boolean compact_unit_chains = false;
+    public void set_compact_unit_chains(boolean setting) { compact_unit_chains = setting; }
+
     public boolean via_grimp() { return via_grimp; }
     private boolean via_grimp = false;
     public void set_via_grimp(boolean setting) { via_grimp = setting; }
@@ -1797,6 +1861,7 @@ public class Options extends OptionsBase {
                     + padVal("java", "Favour Java files as Soot source")
                     + padVal("apk", "Favour APK files as Soot source")
                     + padVal("apk-class-jimple apk-c-j", "Favour APK files as Soot source, disregard Java files")
+                    + padVal("jimplebin", "Favour binary Jimple files as Soot source")
                 + padOpt("-full-resolver", "Force transitive resolving of referenced classes")
                 + padOpt("-allow-phantom-refs", "Allow unresolved classes; may cause errors")
                 + padOpt("-allow-phantom-elms", "Allow phantom methods and fields in non-phantom classes")
@@ -1807,6 +1872,9 @@ public class Options extends OptionsBase {
                 + padOpt("-polyglot", "Use Java 1.4 Polyglot frontend instead of JastAdd")
                 + padOpt("-permissive-resolving", "Use alternative sources when classes cannot be found using the normal resolving strategy")
                 + padOpt("-drop-bodies-after-load", "Drop the method source after it has served its purpose of loading the method body")
+                + padOpt("-prefetch-class-sources", "Locate and read class files ahead of the resolver on background threads")
+                + padOpt("-pipeline-bodies", "Build naive Jimple bodies on background threads as classes are resolved")
+                + padOpt("-body-cache-dir ARG", "Cache the Jimple bodies created by the jb pack in ARG")
                 + "\nOutput Options:\n"
                 + padOpt("-d ARG -output-dir ARG", "Store output files in ARG")
                 + padOpt("-f ARG -output-format ARG", "Set output format for Soot")
@@ -1827,6 +1895,7 @@ public class Options extends OptionsBase {
                     + padVal("d dava", "Produce dava-decompiled .java files")
                     + padVal("t template", "Produce .java files with Jimple templates.")
                     + padVal("a asm", "Produce .asm files as textual bytecode representation generated with the ASM back end.")
+                    + padVal("jimplebin", "Produce .jimplebin files")
                 + padOpt("-java-version ARG", "Force Java version of bytecode generated by Soot.")
                     + padVal("default", "Let Soot determine Java version of generated bytecode.")
                     + padVal("1.1 1", "Force Java 1.1 as output version.")
@@ -1864,6 +1933,7 @@ public class Options extends OptionsBase {
                     + padVal("ignore", "Ignore field type mismatches")
                     + padVal("null (default)", "Return null in case of type mismatch")
                 + padOpt("-p ARG -phase-option ARG", "Set PHASE 's OPT option to VALUE")
+                + padOpt("-compact-unit-chains", "Store body units in compact index-based chains")
                 + padOpt("-O, -optimize", "Perform intraprocedural optimizations")
                 + padOpt("-W, -whole-optimize", "Perform whole program optimizations")
                 + padOpt("-via-grimp", "Convert to bytecode via Grimp instead of via Baf")
@@ -2320,6 +2390,7 @@ public class Options extends OptionsBase {
                         + padVal("merge", "Unfinished field reference merging algorithms")
                         + padVal("alias", "Alias-edge based algorithm")
                         + padVal("none", "Disable propagation")
+                        + padVal("parallel", "Multi-threaded worklist algorithm")
                     + padOpt("set-impl", "Select points-to set implementation")
                         + padVal("hash", "Use Java HashSet")
                         + padVal("bit", "Bit vector")
@@ -2328,6 +2399,7 @@ public class Options extends OptionsBase {
                         + padVal("heintze", "Heintze's shared bit-vector and overflow list representation")
                         + padVal("sharedlist", "Shared list representation")
                         + padVal("double (default)", "Double set representation for incremental propagation")
+                        + padVal("roaring", "Compressed bitmap representation")
                     + padOpt("double-set-old", "Select implementation of points-to set for old part of double set")
                         + padVal("hash", "Use Java HashSet")
                         + padVal("bit", "Bit vector")
@@ -2335,6 +2407,7 @@ public class Options extends OptionsBase {
                         + padVal("array", "Sorted array representation")
                         + padVal("heintze", "Heintze's shared bit-vector and overflow list representation")
                         + padVal("sharedlist", "Shared list representation")
+                        + padVal("roaring", "Compressed bitmap representation")
                     + padOpt("double-set-new", "Select implementation of points-to set for new part of double set")
                         + padVal("hash", "Use Java HashSet")
                         + padVal("bit", "Bit vector")
@@ -2342,6 +2415,8 @@ public class Options extends OptionsBase {
                         + padVal("array", "Sorted array representation")
                         + padVal("heintze", "Heintze's shared bit-vector and overflow list representation")
                         + padVal("sharedlist", "Shared list representation")
+                        + padVal("roaring", "Compressed bitmap representation")
+                    + padOpt("p2set-memory-budget (0)", "Compact points-to sets when they use more than this many megabytes")
                     + padOpt("dump-html (false)", "Dump pointer assignment graph to HTML for debugging")
                     + padOpt("dump-pag (false)", "Dump pointer assignment graph for other solvers")
                     + padOpt("dump-solution (false)", "Dump final solution for comparison with other solvers")
@@ -3251,6 +3326,7 @@ public class Options extends OptionsBase {
                     "set-impl",
                     "double-set-old",
                     "double-set-new",
+                    "p2set-memory-budget",
                     "dump-html",
                     "dump-pag",
                     "dump-solution",
@@ -3978,6 +4054,7 @@ public class Options extends OptionsBase {
                     + "set-impl:double "
                     + "double-set-old:hybrid "
                     + "double-set-new:hybrid "
+                    + "p2set-memory-budget:0 "
                     + "dump-html:false "
                     + "dump-pag:false "
                     + "dump-solution:false "
@@ -470,6 +470,24 @@ public class SparkOptions {
         return soot.PhaseOptions.getBoolean(options, "geom-app-only");
     }
 
+    /**
+     * Points-to set memory budget --
+     * Compact points-to sets when they use more than this many 
+     * megabytes.
+     *
+     * When this option is set to a positive number, Spark estimates 
+     * the memory used by the points-to sets between the iterations of 
+     * the propagator. When the estimate exceeds the given number of 
+     * megabytes, the old parts of double sets that contain the same 
+     * objects are replaced by a single shared copy. A shared set is 
+     * copied again before it is modified. The estimates per set 
+     * implementation are logged in verbose mode. A value of 0 disables 
+     * the budget.
+     */
+    public int p2set_memory_budget() {
+        return soot.PhaseOptions.getInt(options, "p2set-memory-budget");
+    }
+
     /**
      * Maximal traversal --
      * Make the analysis traverse at most this number of nodes per 
@@ -564,6 +582,7 @@ public class SparkOptions {
     public static final int propagator_merge = 4;
     public static final int propagator_alias = 5;
     public static final int propagator_none = 6;
+    public static final int propagator_parallel = 7;
 
     /**
      * Propagator --
@@ -588,6 +607,8 @@ public class SparkOptions {
             return propagator_alias;
         if (s.equalsIgnoreCase("none"))
             return propagator_none;
+        if (s.equalsIgnoreCase("parallel"))
+            return propagator_parallel;
 
         throw new RuntimeException(String.format("Invalid value %s of phase option propagator", s));
     }
@@ -599,6 +620,7 @@ public class SparkOptions {
     public static final int set_impl_heintze = 5;
     public static final int set_impl_sharedlist = 6;
     public static final int set_impl_double = 7;
+    public static final int set_impl_roaring = 8;
 
     /**
      * Set Implementation --
@@ -625,6 +647,8 @@ public class SparkOptions {
             return set_impl_sharedlist;
         if (s.equalsIgnoreCase("double"))
             return set_impl_double;
+        if (s.equalsIgnoreCase("roaring"))
+            return set_impl_roaring;
 
         throw new RuntimeException(String.format("Invalid value %s of phase option set-impl", s));
     }
@@ -635,6 +659,7 @@ public class SparkOptions {
     public static final int double_set_old_array = 4;
     public static final int double_set_old_heintze = 5;
     public static final int double_set_old_sharedlist = 6;
+    public static final int double_set_old_roaring = 7;
 
     /**
      * Double Set Old --
@@ -662,6 +687,8 @@ public class SparkOptions {
             return double_set_old_heintze;
         if (s.equalsIgnoreCase("sharedlist"))
             return double_set_old_sharedlist;
+        if (s.equalsIgnoreCase("roaring"))
+            return double_set_old_roaring;
 
         throw new RuntimeException(String.format("Invalid value %s of phase option double-set-old", s));
     }
@@ -672,6 +699,7 @@ public class SparkOptions {
     public static final int double_set_new_array = 4;
     public static final int double_set_new_heintze = 5;
     public static final int double_set_new_sharedlist = 6;
+    public static final int double_set_new_roaring = 7;
 
     /**
      * Double Set New --
@@ -699,6 +727,8 @@ public class SparkOptions {
             return double_set_new_heintze;
         if (s.equalsIgnoreCase("sharedlist"))
             return double_set_new_sharedlist;
+        if (s.equalsIgnoreCase("roaring"))
+            return double_set_new_roaring;
 
         throw new RuntimeException(String.format("Invalid value %s of phase option double-set-new", s));
     }
@@ -258,6 +258,20 @@ public class Singletons {
     	instance_soot_SourceLocator = null;
     }
 
+    private soot.jimple.cache.BodyCache instance_soot_jimple_cache_BodyCache;
+    public soot.jimple.cache.BodyCache soot_jimple_cache_BodyCache() {
+        if (instance_soot_jimple_cache_BodyCache == null) {
+	       	synchronized (this) {
+		        if (instance_soot_jimple_cache_BodyCache == null)
+	        		instance_soot_jimple_cache_BodyCache = new soot.jimple.cache.BodyCache(g);
+	       	}
+       	}
+        return instance_soot_jimple_cache_BodyCache;
+    }
+    protected void release_soot_jimple_cache_BodyCache() {
+    	instance_soot_jimple_cache_BodyCache = null;
+    }
+
     private soot.ModulePathSourceLocator instance_soot_ModulePathSourceLocator;
     public soot.ModulePathSourceLocator soot_ModulePathSourceLocator() {
         if (instance_soot_ModulePathSourceLocator == null) {
@@ -0,0 +1,108 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.javaToJimple.IInitialResolver.Dependencies;
+import soot.jimple.binary.BinaryJimpleMethodSource;
+import soot.jimple.binary.BinaryJimpleReader;
+import soot.options.Options;
+
+/**
+ * A class source for resolving from binary Jimple files.
+ */
+public class BinaryJimpleClassSource extends ClassSource {
+  private static final Logger logger = LoggerFactory.getLogger(BinaryJimpleClassSource.class);
+
+  private FoundFile foundFile;
+
+  public BinaryJimpleClassSource(String className, FoundFile foundFile) {
+    super(className);
+    if (foundFile == null) {
+      throw new IllegalStateException("Error: The FoundFile must not be null.");
+    }
+    this.foundFile = foundFile;
+  }
+
+  @Override
+  public Dependencies resolve(SootClass sc) {
+    if (Options.v().verbose()) {
+      logger.debug("resolving [from .jimplebin]: " + className);
+    }
+
+    try (InputStream in = foundFile.inputStream()) {
+      BinaryJimpleReader reader = new BinaryJimpleReader(in);
+      reader.buildSkeleton(sc);
+
+      // Set method source for all methods with a body
+      BinaryJimpleMethodSource mtdSrc = new BinaryJimpleMethodSource(reader);
+      for (SootMethod sm : sc.getMethods()) {
+        if (reader.hasBody(sm)) {
+          sm.setSource(mtdSrc);
+        }
+      }
+
+      // set outer class if not set (which it should not be) and class name contains outer class indicator
+      String outerClassName = null;
+      if (!sc.hasOuterClass()) {
+        String className = sc.getName();
+        if (className.contains("$")) {
+          if (className.contains("$-")) {
+            // Generated lambda classes of the jack and jill compiler, see JimpleClassSource
+            outerClassName = className.substring(0, className.indexOf("$-"));
+          } else {
+            outerClassName = className.substring(0, className.lastIndexOf('$'));
+          }
+          sc.setOuterClass(SootResolver.v().makeClassRef(outerClassName));
+        }
+      }
+
+      // Construct the type dependencies of the class
+      Dependencies deps = new Dependencies();
+      for (String t : reader.getReferencedClasses()) {
+        deps.typesToSignature.add(RefType.v(t));
+      }
+      if (outerClassName != null) {
+        deps.typesToSignature.add(RefType.v(outerClassName));
+      }
+      return deps;
+    } catch (IOException e) {
+      throw new RuntimeException("Error: Failed to read binary Jimple for class " + className + ".", e);
+    } finally {
+      close();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (foundFile != null) {
+      foundFile.close();
+      foundFile = null;
+    }
+  }
+}
@@ -43,6 +43,7 @@ import soot.tagkit.AbstractHost;
 import soot.tagkit.CodeAttribute;
 import soot.tagkit.Tag;
 import soot.util.Chain;
+import soot.util.CompactChain;
 import soot.util.EscapedWriter;
 import soot.util.HashChain;
 import soot.validation.BodyValidator;
@@ -89,7 +90,15 @@ public abstract class Body extends AbstractHost implements Serializable {
   /**
    * The chain of units for this Body.
    */
-  protected UnitPatchingChain unitChain = new UnitPatchingChain(new HashChain<>());
+  protected UnitPatchingChain unitChain = new UnitPatchingChain(newUnitStorage());
+
+  /**
+   * Creates the chain that stores the units of a new Body. This is a {@link CompactChain} if the
+   * <code>compact-unit-chains</code> option is set, and a {@link HashChain} otherwise.
+   */
+  protected static Chain<Unit> newUnitStorage() {
+    return Options.v().compact_unit_chains() ? new CompactChain<>() : new HashChain<>();
+  }
 
   /**
    * Lazy initialized array containing some validators in order to validate the Body.
@@ -466,6 +475,18 @@ public abstract class Body extends AbstractHost implements Serializable {
     return unitChain;
   }
 
+  /**
+   * Moves the units of this Body into a {@link CompactChain}, independently of the <code>compact-unit-chains</code> option.
+   * This is useful for very large bodies that are kept in memory for a long time. The units themselves and their order are
+   * preserved. Note that chains previously obtained through {@link #getUnits()} are no longer connected to this Body.
+   */
+  public void useCompactUnitChain() {
+    Chain<Unit> storage = unitChain.getNonPatchingChain();
+    if (!(storage instanceof CompactChain)) {
+      unitChain = new UnitPatchingChain(new CompactChain<>(storage));
+    }
+  }
+
   /**
    * Returns the result of iterating through all Units in this body and querying them for their UnitBoxes. All UnitBoxes thus
    * found are returned. Branching Units and statements which use PhiExpr will have UnitBoxes; a UnitBox contains a Unit that
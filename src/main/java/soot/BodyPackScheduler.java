@@ -0,0 +1,212 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.PackManager.BodyPackJob;
+
+/**
+ * Runs {@link BodyPackJob}s on a work-stealing {@link ForkJoinPool}. Every class is split into one task per method, so that
+ * the methods of a few very large classes are spread over all threads instead of keeping a single thread busy while the
+ * others are idle. Classes and methods are started largest first, based on the number of units in their active bodies, so
+ * that the longest-running tasks do not end up at the tail of the run.
+ */
+class BodyPackScheduler {
+  private static final Logger logger = LoggerFactory.getLogger(BodyPackScheduler.class);
+
+  private final int threadNum;
+  private final Map<Thread, AtomicLong> busyTime = new ConcurrentHashMap<Thread, AtomicLong>();
+
+  BodyPackScheduler(int threadNum) {
+    this.threadNum = threadNum;
+  }
+
+  /**
+   * Runs the given jobs and waits for all of them to finish.
+   *
+   * @param jobs
+   *          the jobs to run
+   * @throws RuntimeException
+   *           if a job failed
+   */
+  void run(List<BodyPackJob> jobs) {
+    final List<ClassTask> tasks = new ArrayList<ClassTask>(jobs.size());
+    for (BodyPackJob job : jobs) {
+      tasks.add(new ClassTask(job));
+    }
+    // Sort stable so that classes of the same size keep their original order
+    Collections.sort(tasks, new Comparator<ClassTask>() {
+      @Override
+      public int compare(ClassTask o1, ClassTask o2) {
+        return Long.compare(o2.size, o1.size);
+      }
+    });
+
+    // asyncMode makes every worker take its local tasks in FIFO order, i.e.,
+    // largest first, just as the tasks that are stolen by other workers
+    ForkJoinPool pool = new ForkJoinPool(threadNum, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("Soot body packs " + t.getPoolIndex());
+        return t;
+      }
+    }, null, true);
+
+    final long start = System.nanoTime();
+    try {
+      pool.invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    } finally {
+      pool.shutdown();
+    }
+    reportUtilization(System.nanoTime() - start);
+  }
+
+  private void reportUtilization(long wallTime) {
+    if (!logger.isDebugEnabled() || wallTime <= 0) {
+      return;
+    }
+    long total = 0;
+    for (Map.Entry<Thread, AtomicLong> e : busyTime.entrySet()) {
+      long busy = e.getValue().get();
+      total += busy;
+      logger.debug("{}: busy for {} ms ({}% of {} ms)", e.getKey().getName(), busy / 1000000, busy * 100 / wallTime,
+          wallTime / 1000000);
+    }
+    logger.debug("Body packs used {}% of {} threads", total * 100 / (wallTime * threadNum), threadNum);
+  }
+
+  private void recordBusyTime(long time) {
+    Thread t = Thread.currentThread();
+    AtomicLong busy = busyTime.get(t);
+    if (busy == null) {
+      AtomicLong newBusy = new AtomicLong();
+      busy = busyTime.putIfAbsent(t, newBusy);
+      if (busy == null) {
+        busy = newBusy;
+      }
+    }
+    busy.addAndGet(time);
+  }
+
+  /**
+   * Estimates the effort of running the body packs on the given method.
+   *
+   * @param m
+   *          the method
+   * @return the number of units in the active body, or 1 if the method has no active body yet
+   */
+  private static long estimateSize(SootMethod m) {
+    if (m.hasActiveBody()) {
+      return Math.max(1, m.getActiveBody().getUnits().size());
+    }
+    return m.isConcrete() ? 1 : 0;
+  }
+
+  private final class ClassTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final transient BodyPackJob job;
+    private final long size;
+
+    ClassTask(BodyPackJob job) {
+      this.job = job;
+      long size = 0;
+      for (SootMethod m : job.getSootClass().getMethods()) {
+        size += estimateSize(m);
+      }
+      this.size = size;
+    }
+
+    @Override
+    protected void compute() {
+      long start = System.nanoTime();
+      List<SootMethod> methods = job.start();
+      if (job.isSplittable() && methods.size() > 1) {
+        List<MethodTask> tasks = new ArrayList<MethodTask>(methods.size());
+        for (SootMethod m : methods) {
+          tasks.add(new MethodTask(job, m));
+        }
+        Collections.sort(tasks, new Comparator<MethodTask>() {
+          @Override
+          public int compare(MethodTask o1, MethodTask o2) {
+            return Long.compare(o2.size, o1.size);
+          }
+        });
+        recordBusyTime(System.nanoTime() - start);
+        invokeAll(tasks);
+        start = System.nanoTime();
+      } else {
+        for (SootMethod m : methods) {
+          job.apply(m);
+        }
+      }
+      job.finish();
+      recordBusyTime(System.nanoTime() - start);
+    }
+  }
+
+  private final class MethodTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final transient BodyPackJob job;
+    private final transient SootMethod method;
+    private final long size;
+
+    MethodTask(BodyPackJob job, SootMethod method) {
+      this.job = job;
+      this.method = method;
+      this.size = estimateSize(method);
+    }
+
+    @Override
+    protected void compute() {
+      long start = System.nanoTime();
+      try {
+        job.apply(method);
+      } finally {
+        recordBusyTime(System.nanoTime() - start);
+      }
+    }
+  }
+}
@@ -43,6 +43,14 @@ public abstract class ClassSource {
    */
   public abstract Dependencies resolve(SootClass sc);
 
+  /**
+   * Reads the data backing this class source into memory so that a later call to {@link #resolve(SootClass)} does not
+   * block on I/O. Implementations must release any underlying resources, such as open archives, once the data has been
+   * read. This method may be called on a thread other than the one resolving the class.
+   */
+  public void prefetch() {
+  }
+
   public void close() {
   }
 }
@@ -22,9 +22,6 @@ package soot;
  * #L%
  */
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
-
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
@@ -37,11 +34,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import soot.jimple.spark.internal.TypeManager;
 import soot.options.Options;
+import soot.util.BitSetIterator;
+import soot.util.BitVector;
 import soot.util.ConcurrentHashMultiMap;
 import soot.util.MultiMap;
+import soot.util.Numberer;
 import soot.util.NumberedString;
 
 /**
@@ -58,7 +59,17 @@ public class FastHierarchy {
 
   protected static final int USE_INTERVALS_BOUNDARY = 100;
 
-  protected Table<SootClass, NumberedString, SootMethod> typeToVtbl = HashBasedTable.create();
+  /**
+   * The dispatch table. It maps a pair of class number and subsignature number (see {@link #dispatchKey(SootClass, int)})
+   * to the method that a call with this subsignature on an object of the class dispatches to.
+   */
+  protected final Map<Long, SootMethod> typeToVtbl = new ConcurrentHashMap<Long, SootMethod>();
+
+  /**
+   * Caches the results of {@link #resolveAbstractDispatch(SootClass, SootMethodRef)}.
+   */
+  protected final Map<AbstractDispatchKey, Set<SootMethod>> abstractDispatchCache
+      = new ConcurrentHashMap<AbstractDispatchKey, Set<SootMethod>>();
 
   /**
    * This map holds all key,value pairs such that value.getSuperclass() == key. This is one of the three maps that hold the
@@ -91,12 +102,29 @@ public class FastHierarchy {
    */
   protected MultiMap<SootClass, SootClass> interfaceToAllImplementers = new ConcurrentHashMultiMap<SootClass, SootClass>();
 
+  /**
+   * The interfaces for which {@link #interfaceToAllImplementers} has been computed but is empty.
+   */
+  protected final Set<SootClass> interfacesWithoutImplementers = ConcurrentHashMap.newKeySet();
+
+  /**
+   * This map gives, for an interface, the numbers of all classes that can be stored in a variable of the interface type,
+   * i.e., all implementers of the interface and its subinterfaces together with their subclasses. It is filled on demand.
+   */
+  protected final Map<SootClass, BitVector> interfaceToStorableClasses = new ConcurrentHashMap<SootClass, BitVector>();
+
   /**
    * For each class (NOT interface), this map contains a Interval, which is a pair of numbers giving a preorder and postorder
    * ordering of classes in the inheritance tree.
    */
   protected Map<SootClass, Interval> classToInterval = new HashMap<SootClass, Interval>();
 
+  /**
+   * The classes (NOT interfaces) indexed by the lower bound of their {@link Interval}. The classes in the subtree of a class
+   * are thus found in the range of its interval.
+   */
+  protected SootClass[] classesByLowerBound;
+
   protected final Scene sc;
   protected final RefType rtObject;
   protected final RefType rtSerializable;
@@ -166,6 +194,11 @@ public class FastHierarchy {
         r = dfsVisit(r, phantomClass);
       }
     }
+
+    this.classesByLowerBound = new SootClass[r];
+    for (Map.Entry<SootClass, Interval> e : classToInterval.entrySet()) {
+      classesByLowerBound[e.getValue().lower] = e.getKey();
+    }
   }
 
   protected void buildInverseMaps() {
@@ -216,7 +249,7 @@ public class FastHierarchy {
     parent.checkLevel(SootClass.HIERARCHY);
 
     Set<SootClass> result = interfaceToAllImplementers.get(parent);
-    if (!result.isEmpty()) {
+    if (!result.isEmpty() || interfacesWithoutImplementers.contains(parent)) {
       return result;
     }
     result = new HashSet<>();
@@ -227,10 +260,47 @@ public class FastHierarchy {
       result.addAll(getAllImplementersOfInterface(subinterface));
     }
     result.addAll(interfaceToImplementers.get(parent));
-    interfaceToAllImplementers.putAll(parent, result);
+    if (result.isEmpty()) {
+      interfacesWithoutImplementers.add(parent);
+    } else {
+      interfaceToAllImplementers.putAll(parent, result);
+    }
     return result;
   }
 
+  /**
+   * For an interface parent (MUST be an interface), returns the numbers of all classes whose objects can be stored in a
+   * variable of type <code>parent</code>. The returned bit vector must not be modified.
+   *
+   * <p>
+   * This method can be used concurrently (is thread safe).
+   *
+   * @param parent
+   *          the parent interface.
+   * @return a bit vector over the class numbers, possibly empty
+   */
+  protected BitVector getStorableClassesOfInterface(SootClass parent) {
+    BitVector result = interfaceToStorableClasses.get(parent);
+    if (result != null) {
+      return result;
+    }
+    result = new BitVector(sc.getClassNumberer().size() + 1);
+    for (SootClass impl : getAllImplementersOfInterface(parent)) {
+      Interval interval = classToInterval.get(impl);
+      if (interval == null) {
+        continue;
+      }
+      for (int i = interval.lower; i < interval.upper; i++) {
+        SootClass c = classesByLowerBound[i];
+        if (c != null && c.getNumber() > 0) {
+          result.set(c.getNumber());
+        }
+      }
+    }
+    BitVector old = interfaceToStorableClasses.putIfAbsent(parent, result);
+    return old == null ? result : old;
+  }
+
   /**
    * For an interface parent (MUST be an interface), returns set of all subinterfaces including <code>parent</code>.
    *
@@ -289,14 +359,32 @@ public class FastHierarchy {
         // However, it doesn't work the other way round. You can't assign a Serializable to a variable of type Foo[].
         return false;
       } else {
-        Deque<SootClass> worklist = new ArrayDeque<SootClass>();
-        SootClass base = ((AnySubType) child).getBase().getSootClass();
+        final SootClass base = ((AnySubType) child).getBase().getSootClass();
+        final SootClass parentClass = ((RefType) parent).getSootClass();
         if (base.isInterface()) {
-          worklist.addAll(getAllImplementersOfInterface(base));
-        } else {
-          worklist.add(base);
+          // The storable classes of the base interface are indexed by their number
+          final Numberer<SootClass> numberer = sc.getClassNumberer();
+          for (BitSetIterator it = getStorableClassesOfInterface(base).iterator(); it.hasNext();) {
+            SootClass cl = numberer.get(it.next());
+            if (cl != null && cl.isConcrete() && canStoreClass(cl, parentClass)) {
+              return true;
+            }
+          }
+          return false;
         }
-        final SootClass parentClass = ((RefType) parent).getSootClass();
+        final Interval baseInterval = classToInterval.get(base);
+        if (baseInterval != null) {
+          // The subclasses of the base class are found in the range of its interval
+          for (int i = baseInterval.lower; i < baseInterval.upper; i++) {
+            SootClass cl = classesByLowerBound[i];
+            if (cl != null && cl.isConcrete() && canStoreClass(cl, parentClass)) {
+              return true;
+            }
+          }
+          return false;
+        }
+        Deque<SootClass> worklist = new ArrayDeque<SootClass>();
+        worklist.add(base);
         {
           Set<SootClass> workset = new HashSet<>();
           SootClass cl;
@@ -364,26 +452,9 @@ public class FastHierarchy {
         return getAllSubinterfaces(parent).contains(child);
       }
     } else {
-      final Set<SootClass> impl = getAllImplementersOfInterface(parent);
-      if (impl.size() > USE_INTERVALS_BOUNDARY) {
-        // If we have more than 100 entries it is quite time consuming to check each and every
-        // implementing class
-        // if it is the "child" class. Therefore we use an alternative implementation which just
-        // checks the client
-        // class it's super classes and all the interfaces it implements.
-
-        return canStoreClassClassic(child, parent);
-      } else {
-        // If we only have a few entries, you can't beat the performance of a plain old loop
-        // in combination with the interval approach.
-        for (SootClass c : impl) {
-          Interval interval = classToInterval.get(c);
-          if (interval != null && interval.isSubrange(childInterval)) {
-            return true;
-          }
-        }
-        return false;
-      }
+      // The classes storable in the parent interface are precomputed per interface, so this is a single bit lookup
+      final int number = child.getNumber();
+      return number > 0 ? getStorableClassesOfInterface(parent).get(number) : canStoreClassClassic(child, parent);
     }
   }
 
@@ -615,6 +686,24 @@ public class FastHierarchy {
    *          The declared type C
    */
   public Set<SootMethod> resolveAbstractDispatch(SootClass baseType, SootMethodRef m) {
+    final int baseNumber = baseType.getNumber();
+    final int declaringNumber = m.getDeclaringClass().getNumber();
+    if (baseNumber == 0 || declaringNumber == 0) {
+      return computeAbstractDispatch(baseType, m);
+    }
+    final AbstractDispatchKey key = new AbstractDispatchKey(baseNumber, declaringNumber, m.getSubSignature().getNumber());
+    Set<SootMethod> ret = abstractDispatchCache.get(key);
+    if (ret == null) {
+      ret = Collections.unmodifiableSet(computeAbstractDispatch(baseType, m));
+      Set<SootMethod> old = abstractDispatchCache.putIfAbsent(key, ret);
+      if (old != null) {
+        ret = old;
+      }
+    }
+    return ret;
+  }
+
+  private Set<SootMethod> computeAbstractDispatch(SootClass baseType, SootMethodRef m) {
     HashSet<SootClass> resolved = new HashSet<>();
     HashSet<SootMethod> ret = new HashSet<>();
 
@@ -820,8 +909,9 @@ public class FastHierarchy {
       methodSignature = subsignature;
     }
 
-    {
-      SootMethod resolvedMethod = typeToVtbl.get(baseType, methodSignature);
+    final long vtblKey = dispatchKey(baseType, methodSignature.getNumber());
+    if (vtblKey != 0) {
+      SootMethod resolvedMethod = typeToVtbl.get(vtblKey);
       if (resolvedMethod != null) {
         return resolvedMethod;
       }
@@ -838,8 +928,8 @@ public class FastHierarchy {
             break;
           }
 
-          if (!candidate.isAbstract()) {
-            typeToVtbl.put(baseType, methodSignature, candidate);
+          if (!candidate.isAbstract() && vtblKey != 0) {
+            typeToVtbl.put(vtblKey, candidate);
           }
           return candidate;
         }
@@ -888,12 +978,20 @@ public class FastHierarchy {
       ignoreList.addAll(interfaceIgnoreList);
     }
 
-    if (candidate != null) {
-      typeToVtbl.put(baseType, methodSignature, candidate);
+    if (candidate != null && vtblKey != 0) {
+      typeToVtbl.put(vtblKey, candidate);
     }
     return candidate;
   }
 
+  /**
+   * Returns the key of the given class and subsignature number in {@link #typeToVtbl}, or 0 if the class is not numbered.
+   */
+  protected static long dispatchKey(SootClass c, int subsignature) {
+    final int number = c.getNumber();
+    return number == 0 ? 0 : ((long) number << 32) | (subsignature & 0xFFFFFFFFL);
+  }
+
   private boolean isHandleDefaultMethods() {
     int version = Options.v().java_version();
     return version == 0 || version > 7;
@@ -1001,4 +1099,36 @@ public class FastHierarchy {
     };
   }
 
+  /**
+   * The key of an abstract dispatch: the numbers of the base type, the declaring class of the method reference (which
+   * determines visibility) and the subsignature.
+   */
+  protected static final class AbstractDispatchKey {
+    private final int baseType;
+    private final int declaringClass;
+    private final int subsignature;
+
+    AbstractDispatchKey(int baseType, int declaringClass, int subsignature) {
+      this.baseType = baseType;
+      this.declaringClass = declaringClass;
+      this.subsignature = subsignature;
+    }
+
+    @Override
+    public int hashCode() {
+      return (31 * (31 * baseType + declaringClass)) + subsignature;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof AbstractDispatchKey)) {
+        return false;
+      }
+      AbstractDispatchKey other = (AbstractDispatchKey) obj;
+      return baseType == other.baseType && declaringClass == other.declaringClass && subsignature == other.subsignature;
+    }
+  }
 }
@@ -0,0 +1,290 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.SpecialInvokeExpr;
+import soot.jimple.Stmt;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.CallGraphBuilder;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.jimple.toolkits.callgraph.ReachableMethods;
+import soot.jimple.toolkits.pointer.DumbPointerAnalysis;
+import soot.options.Options;
+import soot.util.NumberedString;
+
+/**
+ * Updates the Scene and its call graph after some classes of the analyzed program have changed, instead of rebuilding
+ * everything from scratch.
+ *
+ * <p>
+ * Changed classes are unloaded in place, i.e., they keep their {@link SootClass} object, and are then resolved again from
+ * the class path. Added classes are loaded as application classes and removed classes are removed from the Scene. The
+ * {@link FastHierarchy} is invalidated and rebuilt on demand. In the call graph, the edges into and out of the methods of
+ * the affected classes are removed. The edges of the new methods and of the methods whose calls may now dispatch
+ * differently are computed again with a class hierarchy analysis; the rest of the call graph is kept. The points-to analysis
+ * is released by the Scene when the hierarchy changes and must be recomputed if it is needed.
+ *
+ * <p>
+ * The caller is responsible for passing all classes that changed. In particular, subclasses of a removed class must be
+ * removed or changed as well.
+ */
+public class IncrementalSceneUpdater {
+  private static final Logger logger = LoggerFactory.getLogger(IncrementalSceneUpdater.class);
+
+  protected final Scene scene;
+  protected final Set<SootClass> reloadedClasses = new LinkedHashSet<SootClass>();
+
+  public IncrementalSceneUpdater() {
+    this.scene = Scene.v();
+  }
+
+  /**
+   * Updates the Scene and, if there is one, its call graph.
+   *
+   * @param changedClasses
+   *          the names of the classes that have been changed or added
+   * @param removedClasses
+   *          the names of the classes that have been removed
+   */
+  public void update(Collection<String> changedClasses, Collection<String> removedClasses) {
+    final CallGraph cg = scene.hasCallGraph() ? scene.getCallGraph() : null;
+    final Set<MethodOrMethodContext> previouslyReachable = new HashSet<MethodOrMethodContext>();
+    if (cg != null) {
+      for (Iterator<MethodOrMethodContext> it = scene.getReachableMethods().listener(); it.hasNext();) {
+        previouslyReachable.add(it.next());
+      }
+    }
+
+    final Set<SootClass> affected = new HashSet<SootClass>();
+    final List<SootClass> changed = new ArrayList<SootClass>();
+    final List<String> added = new ArrayList<String>();
+    for (String name : changedClasses) {
+      if (scene.containsClass(name)) {
+        SootClass sc = scene.getSootClass(name);
+        changed.add(sc);
+        affected.add(sc);
+      } else {
+        added.add(name);
+      }
+    }
+    final List<SootClass> removed = new ArrayList<SootClass>();
+    for (String name : removedClasses) {
+      if (scene.containsClass(name)) {
+        SootClass sc = scene.getSootClass(name);
+        removed.add(sc);
+        affected.add(sc);
+      }
+    }
+
+    // The subsignatures of the old and new methods; calls with such a subsignature may dispatch differently now
+    final Set<NumberedString> subsignatures = new HashSet<NumberedString>();
+    final Set<SootMethod> recompute = new LinkedHashSet<SootMethod>();
+    final Set<String> entryPointSignatures = new HashSet<String>();
+    for (SootMethod ep : scene.getEntryPoints()) {
+      if (affected.contains(ep.getDeclaringClass())) {
+        entryPointSignatures.add(ep.getSignature());
+      }
+    }
+    for (SootClass sc : affected) {
+      if (sc.resolvingLevel() < SootClass.SIGNATURES) {
+        continue;
+      }
+      for (SootMethod m : sc.getMethods()) {
+        subsignatures.add(m.getNumberedSubSignature());
+        if (cg != null) {
+          removeEdges(cg, m, affected, recompute);
+        }
+      }
+    }
+
+    for (SootClass sc : removed) {
+      unload(sc);
+      scene.removeClass(sc);
+    }
+    for (SootClass sc : changed) {
+      final int level = Math.max(sc.resolvingLevel(), SootClass.HIERARCHY);
+      if (sc.isPhantom()) {
+        sc.setLibraryClass();
+      }
+      unload(sc);
+      scene.forceResolve(sc.getName(), level);
+      reloadedClasses.add(sc);
+    }
+    for (String name : added) {
+      SootClass sc = scene.forceResolve(name, SootClass.BODIES);
+      if (!sc.isPhantom()) {
+        sc.setApplicationClass();
+      }
+      reloadedClasses.add(sc);
+    }
+    scene.modifyHierarchy();
+
+    // Point the entry points to the reloaded methods
+    final List<SootMethod> entryPoints = new ArrayList<SootMethod>();
+    final List<SootMethod> newEntryPoints = new ArrayList<SootMethod>();
+    for (SootMethod ep : scene.getEntryPoints()) {
+      if (ep.isDeclared()) {
+        entryPoints.add(ep);
+      } else if (entryPointSignatures.contains(ep.getSignature())) {
+        SootMethod m = scene.grabMethod(ep.getSignature());
+        if (m != null) {
+          entryPoints.add(m);
+          newEntryPoints.add(m);
+        }
+      }
+    }
+    scene.setEntryPoints(entryPoints);
+
+    if (cg != null) {
+      for (SootClass sc : reloadedClasses) {
+        if (sc.resolvingLevel() >= SootClass.SIGNATURES) {
+          for (SootMethod m : sc.getMethods()) {
+            subsignatures.add(m.getNumberedSubSignature());
+          }
+        }
+      }
+      findVirtualCallers(previouslyReachable, affected, subsignatures, recompute);
+      recompute.addAll(newEntryPoints);
+      updateCallGraph(cg, previouslyReachable, recompute);
+    }
+  }
+
+  /**
+   * Runs the body packs on the classes that have been reloaded or added by {@link #update(Collection, Collection)}.
+   */
+  public void runBodyPacks() {
+    List<SootClass> classes = new ArrayList<SootClass>();
+    for (SootClass sc : reloadedClasses) {
+      if (sc.resolvingLevel() >= SootClass.BODIES && !sc.isPhantom()) {
+        classes.add(sc);
+      }
+    }
+    PackManager.v().runBodyPacks(classes);
+  }
+
+  /**
+   * Returns the classes that have been reloaded or added so far.
+   */
+  public Set<SootClass> getReloadedClasses() {
+    return Collections.unmodifiableSet(reloadedClasses);
+  }
+
+  /**
+   * Removes the edges into and out of the given method and remembers the callers outside of the affected classes.
+   */
+  private static void removeEdges(CallGraph cg, SootMethod m, Set<SootClass> affected, Set<SootMethod> recompute) {
+    List<Edge> edges = new ArrayList<Edge>();
+    for (Iterator<Edge> it = cg.edgesInto(m); it.hasNext();) {
+      Edge e = it.next();
+      SootMethod src = e.src();
+      if (src != null && !affected.contains(src.getDeclaringClass())) {
+        recompute.add(src);
+      }
+      edges.add(e);
+    }
+    for (Iterator<Edge> it = cg.edgesOutOf(m); it.hasNext();) {
+      edges.add(it.next());
+    }
+    cg.removeEdges(edges);
+  }
+
+  /**
+   * Finds the reachable methods with virtual calls that may dispatch to a method with one of the given subsignatures.
+   */
+  private static void findVirtualCallers(Set<MethodOrMethodContext> reachable, Set<SootClass> affected,
+      Set<NumberedString> subsignatures, Set<SootMethod> recompute) {
+    for (MethodOrMethodContext momc : reachable) {
+      SootMethod m = momc.method();
+      if (!m.isDeclared() || affected.contains(m.getDeclaringClass()) || !m.hasActiveBody()) {
+        continue;
+      }
+      for (Unit u : m.getActiveBody().getUnits()) {
+        Stmt s = (Stmt) u;
+        if (s.containsInvokeExpr()) {
+          Value ie = s.getInvokeExpr();
+          if (ie instanceof InstanceInvokeExpr && !(ie instanceof SpecialInvokeExpr)
+              && subsignatures.contains(s.getInvokeExpr().getMethodRef().getSubSignature())) {
+            recompute.add(m);
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the edges of the given methods and of all methods that only they make reachable.
+   */
+  private void updateCallGraph(CallGraph cg, final Set<MethodOrMethodContext> previouslyReachable,
+      final Set<SootMethod> recompute) {
+    ReachableMethods reachables = new ReachableMethods(cg, new ArrayList<MethodOrMethodContext>(recompute)) {
+      @Override
+      protected void addMethod(MethodOrMethodContext m) {
+        // The edges of the other methods that were reachable before are still valid
+        if (recompute.contains(m.method()) || !previouslyReachable.contains(m)) {
+          super.addMethod(m);
+        }
+      }
+    };
+    new CallGraphBuilder(DumbPointerAnalysis.v(), cg, reachables).build();
+    scene.releaseReachableMethods();
+    if (Options.v().verbose()) {
+      logger.debug("Recomputed the call edges of " + reachables.size() + " methods");
+    }
+  }
+
+  /**
+   * Removes the members, the hierarchy and the tags of the given class and marks it as unresolved.
+   */
+  protected void unload(SootClass sc) {
+    if (sc.resolvingLevel() >= SootClass.SIGNATURES) {
+      for (SootMethod m : new ArrayList<SootMethod>(sc.getMethods())) {
+        sc.removeMethod(m);
+      }
+      for (SootField f : new ArrayList<SootField>(sc.getFields())) {
+        sc.removeField(f);
+      }
+    }
+    if (sc.resolvingLevel() >= SootClass.HIERARCHY) {
+      for (SootClass i : new ArrayList<SootClass>(sc.getInterfaces())) {
+        sc.removeInterface(i);
+      }
+      sc.setSuperclass(null);
+      sc.setOuterClass(null);
+    }
+    sc.removeAllTags();
+    sc.setResolvingLevel(SootClass.DANGLING);
+  }
+}
@@ -34,6 +34,7 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.Date;
 
+import soot.jimple.cache.BodyCache;
 import soot.options.CGOptions;
 import soot.options.Options;
 import soot.toolkits.astmetrics.ClassData;
@@ -281,6 +282,7 @@ public class Main {
       if (!Options.v().oaat()) {
         PackManager.v().writeOutput();
       }
+      BodyCache.v().flush();
 
       Timers.v().totalTimer.end();
 
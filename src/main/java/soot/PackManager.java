@@ -68,6 +68,7 @@ import soot.grimp.Grimp;
 import soot.grimp.GrimpBody;
 import soot.grimp.toolkits.base.ConstructorFolder;
 import soot.jimple.JimpleBody;
+import soot.jimple.binary.BinaryJimpleWriter;
 import soot.jimple.paddle.PaddleHook;
 import soot.jimple.spark.SparkTransformer;
 import soot.jimple.spark.fieldrw.FieldTagAggregator;
@@ -554,6 +555,13 @@ public class PackManager {
     runBodyPacks(reachableClasses());
   }
 
+  /**
+   * Runs the body packs on the given classes only.
+   */
+  public void runBodyPacks(Collection<SootClass> classes) {
+    runBodyPacks(classes.iterator());
+  }
+
   public JarOutputStream getJarFile() {
     return jarFile;
   }
@@ -659,32 +667,12 @@ public class PackManager {
     if (threadNum < 1) {
       threadNum = Runtime.getRuntime().availableProcessors();
     }
-    CountingThreadPoolExecutor executor =
-        new CountingThreadPoolExecutor(threadNum, threadNum, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 
+    List<BodyPackJob> jobs = new ArrayList<BodyPackJob>();
     while (classes.hasNext()) {
-      final SootClass c = classes.next();
-      executor.execute(() -> runBodyPacks(c));
-    }
-
-    // Wait till all packs have been executed
-    try {
-      executor.awaitCompletion();
-      executor.shutdown();
-    } catch (InterruptedException e) {
-      // Something went horribly wrong
-      throw new RuntimeException("Could not wait for pack threads to finish: " + e.getMessage(), e);
-    }
-
-    // If something went wrong, we tell the world
-    Throwable exception = executor.getException();
-    if (exception != null) {
-      if (exception instanceof RuntimeException) {
-        throw (RuntimeException) exception;
-      } else {
-        throw new RuntimeException(exception);
-      }
+      jobs.add(new BodyPackJob(classes.next()));
     }
+    new BodyPackScheduler(threadNum).run(jobs);
   }
 
   private void handleInnerClasses() {
@@ -877,70 +865,117 @@ public class PackManager {
     }
   }
 
-  @SuppressWarnings("fallthrough")
   private void runBodyPacks(SootClass c) {
-    final int format = Options.v().output_format();
-    if (format == Options.output_format_dava) {
-      logger.debug("Decompiling {}...", c.getName());
-
-      // January 13th, 2006 SootMethodAddedByDava is set to false for
-      // SuperFirstStmtHandler
-      G.v().SootMethodAddedByDava = false;
-    } else {
-      logger.debug("Transforming {}...", c.getName());
+    BodyPackJob job = new BodyPackJob(c);
+    for (SootMethod m : job.start()) {
+      job.apply(m);
     }
+    job.finish();
+  }
 
-    boolean produceBaf = false, produceGrimp = false, produceDava = false, produceJimple = true, produceShimple = false;
+  /**
+   * The body packs to run for a single class. The job is split into {@link #start()}, the transformation of the
+   * individual methods, which may run concurrently unless {@link #isSplittable()} says otherwise, and {@link #finish()},
+   * which must only run once all methods have been transformed.
+   */
+  final class BodyPackJob {
+    private final SootClass c;
+    private final TagCollector tc;
+    private final boolean wholeShimple;
+    private boolean produceBaf = false;
+    private boolean produceGrimp = false;
+    private boolean produceDava = false;
+    private boolean produceJimple = true;
+    private boolean produceShimple = false;
+
+    @SuppressWarnings("fallthrough")
+    BodyPackJob(SootClass c) {
+      this.c = c;
+
+      final int format = Options.v().output_format();
+      switch (format) {
+        case Options.output_format_none:
+        case Options.output_format_xml:
+        case Options.output_format_jimple:
+        case Options.output_format_jimp:
+        case Options.output_format_jimplebin:
+        case Options.output_format_template:
+        case Options.output_format_dex:
+        case Options.output_format_force_dex:
+          break;
+        case Options.output_format_shimp:
+        case Options.output_format_shimple:
+          produceShimple = true;
+          // FLIP produceJimple
+          produceJimple = false;
+          break;
+        case Options.output_format_dava:
+          produceDava = true;
+          // FALL THROUGH
+        case Options.output_format_grimp:
+        case Options.output_format_grimple:
+          produceGrimp = true;
+          break;
+        case Options.output_format_baf:
+        case Options.output_format_b:
+          produceBaf = true;
+          break;
+        case Options.output_format_jasmin:
+        case Options.output_format_class:
+        case Options.output_format_asm:
+          produceGrimp = Options.v().via_grimp();
+          produceBaf = !produceGrimp;
+          break;
+        default:
+          throw new RuntimeException();
+      }
 
-    switch (format) {
-      case Options.output_format_none:
-      case Options.output_format_xml:
-      case Options.output_format_jimple:
-      case Options.output_format_jimp:
-      case Options.output_format_template:
-      case Options.output_format_dex:
-      case Options.output_format_force_dex:
-        break;
-      case Options.output_format_shimp:
-      case Options.output_format_shimple:
+      this.tc = (format != Options.output_format_jimple && Options.v().xml_attributes()) ? new TagCollector() : null;
+
+      this.wholeShimple = Options.v().whole_shimple();
+      if (Options.v().via_shimple()) {
         produceShimple = true;
-        // FLIP produceJimple
-        produceJimple = false;
-        break;
-      case Options.output_format_dava:
-        produceDava = true;
-        // FALL THROUGH
-      case Options.output_format_grimp:
-      case Options.output_format_grimple:
-        produceGrimp = true;
-        break;
-      case Options.output_format_baf:
-      case Options.output_format_b:
-        produceBaf = true;
-        break;
-      case Options.output_format_jasmin:
-      case Options.output_format_class:
-      case Options.output_format_asm:
-        produceGrimp = Options.v().via_grimp();
-        produceBaf = !produceGrimp;
-        break;
-      default:
-        throw new RuntimeException();
+      }
+    }
+
+    SootClass getSootClass() {
+      return c;
     }
 
-    TagCollector tc = (format != Options.output_format_jimple && Options.v().xml_attributes()) ? new TagCollector() : null;
+    /**
+     * Must be called before the first method of this job is transformed.
+     *
+     * @return the methods to pass to {@link #apply(SootMethod)}
+     */
+    List<SootMethod> start() {
+      if (produceDava) {
+        logger.debug("Decompiling {}...", c.getName());
+
+        // January 13th, 2006 SootMethodAddedByDava is set to false for
+        // SuperFirstStmtHandler
+        G.v().SootMethodAddedByDava = false;
+      } else {
+        logger.debug("Transforming {}...", c.getName());
+      }
+
+      // here we create a copy of the methods so that transformers are able
+      // to add method bodies during the following iteration;
+      // such adding of methods happens in rare occasions: for instance when
+      // resolving a method reference to a non-existing method, then this
+      // method is created as a phantom method when phantom-refs are enabled
+      return new ArrayList<SootMethod>(c.getMethods());
+    }
 
-    boolean wholeShimple = Options.v().whole_shimple();
-    if (Options.v().via_shimple()) {
-      produceShimple = true;
+    /**
+     * Dava keeps its state in {@link G} and therefore cannot decompile multiple methods of the same class concurrently.
+     *
+     * @return whether the methods of this job may be transformed concurrently
+     */
+    boolean isSplittable() {
+      return !produceDava;
     }
 
-    // here we create a copy of the methods so that transformers are able
-    // to add method bodies during the following iteration;
-    // such adding of methods happens in rare occasions: for instance when
-    // resolving a method reference to a non-existing method, then this
-    // method is created as a phantom method when phantom-refs are enabled
-    for (SootMethod m : new ArrayList<SootMethod>(c.getMethods())) {
+    void apply(SootMethod m) {
       if (DEBUG) {
         if (!m.getExceptions().isEmpty()) {
           System.out.println("PackManager printing out jimple body exceptions for method " + m.toString() + " "
@@ -949,7 +984,7 @@ public class PackManager {
       }
 
       if (!m.isConcrete()) {
-        continue;
+        return;
       }
 
       if (produceShimple || wholeShimple) {
@@ -959,7 +994,7 @@ public class PackManager {
         {
           Body body = m.retrieveActiveBody();
           if (!m.hasActiveBody()) {
-            continue;
+            return;
           }
           if (body instanceof ShimpleBody) {
             sBody = (ShimpleBody) body;
@@ -1012,35 +1047,37 @@ public class PackManager {
       }
     }
 
-    if (tc != null) {
-      processXMLForClass(c, tc);
-    }
+    void finish() {
+      if (tc != null) {
+        processXMLForClass(c, tc);
+      }
 
-    if (produceDava) {
-      for (SootMethod m : c.getMethods()) {
-        if (!m.isConcrete() || !m.hasActiveBody()) {
-          //note: abnormal class can have a concrete method without body.
-          continue;
+      if (produceDava) {
+        for (SootMethod m : c.getMethods()) {
+          if (!m.isConcrete() || !m.hasActiveBody()) {
+            //note: abnormal class can have a concrete method without body.
+            continue;
+          }
+          // all the work done in decompilation is done in DavaBody which
+          // is invoked from within newBody
+          m.setActiveBody(Dava.v().newBody(m.getActiveBody()));
         }
-        // all the work done in decompilation is done in DavaBody which
-        // is invoked from within newBody
-        m.setActiveBody(Dava.v().newBody(m.getActiveBody()));
-      }
 
-      /*
-       * January 13th, 2006 SuperFirstStmtHandler might have set SootMethodAddedByDava if it needs to create a new method.
-       */
-      // could use G to add new method...................
-      if (G.v().SootMethodAddedByDava) {
-        // System.out.println("PACKMANAGER SAYS:----------------Have to
-        // add the new method(s)");
-        for (SootMethod m : G.v().SootMethodsAdded) {
-          c.addMethod(m);
+        /*
+         * January 13th, 2006 SuperFirstStmtHandler might have set SootMethodAddedByDava if it needs to create a new method.
+         */
+        // could use G to add new method...................
+        if (G.v().SootMethodAddedByDava) {
+          // System.out.println("PACKMANAGER SAYS:----------------Have to
+          // add the new method(s)");
+          for (SootMethod m : G.v().SootMethodsAdded) {
+            c.addMethod(m);
+          }
+          G.v().SootMethodsAdded = new ArrayList<SootMethod>();
+          G.v().SootMethodAddedByDava = false;
         }
-        G.v().SootMethodsAdded = new ArrayList<SootMethod>();
-        G.v().SootMethodAddedByDava = false;
-      }
-    } // end if produceDava
+      } // end if produceDava
+    }
   }
 
   public BafBody convertJimpleBodyToBaf(SootMethod m) {
@@ -1072,6 +1109,7 @@ public class PackManager {
         dexPrinter.add(c);
         return;
       case Options.output_format_jimple:
+      case Options.output_format_jimplebin:
         // Create code assignments for those values we only have in code assignments
         if (!c.isPhantom) {
           ConstantValueToInitializerTransformer.v().transformClass(c);
@@ -1152,6 +1190,13 @@ public class PackManager {
       case Options.output_format_asm:
         createASMBackend(c).generateTextualRepresentation(writerOut);
         break;
+      case Options.output_format_jimplebin:
+        try {
+          new BinaryJimpleWriter().write(c, streamOut);
+        } catch (IOException e) {
+          throw new CompilationDeathException("Cannot output file " + fileName, e);
+        }
+        break;
       default:
         throw new RuntimeException();
     }
@@ -1237,8 +1282,10 @@ public class PackManager {
   }
 
   private void retrieveAllBodies() {
-    // The old coffi front-end is not thread-safe
-    int threadNum = Options.v().coffi() ? 1 : Runtime.getRuntime().availableProcessors();
+    int threadNum = Options.v().num_threads();
+    if (threadNum < 1) {
+      threadNum = Runtime.getRuntime().availableProcessors();
+    }
     CountingThreadPoolExecutor executor =
         new CountingThreadPoolExecutor(threadNum, threadNum, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 
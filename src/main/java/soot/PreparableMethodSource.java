@@ -0,0 +1,42 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * A method source that can do part of the work of {@link #getBody(SootMethod, String)} ahead of time, while classes are still
+ * being resolved. {@link #prepare(SootMethod)} may only do work that does not depend on the class hierarchy, such as
+ * decoding the instructions or building naive Jimple. Everything else, in particular the jb pack, is left to
+ * {@link #getBody(SootMethod, String)}, which uses the prepared state if there is any.
+ *
+ * @see SootResolver
+ */
+public interface PreparableMethodSource extends MethodSource {
+  /**
+   * Prepares the body of the given method. This method may be called on any thread, concurrently with the resolver and with
+   * other method sources. It is best-effort: if preparing fails, {@link #getBody(SootMethod, String)} has to start over and
+   * report the error.
+   *
+   * @return true if the body has been prepared by this call
+   */
+  public boolean prepare(SootMethod m);
+}
@@ -26,9 +26,19 @@ package soot;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +69,20 @@ public class SootResolver {
 
   private Program program = null;
 
+  /** Class sources that are being looked up and read ahead of the worklist, see {@link #prefetchClassSources(Deque)}. */
+  private final Map<String, Future<ClassSource>> prefetchedSources = new HashMap<String, Future<ClassSource>>();
+
+  private ThreadPoolExecutor prefetchExecutor = null;
+
+  /** Builds bodies of classes that have reached BODIES, see {@link #prepareBodies(SootClass)}. */
+  private ThreadPoolExecutor bodyExecutor = null;
+
+  /** Number of class sources taken from the prefetched sources, for statistics. */
+  int prefetchedSourcesUsed = 0;
+
+  /** Number of bodies prepared ahead of time, for statistics. */
+  final AtomicInteger preparedBodies = new AtomicInteger();
+
   public SootResolver(Singletons.Global g) {
     worklist[SootClass.HIERARCHY] = new ArrayDeque<SootClass>();
     worklist[SootClass.SIGNATURES] = new ArrayDeque<SootClass>();
@@ -152,6 +176,7 @@ public class SootResolver {
       processResolveWorklist();
       return resolvedClass;
     } catch (SootClassNotFoundException e) {
+      prefetchedSources.clear();
       // remove unresolved class and rethrow
       if (resolvedClass != null) {
         assert (resolvedClass.resolvingLevel() == SootClass.DANGLING);
@@ -166,10 +191,14 @@ public class SootResolver {
     final Scene scene = Scene.v();
     final boolean resolveEverything = resolveEverything();
     final boolean no_bodies_for_excluded = Options.v().no_bodies_for_excluded();
+    final boolean prefetch = prefetchClassSources();
     for (int i = SootClass.BODIES; i >= SootClass.HIERARCHY; i--) {
       Deque<SootClass> currWorklist = worklist[i];
       while (!currWorklist.isEmpty()) {
         SootClass sc = currWorklist.pop();
+        if (prefetch) {
+          prefetchClassSources(currWorklist);
+        }
         if (resolveEverything) {
           // Whole program mode
           boolean onlySignatures = sc.isPhantom()
@@ -204,6 +233,75 @@ public class SootResolver {
       // never shrink the backing array, leaving a possibly large memory leak.
       worklist[i] = new ArrayDeque<SootClass>(0);
     }
+    // Sources of classes that were resolved through another path before
+    // they were popped from the worklist are not needed anymore
+    prefetchedSources.clear();
+  }
+
+  /** Returns true if class sources should be prefetched ahead of the worklist. */
+  protected boolean prefetchClassSources() {
+    final Options opts = Options.v();
+    if (!opts.prefetch_class_sources() || opts.coffi() || ModuleUtil.module_mode()) {
+      return false;
+    }
+    switch (opts.src_prec()) {
+      case Options.src_prec_class:
+      case Options.src_prec_only_class:
+        return true;
+      default:
+        // The other front ends are not safe to be used from multiple threads
+        return false;
+    }
+  }
+
+  /**
+   * Starts looking up and reading the sources of the classes at the head of the given worklist on background threads, so
+   * that they are available in memory by the time {@link #bringToHierarchyUnchecked(SootClass)} needs them. Only a bounded
+   * window of classes is prefetched to limit the memory held by sources that have been read but not yet resolved.
+   */
+  private void prefetchClassSources(Deque<SootClass> currWorklist) {
+    if (prefetchExecutor == null) {
+      prefetchExecutor = newDaemonExecutor("Soot class source prefetcher");
+    }
+
+    final SourceLocator locator = SourceLocator.v();
+    int window = prefetchExecutor.getMaximumPoolSize() * 4;
+    for (SootClass sc : currWorklist) {
+      if (window-- <= 0) {
+        break;
+      }
+      final String className = sc.getName();
+      if (sc.resolvingLevel() == SootClass.DANGLING && !prefetchedSources.containsKey(className)) {
+        prefetchedSources.put(className, prefetchExecutor.submit(() -> {
+          ClassSource source = locator.getClassSource(className);
+          if (source != null) {
+            source.prefetch();
+          }
+          return source;
+        }));
+      }
+    }
+  }
+
+  /**
+   * Returns the class source for the given class, either from the prefetched sources or by looking it up in the
+   * {@link SourceLocator}.
+   */
+  private ClassSource getClassSource(String className) {
+    Future<ClassSource> prefetched = prefetchedSources.remove(className);
+    if (prefetched != null) {
+      try {
+        ClassSource source = prefetched.get();
+        prefetchedSourcesUsed++;
+        return source;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        // Look the class up again so that errors are reported in the usual way
+        logger.debug("Prefetching the source of " + className + " failed", e.getCause());
+      }
+    }
+    return SourceLocator.v().getClassSource(className);
   }
 
   protected void addToResolveWorklist(Type type, int level) {
@@ -247,7 +345,7 @@ public class SootResolver {
       is = ModulePathSourceLocator.v().getClassSource(className,
           com.google.common.base.Optional.fromNullable(sc.moduleName));
     } else {
-      is = SourceLocator.v().getClassSource(className);
+      is = getClassSource(className);
     }
     try {
       boolean modelAsPhantomRef = (is == null);
@@ -354,6 +452,56 @@ public class SootResolver {
     sc.setResolvingLevel(SootClass.BODIES);
 
     bringToBodiesUnchecked(sc);
+    if (Options.v().pipeline_bodies()) {
+      prepareBodies(sc);
+    }
+  }
+
+  /**
+   * Starts building the bodies of the given class on background threads, as far as this is possible before the class
+   * hierarchy is complete, see {@link PreparableMethodSource}. All classes the bodies refer to have been added to the Scene
+   * by {@link #bringToBodiesUnchecked(SootClass)} at this point, so preparing a body never has to create classes. The rest
+   * of the work, in particular the jb pack, happens when the body is retrieved.
+   */
+  protected void prepareBodies(SootClass sc) {
+    final List<SootMethod> methods = new ArrayList<SootMethod>();
+    for (SootMethod m : sc.getMethods()) {
+      if (m.isConcrete() && m.getSource() instanceof PreparableMethodSource) {
+        methods.add(m);
+      }
+    }
+    if (methods.isEmpty()) {
+      return;
+    }
+    if (bodyExecutor == null) {
+      bodyExecutor = newDaemonExecutor("Soot body preparer");
+    }
+    bodyExecutor.execute(() -> {
+      for (SootMethod m : methods) {
+        MethodSource ms = m.getSource();
+        if (ms instanceof PreparableMethodSource && ((PreparableMethodSource) ms).prepare(m)) {
+          preparedBodies.incrementAndGet();
+        }
+      }
+    });
+  }
+
+  private static ThreadPoolExecutor newDaemonExecutor(final String name) {
+    int threadNum = Options.v().num_threads();
+    if (threadNum < 1) {
+      threadNum = Runtime.getRuntime().availableProcessors();
+    }
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threadNum, threadNum, 1, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   protected void bringToBodiesUnchecked(SootClass sc) {
@@ -50,6 +50,7 @@ import soot.JavaClassProvider.JarException;
 import soot.asm.AsmClassProvider;
 import soot.asm.AsmJava9ClassProvider;
 import soot.dexpler.DexFileProvider;
+import soot.jimple.binary.BinaryJimple;
 import soot.options.Options;
 
 /**
@@ -263,6 +264,11 @@ public class SourceLocator {
         classProviders.add(classFileClassProvider);
         classProviders.add(new JavaClassProvider());
         break;
+      case Options.src_prec_jimplebin:
+        classProviders.add(new BinaryJimpleClassProvider());
+        classProviders.add(classFileClassProvider);
+        classProviders.add(new JimpleClassProvider());
+        break;
       case Options.src_prec_apk:
         classProviders.add(new DexClassProvider());
         classProviders.add(classFileClassProvider);
@@ -350,7 +356,8 @@ public class SourceLocator {
         for (Enumeration<? extends ZipEntry> entries = archive.entries(); entries.hasMoreElements();) {
           ZipEntry entry = entries.nextElement();
           String entryName = entry.getName();
-          if (entryName.endsWith(".class") || entryName.endsWith(".jimple")) {
+          if (entryName.endsWith(".class") || entryName.endsWith(".jimple")
+              || entryName.endsWith(BinaryJimple.FILE_EXTENSION)) {
             int extensionIndex = entryName.lastIndexOf('.');
             entryName = entryName.substring(0, extensionIndex);
             entryName = entryName.replace('/', '.');
@@ -401,6 +408,9 @@ public class SourceLocator {
           } else if (fileName.endsWith(".jimple")) {
             int index = fileName.lastIndexOf(".jimple");
             classes.add(prefix + fileName.substring(0, index));
+          } else if (fileName.endsWith(BinaryJimple.FILE_EXTENSION)) {
+            int index = fileName.lastIndexOf(BinaryJimple.FILE_EXTENSION);
+            classes.add(prefix + fileName.substring(0, index));
           } else if (fileName.endsWith(".java")) {
             int index = fileName.lastIndexOf(".java");
             classes.add(prefix + fileName.substring(0, index));
@@ -546,6 +556,8 @@ public class SourceLocator {
         return ".java";
       case Options.output_format_asm:
         return ".asm";
+      case Options.output_format_jimplebin:
+        return BinaryJimple.FILE_EXTENSION;
       default:
         throw new RuntimeException();
     }
@@ -22,6 +22,8 @@ package soot.asm;
  * #L%
  */
 
+import com.google.common.io.ByteStreams;
+
 import java.io.IOException;
 import java.io.InputStream;
 import org.objectweb.asm.ClassReader;
@@ -30,6 +32,7 @@ import soot.FoundFile;
 import soot.SootClass;
 import soot.SootResolver;
 import soot.javaToJimple.IInitialResolver.Dependencies;
+import soot.jimple.cache.BodyCache;
 
 /**
  * ASM class source implementation.
@@ -40,6 +43,11 @@ public class AsmClassSource extends ClassSource {
 
   protected FoundFile foundFile;
 
+  /**
+   * The contents of the class file if it has been read by {@link #prefetch()}.
+   */
+  private volatile byte[] data;
+
   /**
    * Constructs a new ASM class source.
    * 
@@ -56,14 +64,44 @@ public class AsmClassSource extends ClassSource {
     this.foundFile = foundFile;
   }
 
+  @Override
+  public void prefetch() {
+    if (data != null || foundFile == null) {
+      return;
+    }
+    try (InputStream d = foundFile.inputStream()) {
+      data = ByteStreams.toByteArray(d);
+    } catch (IOException e) {
+      throw new RuntimeException("Error: Failed to read class source.", e);
+    } finally {
+      close();
+    }
+  }
+
   @Override
   public Dependencies resolve(SootClass sc) {
     InputStream d = null;
     try {
-      d = foundFile.inputStream();
-      ClassReader clsr = new ClassReader(d);
+      final boolean useCache = BodyCache.v().isEnabled();
+      byte[] bytes = data;
+      data = null;
+      if (bytes == null && useCache) {
+        // The cache key is computed from the class file contents
+        d = foundFile.inputStream();
+        bytes = ByteStreams.toByteArray(d);
+      }
+      ClassReader clsr;
+      if (bytes != null) {
+        clsr = new ClassReader(bytes);
+      } else {
+        d = foundFile.inputStream();
+        clsr = new ClassReader(d);
+      }
       SootClassBuilder scb = new SootClassBuilder(sc);
       clsr.accept(scb, ClassReader.SKIP_FRAMES);
+      if (useCache) {
+        BodyCache.v().attach(sc, bytes);
+      }
       Dependencies deps = new Dependencies();
       deps.typesToSignature.addAll(scb.deps);
       // add the outer class information, could not be called in the builder, since sc needs to be
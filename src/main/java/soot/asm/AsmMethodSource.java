@@ -231,12 +231,12 @@ import soot.IntType;
 import soot.LambdaMetaFactory;
 import soot.Local;
 import soot.LongType;
-import soot.MethodSource;
 import soot.Modifier;
 import soot.ModuleScene;
 import soot.ModuleUtil;
 import soot.PackManager;
 import soot.PhaseOptions;
+import soot.PreparableMethodSource;
 import soot.RefType;
 import soot.Scene;
 import soot.ShortType;
@@ -300,7 +300,7 @@ import soot.util.Chain;
  *
  * @author Aaloan Miftah
  */
-public class AsmMethodSource implements MethodSource {
+public class AsmMethodSource implements PreparableMethodSource {
   private static final Logger logger = LoggerFactory.getLogger(AsmMethodSource.class);
 
   private static final Operand DWORD_DUMMY = new Operand(null, null);
@@ -336,6 +336,10 @@ public class AsmMethodSource implements MethodSource {
   private Table<AbstractInsnNode, AbstractInsnNode, Edge> edges;
   private ArrayDeque<Edge> conversionWorklist;
 
+  /* -pipelining- */
+  private JimpleBody prepared;
+  private boolean retrieved = false;
+
   public AsmMethodSource(int maxLocals, InsnList insns, List<LocalVariableNode> localVars,
       List<TryCatchBlockNode> tryCatchBlocks, String module) {
     this.maxLocals = maxLocals;
@@ -2224,10 +2228,53 @@ public class AsmMethodSource implements MethodSource {
   }
 
   @Override
-  public Body getBody(SootMethod m, String phaseName) {
+  public synchronized boolean prepare(SootMethod m) {
+    if (prepared != null || retrieved || !m.isConcrete() || instructions == null || instructions.size() == 0) {
+      return false;
+    }
+    // Lambdas are translated into classes that are added to the Scene,
+    // which must not happen while the resolver is running
+    for (Iterator<AbstractInsnNode> it = instructions.iterator(); it.hasNext();) {
+      if (it.next() instanceof InvokeDynamicInsnNode) {
+        return false;
+      }
+    }
+    try {
+      prepared = buildJimple(m);
+      return true;
+    } catch (RuntimeException e) {
+      // getBody() converts the method again and reports the error
+      logger.debug("Could not prepare the body of " + m.getSignature() + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public synchronized Body getBody(SootMethod m, String phaseName) {
     if (!m.isConcrete() || instructions == null || instructions.size() == 0) {
       return null;
     }
+    retrieved = true;
+    JimpleBody jb = prepared;
+    prepared = null;
+    if (jb == null) {
+      jb = buildJimple(m);
+    }
+
+    try {
+      PackManager.v().getPack("jb").apply(jb);
+    } catch (Throwable t) {
+      throw new RuntimeException("Failed to apply jb to " + m, t);
+    }
+
+    return jb;
+  }
+
+  /**
+   * Converts the bytecode into naive Jimple, i.e., everything {@link #getBody(SootMethod, String)} does before it applies the
+   * jb pack. This does not depend on the class hierarchy.
+   */
+  private JimpleBody buildJimple(SootMethod m) {
     final Jimple jimp = Jimple.v();
     final JimpleBody jb = jimp.newBody(m);
     /* initialize */
@@ -2238,6 +2285,8 @@ public class AsmMethodSource implements MethodSource {
     units = new LinkedHashMap<AbstractInsnNode, Unit>(nrInsn);
     frames = new LinkedHashMap<AbstractInsnNode, StackFrame>(nrInsn);
     trapHandlers = LinkedListMultimap.create(tryCatchBlocks.size());
+    inlineExceptionLabels.clear();
+    inlineExceptionHandlers.clear();
     body = jb;
     /* retrieve all trap handlers */
     for (TryCatchBlockNode tc : tryCatchBlocks) {
@@ -2275,13 +2324,6 @@ public class AsmMethodSource implements MethodSource {
     // b = (B) a;
     // return b;
     castAndReturnInliner.transform(jb);
-
-    try {
-      PackManager.v().getPack("jb").apply(jb);
-    } catch (Throwable t) {
-      throw new RuntimeException("Failed to apply jb to " + m, t);
-    }
-
     return jb;
   }
 
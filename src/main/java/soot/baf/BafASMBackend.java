@@ -280,7 +280,7 @@ public class BafASMBackend extends AbstractASMBackend {
    *          The unit for which to write out the tags
    */
   protected void generateTagsForUnit(MethodVisitor mv, Unit u) {
-    LineNumberTag lnt = (LineNumberTag) u.getTag(LineNumberTag.NAME);
+    LineNumberTag lnt = u.getTag(LineNumberTag.KEY);
     if (lnt != null) {
       Label l;
       if (branchTargetLabels.containsKey(u)) {
@@ -51,73 +51,78 @@ public class CoffiMethodSource implements MethodSource {
   public Body getBody(SootMethod m, String phaseName) {
     JimpleBody jb = Jimple.v().newBody(m);
 
-    Map options = PhaseOptions.v().getPhaseOptions(phaseName);
-    boolean useOriginalNames = PhaseOptions.getBoolean(options, "use-original-names");
-
-    if (useOriginalNames) {
-      soot.coffi.Util.v().setFaithfulNaming(true);
-    }
-
-    /*
-     * I need to set these to null to free Coffi structures. fileBody.coffiClass = null; bafBody.coffiMethod = null;
-     * 
-     */
-    if (Options.v().verbose()) {
-      logger.debug("[" + m.getName() + "] Constructing JimpleBody from coffi...");
-    }
+    // coffi keeps the state of the conversion in singletons such as Util,
+    // so only one method is converted at a time. The jb pack runs outside
+    // of the lock.
+    synchronized (soot.coffi.Util.v()) {
+      Map options = PhaseOptions.v().getPhaseOptions(phaseName);
+      boolean useOriginalNames = PhaseOptions.getBoolean(options, "use-original-names");
+
+      if (useOriginalNames) {
+        soot.coffi.Util.v().setFaithfulNaming(true);
+      }
 
-    if (m.isAbstract() || m.isNative() || m.isPhantom()) {
-      return jb;
-    }
+      /*
+       * I need to set these to null to free Coffi structures. fileBody.coffiClass = null; bafBody.coffiMethod = null;
+       * 
+       */
+      if (Options.v().verbose()) {
+        logger.debug("[" + m.getName() + "] Constructing JimpleBody from coffi...");
+      }
 
-    if (Options.v().time()) {
-      Timers.v().conversionTimer.start();
-    }
+      if (m.isAbstract() || m.isNative() || m.isPhantom()) {
+        return jb;
+      }
 
-    if (coffiMethod.instructions == null) {
-      if (Options.v().verbose()) {
-        logger.debug("[" + m.getName() + "]     Parsing Coffi instructions...");
+      if (Options.v().time()) {
+        Timers.v().conversionTimer.start();
       }
 
-      coffiClass.parseMethod(coffiMethod);
-    }
+      if (coffiMethod.instructions == null) {
+        if (Options.v().verbose()) {
+          logger.debug("[" + m.getName() + "]     Parsing Coffi instructions...");
+        }
 
-    if (coffiMethod.cfg == null) {
-      if (Options.v().verbose()) {
-        logger.debug("[" + m.getName() + "]     Building Coffi CFG...");
+        coffiClass.parseMethod(coffiMethod);
       }
 
-      new soot.coffi.CFG(coffiMethod);
+      if (coffiMethod.cfg == null) {
+        if (Options.v().verbose()) {
+          logger.debug("[" + m.getName() + "]     Building Coffi CFG...");
+        }
+
+        new soot.coffi.CFG(coffiMethod);
 
-      // if just computing metrics, we don't need to actually return body
-      if (soot.jbco.Main.metrics) {
-        return null;
+        // if just computing metrics, we don't need to actually return body
+        if (soot.jbco.Main.metrics) {
+          return null;
+        }
       }
-    }
 
-    if (Options.v().verbose()) {
-      logger.debug("[" + m.getName() + "]     Producing naive Jimple...");
-    }
+      if (Options.v().verbose()) {
+        logger.debug("[" + m.getName() + "]     Producing naive Jimple...");
+      }
 
-    boolean oldPhantomValue = Scene.v().getPhantomRefs();
+      boolean oldPhantomValue = Scene.v().getPhantomRefs();
 
-    Scene.v().setPhantomRefs(true);
-    coffiMethod.cfg.jimplify(coffiClass.constant_pool, coffiClass.this_class, coffiClass.bootstrap_methods_attribute, jb);
-    Scene.v().setPhantomRefs(oldPhantomValue);
+      Scene.v().setPhantomRefs(true);
+      coffiMethod.cfg.jimplify(coffiClass.constant_pool, coffiClass.this_class, coffiClass.bootstrap_methods_attribute, jb);
+      Scene.v().setPhantomRefs(oldPhantomValue);
 
-    if (Options.v().time()) {
-      Timers.v().conversionTimer.end();
-    }
+      if (Options.v().time()) {
+        Timers.v().conversionTimer.end();
+      }
 
-    coffiMethod.instructions = null;
-    coffiMethod.cfg = null;
-    coffiMethod.attributes = null;
-    coffiMethod.code_attr = null;
-    coffiMethod.jmethod = null;
-    coffiMethod.instructionList = null;
+      coffiMethod.instructions = null;
+      coffiMethod.cfg = null;
+      coffiMethod.attributes = null;
+      coffiMethod.code_attr = null;
+      coffiMethod.jmethod = null;
+      coffiMethod.instructionList = null;
 
-    coffiMethod = null;
-    coffiClass = null;
+      coffiMethod = null;
+      coffiClass = null;
+    }
 
     PackManager.v().getPack("jb").apply(jb);
     return jb;
@@ -123,7 +123,8 @@ public class Util {
     return useFaithfulNaming;
   }
 
-  public void resolveFromClassFile(SootClass aClass, InputStream is, String filePath, Collection<Type> references) {
+  public synchronized void resolveFromClassFile(SootClass aClass, InputStream is, String filePath,
+      Collection<Type> references) {
     SootClass bclass = aClass;
     String className = bclass.getName();
     ClassFile coffiClass = new ClassFile(className);
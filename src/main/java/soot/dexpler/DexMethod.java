@@ -44,6 +44,7 @@ import org.slf4j.LoggerFactory;
 import soot.Body;
 import soot.MethodSource;
 import soot.Modifier;
+import soot.PreparableMethodSource;
 import soot.Scene;
 import soot.SootClass;
 import soot.SootMethod;
@@ -109,14 +110,34 @@ public class DexMethod {
   }
 
   protected MethodSource createMethodSource(final Method method) {
-    return new MethodSource() {
+    return new PreparableMethodSource() {
+      private DexBody prepared;
+      private boolean retrieved = false;
 
       @Override
-      public Body getBody(SootMethod m, String phaseName) {
+      public synchronized boolean prepare(SootMethod m) {
+        if (prepared != null || retrieved) {
+          return false;
+        }
+        try {
+          // Decoding the instructions does not depend on the class hierarchy
+          prepared = new DexBody(dexEntry, method, declaringClass.getType());
+          return true;
+        } catch (RuntimeException e) {
+          // getBody() decodes the method again and reports the error
+          logger.debug("Could not prepare the body of " + m.getSignature() + ": " + e.getMessage());
+          return false;
+        }
+      }
+
+      @Override
+      public synchronized Body getBody(SootMethod m, String phaseName) {
+        retrieved = true;
         Body b = Jimple.v().newBody(m);
         try {
           // add the body of this code item
-          DexBody dexBody = new DexBody(dexEntry, method, declaringClass.getType());
+          DexBody dexBody = prepared != null ? prepared : new DexBody(dexEntry, method, declaringClass.getType());
+          prepared = null;
           dexBody.jimplify(b, m);
         } catch (InvalidDalvikBytecodeException e) {
           String msg = "Warning: Invalid bytecode in method " + m + ": " + e;
@@ -53,7 +53,7 @@ public class LineNumberGenerator {
     protected void internalTransform(Body b, String phaseName, Map<String, String> options) {
       System.out.println("Printing Line Numbers for: " + b.getMethod().getSignature());
       for (Unit u : b.getUnits()) { // for each jimple statement or baf instruction
-        LineNumberTag tag = (LineNumberTag) u.getTag(LineNumberTag.NAME);
+        LineNumberTag tag = u.getTag(LineNumberTag.KEY);
         if (tag != null) {
           // see if a LineNumberTag exists (it will if you use -keep-line-number)
           System.out.println(u + " has Line Number: " + tag.getLineNumber()); // print out the unit and line number
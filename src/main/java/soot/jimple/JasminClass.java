@@ -1161,7 +1161,7 @@ public class JasminClass extends AbstractJasminClass {
   }
 
   void emitStmt(Stmt stmt) {
-    LineNumberTag lnTag = (LineNumberTag) stmt.getTag(LineNumberTag.NAME);
+    LineNumberTag lnTag = stmt.getTag(LineNumberTag.KEY);
     if (lnTag != null) {
       emit(".line " + lnTag.getLineNumber());
     }
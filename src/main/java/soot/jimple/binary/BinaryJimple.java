@@ -0,0 +1,149 @@
+package soot.jimple.binary;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * Constants of the binary Jimple format.
+ *
+ * <p>
+ * A binary Jimple file holds a single class. It starts with {@link #MAGIC} and {@link #VERSION}, followed by a constant
+ * pool and the class itself. The pool interns all strings, types, field references and method references of the class;
+ * everything after the pool refers to pool entries by their index. Every method body is stored as a length-prefixed block
+ * of opcodes, so that a reader can skip bodies and decode them only when they are needed. Within a body, locals and units
+ * are referred to by their index in the body.
+ * </p>
+ */
+public final class BinaryJimple {
+
+  /**
+   * The first four bytes of every binary Jimple file, "JIMB".
+   */
+  public static final int MAGIC = 0x4A494D42;
+
+  /**
+   * The version of the format. Readers reject files with a different version.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * The extension of binary Jimple files.
+   */
+  public static final String FILE_EXTENSION = ".jimplebin";
+
+  // Constant pool entries
+  static final byte POOL_STRING = 1;
+  static final byte POOL_TYPE = 2;
+  static final byte POOL_FIELD_REF = 3;
+  static final byte POOL_METHOD_REF = 4;
+
+  // Types
+  static final byte TYPE_BOOLEAN = 1;
+  static final byte TYPE_BYTE = 2;
+  static final byte TYPE_CHAR = 3;
+  static final byte TYPE_SHORT = 4;
+  static final byte TYPE_INT = 5;
+  static final byte TYPE_LONG = 6;
+  static final byte TYPE_FLOAT = 7;
+  static final byte TYPE_DOUBLE = 8;
+  static final byte TYPE_VOID = 9;
+  static final byte TYPE_NULL = 10;
+  static final byte TYPE_REF = 11;
+  static final byte TYPE_ARRAY = 12;
+  static final byte TYPE_UNKNOWN = 13;
+
+  // Statements
+  static final byte STMT_NOP = 1;
+  static final byte STMT_BREAKPOINT = 2;
+  static final byte STMT_ASSIGN = 3;
+  static final byte STMT_IDENTITY = 4;
+  static final byte STMT_INVOKE = 5;
+  static final byte STMT_IF = 6;
+  static final byte STMT_GOTO = 7;
+  static final byte STMT_TABLESWITCH = 8;
+  static final byte STMT_LOOKUPSWITCH = 9;
+  static final byte STMT_RETURN = 10;
+  static final byte STMT_RETURN_VOID = 11;
+  static final byte STMT_THROW = 12;
+  static final byte STMT_ENTERMONITOR = 13;
+  static final byte STMT_EXITMONITOR = 14;
+  static final byte STMT_RET = 15;
+
+  // Immediates
+  static final byte VALUE_LOCAL = 1;
+  static final byte VALUE_NULL = 2;
+  static final byte VALUE_INT = 3;
+  static final byte VALUE_LONG = 4;
+  static final byte VALUE_FLOAT = 5;
+  static final byte VALUE_DOUBLE = 6;
+  static final byte VALUE_STRING = 7;
+  static final byte VALUE_CLASS = 8;
+  static final byte VALUE_METHOD_HANDLE = 9;
+  static final byte VALUE_METHOD_TYPE = 10;
+
+  // Binary expressions
+  static final byte VALUE_ADD = 20;
+  static final byte VALUE_SUB = 21;
+  static final byte VALUE_MUL = 22;
+  static final byte VALUE_DIV = 23;
+  static final byte VALUE_REM = 24;
+  static final byte VALUE_AND = 25;
+  static final byte VALUE_OR = 26;
+  static final byte VALUE_XOR = 27;
+  static final byte VALUE_SHL = 28;
+  static final byte VALUE_SHR = 29;
+  static final byte VALUE_USHR = 30;
+  static final byte VALUE_CMP = 31;
+  static final byte VALUE_CMPG = 32;
+  static final byte VALUE_CMPL = 33;
+  static final byte VALUE_EQ = 34;
+  static final byte VALUE_NE = 35;
+  static final byte VALUE_GE = 36;
+  static final byte VALUE_GT = 37;
+  static final byte VALUE_LE = 38;
+  static final byte VALUE_LT = 39;
+
+  // Other expressions
+  static final byte VALUE_NEG = 40;
+  static final byte VALUE_LENGTH = 41;
+  static final byte VALUE_CAST = 42;
+  static final byte VALUE_INSTANCEOF = 43;
+  static final byte VALUE_NEW = 44;
+  static final byte VALUE_NEWARRAY = 45;
+  static final byte VALUE_NEWMULTIARRAY = 46;
+  static final byte VALUE_VIRTUALINVOKE = 47;
+  static final byte VALUE_SPECIALINVOKE = 48;
+  static final byte VALUE_INTERFACEINVOKE = 49;
+  static final byte VALUE_STATICINVOKE = 50;
+  static final byte VALUE_DYNAMICINVOKE = 51;
+
+  // References
+  static final byte VALUE_ARRAY_REF = 60;
+  static final byte VALUE_INSTANCE_FIELD_REF = 61;
+  static final byte VALUE_STATIC_FIELD_REF = 62;
+  static final byte VALUE_PARAMETER_REF = 63;
+  static final byte VALUE_THIS_REF = 64;
+  static final byte VALUE_CAUGHT_EXCEPTION_REF = 65;
+
+  private BinaryJimple() {
+  }
+}
@@ -0,0 +1,108 @@
+package soot.jimple.binary;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitive encodings written by {@link BinaryJimpleOutput} from a byte array.
+ */
+class BinaryJimpleInput {
+  private final byte[] data;
+  private final int end;
+  private int pos;
+
+  BinaryJimpleInput(byte[] data) {
+    this(data, 0, data.length);
+  }
+
+  BinaryJimpleInput(byte[] data, int offset, int length) {
+    this.data = data;
+    this.pos = offset;
+    this.end = offset + length;
+  }
+
+  int position() {
+    return pos;
+  }
+
+  void skip(int n) throws IOException {
+    if (n < 0 || end - pos < n) {
+      throw new EOFException();
+    }
+    pos += n;
+  }
+
+  int readByte() throws IOException {
+    if (pos >= end) {
+      throw new EOFException();
+    }
+    return data[pos++];
+  }
+
+  boolean readBoolean() throws IOException {
+    return readByte() != 0;
+  }
+
+  int readVarInt() throws IOException {
+    int v = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = readByte();
+      v |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return v;
+      }
+    }
+    throw new IOException("Malformed variable-length integer");
+  }
+
+  int readSignedVarInt() throws IOException {
+    int v = readVarInt();
+    return (v >>> 1) ^ -(v & 1);
+  }
+
+  int readInt() throws IOException {
+    return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16) | ((readByte() & 0xFF) << 8) | (readByte() & 0xFF);
+  }
+
+  long readLong() throws IOException {
+    return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+  }
+
+  float readFloat() throws IOException {
+    return Float.intBitsToFloat(readInt());
+  }
+
+  double readDouble() throws IOException {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  String readString() throws IOException {
+    int length = readVarInt();
+    int start = pos;
+    skip(length);
+    return new String(data, start, length, StandardCharsets.UTF_8);
+  }
+}
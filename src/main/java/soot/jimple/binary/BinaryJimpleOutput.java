@@ -0,0 +1,91 @@
+package soot.jimple.binary;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A growable byte buffer with the primitive encodings of the binary Jimple format. Counts and indices are written as
+ * unsigned variable-length integers, i.e., seven bits per byte with the high bit set on all but the last byte, so that the
+ * common small values take a single byte.
+ */
+class BinaryJimpleOutput extends ByteArrayOutputStream {
+
+  BinaryJimpleOutput() {
+    super(256);
+  }
+
+  void writeByte(int v) {
+    write(v);
+  }
+
+  void writeBoolean(boolean v) {
+    write(v ? 1 : 0);
+  }
+
+  void writeVarInt(int v) {
+    while ((v & ~0x7F) != 0) {
+      write((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    write(v);
+  }
+
+  /**
+   * Writes a signed integer with zig-zag encoding, so that small negative numbers are as short as small positive ones.
+   */
+  void writeSignedVarInt(int v) {
+    writeVarInt((v << 1) ^ (v >> 31));
+  }
+
+  void writeInt(int v) {
+    write(v >>> 24);
+    write(v >>> 16);
+    write(v >>> 8);
+    write(v);
+  }
+
+  void writeLong(long v) {
+    writeInt((int) (v >>> 32));
+    writeInt((int) v);
+  }
+
+  void writeFloat(float v) {
+    writeInt(Float.floatToRawIntBits(v));
+  }
+
+  void writeDouble(double v) {
+    writeLong(Double.doubleToRawLongBits(v));
+  }
+
+  void writeString(String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(bytes.length);
+    write(bytes, 0, bytes.length);
+  }
+
+  void writeBytes(BinaryJimpleOutput other) {
+    write(other.buf, 0, other.count);
+  }
+}
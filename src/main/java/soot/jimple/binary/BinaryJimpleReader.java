@@ -0,0 +1,790 @@
+package soot.jimple.binary;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static soot.jimple.binary.BinaryJimple.*;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soot.ArrayType;
+import soot.BooleanType;
+import soot.ByteType;
+import soot.CharType;
+import soot.DoubleType;
+import soot.FloatType;
+import soot.IntType;
+import soot.Local;
+import soot.LongType;
+import soot.NullType;
+import soot.RefType;
+import soot.Scene;
+import soot.ShortType;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootFieldRef;
+import soot.SootMethod;
+import soot.SootMethodRef;
+import soot.SootResolver;
+import soot.Type;
+import soot.Unit;
+import soot.UnknownType;
+import soot.Value;
+import soot.VoidType;
+import soot.jimple.ClassConstant;
+import soot.jimple.DoubleConstant;
+import soot.jimple.FloatConstant;
+import soot.jimple.GotoStmt;
+import soot.jimple.IfStmt;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.LongConstant;
+import soot.jimple.MethodHandle;
+import soot.jimple.MethodType;
+import soot.jimple.NullConstant;
+import soot.jimple.StringConstant;
+import soot.jimple.SwitchStmt;
+
+/**
+ * Reads classes in the binary Jimple format described in {@link BinaryJimple}.
+ *
+ * <p>
+ * The class skeleton is decoded when the reader is created. Bodies are only decoded on request, so the cost of reading a
+ * class whose bodies are never used is small. References to other classes are created lazily as well, so that reading a
+ * class does not add the classes it refers to to the {@link Scene} before they are needed. Decoding bodies is thread-safe.
+ * </p>
+ */
+public class BinaryJimpleReader {
+
+  private final byte[] data;
+
+  // Raw pool entries and the values they have been resolved to
+  private final byte[] poolKinds;
+  private final int[][] poolData;
+  private final String[] poolStrings;
+  private final Object[] poolValues;
+
+  private final int modifiers;
+  private final String className;
+  private final String superclassName;
+  private final List<String> interfaceNames;
+  private final List<FieldData> fields;
+  private final List<MethodData> methods;
+  private Map<String, MethodData> methodsBySubSignature = null;
+
+  /**
+   * Reads a binary Jimple class from the given stream.
+   *
+   * @param in
+   *          the stream to read from, which is not closed
+   * @throws IOException
+   *           if the stream cannot be read or does not contain a binary Jimple class of a supported version
+   */
+  public BinaryJimpleReader(InputStream in) throws IOException {
+    this.data = ByteStreams.toByteArray(in);
+    final BinaryJimpleInput input = new BinaryJimpleInput(data);
+    if (data.length < 4 || input.readInt() != MAGIC) {
+      throw new IOException("Not a binary Jimple file");
+    }
+    final int version = input.readVarInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported binary Jimple version " + version);
+    }
+
+    final int poolSize = input.readVarInt();
+    this.poolKinds = new byte[poolSize];
+    this.poolData = new int[poolSize][];
+    this.poolStrings = new String[poolSize];
+    this.poolValues = new Object[poolSize];
+    for (int i = 0; i < poolSize; i++) {
+      readPoolEntry(input, i);
+    }
+
+    this.modifiers = input.readVarInt();
+    this.className = readString(input);
+    final int superclass = input.readVarInt();
+    this.superclassName = superclass == 0 ? null : poolString(superclass - 1);
+    final int interfaceCount = input.readVarInt();
+    this.interfaceNames = new ArrayList<String>(interfaceCount);
+    for (int i = 0; i < interfaceCount; i++) {
+      interfaceNames.add(readString(input));
+    }
+
+    final int fieldCount = input.readVarInt();
+    this.fields = new ArrayList<FieldData>(fieldCount);
+    for (int i = 0; i < fieldCount; i++) {
+      FieldData f = new FieldData();
+      f.modifiers = input.readVarInt();
+      f.name = readString(input);
+      f.type = input.readVarInt();
+      fields.add(f);
+    }
+
+    final int methodCount = input.readVarInt();
+    this.methods = new ArrayList<MethodData>(methodCount);
+    for (int i = 0; i < methodCount; i++) {
+      MethodData m = new MethodData();
+      m.modifiers = input.readVarInt();
+      m.name = readString(input);
+      m.paramTypes = new int[input.readVarInt()];
+      for (int j = 0; j < m.paramTypes.length; j++) {
+        m.paramTypes[j] = input.readVarInt();
+      }
+      m.returnType = input.readVarInt();
+      m.exceptions = new int[input.readVarInt()];
+      for (int j = 0; j < m.exceptions.length; j++) {
+        m.exceptions[j] = input.readVarInt();
+      }
+      final int bodyLength = input.readVarInt() - 1;
+      if (bodyLength >= 0) {
+        m.bodyOffset = input.position();
+        m.bodyLength = bodyLength;
+        input.skip(bodyLength);
+      }
+      methods.add(m);
+    }
+  }
+
+  private void readPoolEntry(BinaryJimpleInput input, int i) throws IOException {
+    final byte kind = (byte) input.readByte();
+    poolKinds[i] = kind;
+    switch (kind) {
+      case POOL_STRING:
+        poolStrings[i] = input.readString();
+        break;
+      case POOL_TYPE: {
+        byte typeKind = (byte) input.readByte();
+        if (typeKind == TYPE_REF) {
+          poolData[i] = new int[] { typeKind, checkIndex(input.readVarInt(), i) };
+        } else if (typeKind == TYPE_ARRAY) {
+          poolData[i] = new int[] { typeKind, checkIndex(input.readVarInt(), i), input.readVarInt() };
+        } else {
+          poolData[i] = new int[] { typeKind };
+        }
+        break;
+      }
+      case POOL_FIELD_REF:
+        poolData[i] = new int[] { checkIndex(input.readVarInt(), i), checkIndex(input.readVarInt(), i),
+            checkIndex(input.readVarInt(), i), input.readBoolean() ? 1 : 0 };
+        break;
+      case POOL_METHOD_REF: {
+        int cls = checkIndex(input.readVarInt(), i);
+        int name = checkIndex(input.readVarInt(), i);
+        int paramCount = input.readVarInt();
+        // class, name, static, return type, parameter types
+        int[] d = new int[4 + paramCount];
+        d[0] = cls;
+        d[1] = name;
+        for (int j = 0; j < paramCount; j++) {
+          d[4 + j] = checkIndex(input.readVarInt(), i);
+        }
+        d[3] = checkIndex(input.readVarInt(), i);
+        d[2] = input.readBoolean() ? 1 : 0;
+        poolData[i] = d;
+        break;
+      }
+      default:
+        throw new IOException("Unknown constant pool entry " + kind);
+    }
+  }
+
+  /**
+   * Pool entries may only refer to entries before them, which rules out cycles.
+   */
+  private static int checkIndex(int idx, int current) throws IOException {
+    if (idx >= current) {
+      throw new IOException("Invalid constant pool reference " + idx);
+    }
+    return idx;
+  }
+
+  /**
+   * Returns the name of the class in the file.
+   */
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Returns the names of all classes the class refers to, including the classes in signatures and method bodies.
+   */
+  public Set<String> getReferencedClasses() {
+    Set<String> classes = new HashSet<String>();
+    for (int i = 0; i < poolKinds.length; i++) {
+      switch (poolKinds[i]) {
+        case POOL_TYPE:
+          if (poolData[i][0] == TYPE_REF) {
+            classes.add(poolStrings[poolData[i][1]]);
+          }
+          break;
+        case POOL_FIELD_REF:
+        case POOL_METHOD_REF:
+          classes.add(poolStrings[poolData[i][0]]);
+          break;
+        default:
+          break;
+      }
+    }
+    classes.remove(SootClass.INVOKEDYNAMIC_DUMMY_CLASS_NAME);
+    classes.remove(className);
+    return classes;
+  }
+
+  /**
+   * Adds the modifiers, superclass, interfaces, fields and methods of the class in the file to the given class. The methods
+   * do not have a method source.
+   *
+   * @param sc
+   *          the class to fill in, which must have the same name as the class in the file
+   */
+  public void buildSkeleton(SootClass sc) {
+    if (!className.equals(sc.getName())) {
+      throw new RuntimeException("expected: " + sc.getName() + ", but got: " + className);
+    }
+    final SootResolver resolver = SootResolver.v();
+    sc.setModifiers(modifiers);
+    if (superclassName != null) {
+      sc.setSuperclass(resolver.makeClassRef(superclassName));
+    }
+    for (String i : interfaceNames) {
+      sc.addInterface(resolver.makeClassRef(i));
+    }
+    final Scene scene = Scene.v();
+    for (FieldData f : fields) {
+      SootField field = scene.makeSootField(f.name, type(f.type), f.modifiers);
+      sc.addField(field);
+    }
+    for (MethodData m : methods) {
+      List<SootClass> exceptions = new ArrayList<SootClass>(m.exceptions.length);
+      for (int e : m.exceptions) {
+        exceptions.add(resolver.makeClassRef(poolString(e)));
+      }
+      SootMethod method = scene.makeSootMethod(m.name, types(m.paramTypes), type(m.returnType), m.modifiers, exceptions);
+      sc.addMethod(method);
+    }
+  }
+
+  /**
+   * Returns true if the file contains a body for the given method.
+   */
+  public boolean hasBody(SootMethod m) {
+    MethodData md = getMethodData(m);
+    return md != null && md.bodyOffset >= 0;
+  }
+
+  /**
+   * Decodes the body of the given method.
+   *
+   * @param m
+   *          the method, whose name, parameter types and return type are used to find the body in the file
+   * @return the body, or <code>null</code> if the file does not contain a body for the method
+   * @throws RuntimeException
+   *           if the body cannot be decoded
+   */
+  public JimpleBody readBody(SootMethod m) {
+    MethodData md = getMethodData(m);
+    if (md == null || md.bodyOffset < 0) {
+      return null;
+    }
+    try {
+      return new BodyReader(m, new BinaryJimpleInput(data, md.bodyOffset, md.bodyLength)).read();
+    } catch (IOException e) {
+      throw new RuntimeException("Could not decode body of " + m.getSignature(), e);
+    }
+  }
+
+  private synchronized MethodData getMethodData(SootMethod m) {
+    if (methodsBySubSignature == null) {
+      methodsBySubSignature = new HashMap<String, MethodData>(methods.size() * 2);
+      for (MethodData md : methods) {
+        methodsBySubSignature.put(SootMethod.getSubSignature(md.name, types(md.paramTypes), type(md.returnType)), md);
+      }
+    }
+    return methodsBySubSignature.get(m.getSubSignature());
+  }
+
+  private String readString(BinaryJimpleInput input) throws IOException {
+    return poolString(input.readVarInt());
+  }
+
+  private String poolString(int idx) {
+    String s = idx < poolStrings.length && poolKinds[idx] == POOL_STRING ? poolStrings[idx] : null;
+    if (s == null) {
+      throw new RuntimeException("Constant pool entry " + idx + " is not a string");
+    }
+    return s;
+  }
+
+  private synchronized Type type(int idx) {
+    if (idx >= poolKinds.length || poolKinds[idx] != POOL_TYPE) {
+      throw new RuntimeException("Constant pool entry " + idx + " is not a type");
+    }
+    Type t = (Type) poolValues[idx];
+    if (t == null) {
+      final int[] d = poolData[idx];
+      switch (d[0]) {
+        case TYPE_BOOLEAN:
+          t = BooleanType.v();
+          break;
+        case TYPE_BYTE:
+          t = ByteType.v();
+          break;
+        case TYPE_CHAR:
+          t = CharType.v();
+          break;
+        case TYPE_SHORT:
+          t = ShortType.v();
+          break;
+        case TYPE_INT:
+          t = IntType.v();
+          break;
+        case TYPE_LONG:
+          t = LongType.v();
+          break;
+        case TYPE_FLOAT:
+          t = FloatType.v();
+          break;
+        case TYPE_DOUBLE:
+          t = DoubleType.v();
+          break;
+        case TYPE_VOID:
+          t = VoidType.v();
+          break;
+        case TYPE_NULL:
+          t = NullType.v();
+          break;
+        case TYPE_UNKNOWN:
+          t = UnknownType.v();
+          break;
+        case TYPE_REF:
+          t = RefType.v(poolString(d[1]));
+          break;
+        case TYPE_ARRAY:
+          t = ArrayType.v(type(d[1]), d[2]);
+          break;
+        default:
+          throw new RuntimeException("Unknown type " + d[0]);
+      }
+      poolValues[idx] = t;
+    }
+    return t;
+  }
+
+  private List<Type> types(int[] indices) {
+    if (indices.length == 0) {
+      return Collections.emptyList();
+    }
+    List<Type> types = new ArrayList<Type>(indices.length);
+    for (int idx : indices) {
+      types.add(type(idx));
+    }
+    return types;
+  }
+
+  private synchronized SootFieldRef fieldRef(int idx) {
+    if (idx >= poolKinds.length || poolKinds[idx] != POOL_FIELD_REF) {
+      throw new RuntimeException("Constant pool entry " + idx + " is not a field reference");
+    }
+    SootFieldRef ref = (SootFieldRef) poolValues[idx];
+    if (ref == null) {
+      final int[] d = poolData[idx];
+      SootClass cls = SootResolver.v().makeClassRef(poolString(d[0]));
+      ref = Scene.v().makeFieldRef(cls, poolString(d[1]), type(d[2]), d[3] != 0);
+      poolValues[idx] = ref;
+    }
+    return ref;
+  }
+
+  private synchronized SootMethodRef methodRef(int idx) {
+    if (idx >= poolKinds.length || poolKinds[idx] != POOL_METHOD_REF) {
+      throw new RuntimeException("Constant pool entry " + idx + " is not a method reference");
+    }
+    SootMethodRef ref = (SootMethodRef) poolValues[idx];
+    if (ref == null) {
+      final int[] d = poolData[idx];
+      List<Type> params = new ArrayList<Type>(d.length - 4);
+      for (int i = 4; i < d.length; i++) {
+        params.add(type(d[i]));
+      }
+      SootClass cls = SootResolver.v().makeClassRef(poolString(d[0]));
+      ref = Scene.v().makeMethodRef(cls, poolString(d[1]), params, type(d[3]), d[2] != 0);
+      poolValues[idx] = ref;
+    }
+    return ref;
+  }
+
+  private static class FieldData {
+    int modifiers;
+    String name;
+    int type;
+  }
+
+  private static class MethodData {
+    int modifiers;
+    String name;
+    int[] paramTypes;
+    int returnType;
+    int[] exceptions;
+    int bodyOffset = -1;
+    int bodyLength;
+  }
+
+  /**
+   * Decodes a single body.
+   */
+  private class BodyReader {
+    private final SootMethod method;
+    private final BinaryJimpleInput in;
+    private final Jimple jimple = Jimple.v();
+    private Local[] locals;
+    private Unit[] units;
+
+    BodyReader(SootMethod method, BinaryJimpleInput in) {
+      this.method = method;
+      this.in = in;
+    }
+
+    JimpleBody read() throws IOException {
+      final JimpleBody body = jimple.newBody(method);
+
+      locals = new Local[in.readVarInt()];
+      for (int i = 0; i < locals.length; i++) {
+        String name = readString(in);
+        locals[i] = jimple.newLocal(name, type(in.readVarInt()));
+      }
+      body.getLocals().addAll(Arrays.asList(locals));
+
+      // Branch targets are patched once all units exist
+      units = new Unit[in.readVarInt()];
+      final List<Unit> branches = new ArrayList<Unit>();
+      final List<int[]> branchTargets = new ArrayList<int[]>();
+      for (int i = 0; i < units.length; i++) {
+        units[i] = readStmt(branches, branchTargets);
+      }
+      body.getUnits().addAll(Arrays.asList(units));
+      for (int i = 0; i < branches.size(); i++) {
+        patchTargets(branches.get(i), branchTargets.get(i));
+      }
+
+      final int trapCount = in.readVarInt();
+      for (int i = 0; i < trapCount; i++) {
+        SootClass exception = SootResolver.v().makeClassRef(readString(in));
+        body.getTraps().add(jimple.newTrap(exception, readUnit(), readUnit(), readUnit()));
+      }
+      return body;
+    }
+
+    private Unit readUnit() throws IOException {
+      int idx = in.readVarInt();
+      if (idx >= units.length) {
+        throw new IOException("Invalid unit index " + idx);
+      }
+      return units[idx];
+    }
+
+    private int readUnitIndex() throws IOException {
+      int idx = in.readVarInt();
+      if (idx >= units.length) {
+        throw new IOException("Invalid unit index " + idx);
+      }
+      return idx;
+    }
+
+    private void patchTargets(Unit u, int[] targets) {
+      if (u instanceof GotoStmt) {
+        ((GotoStmt) u).setTarget(units[targets[0]]);
+      } else if (u instanceof IfStmt) {
+        ((IfStmt) u).setTarget(units[targets[0]]);
+      } else {
+        SwitchStmt s = (SwitchStmt) u;
+        for (int i = 0; i < targets.length - 1; i++) {
+          s.setTarget(i, units[targets[i]]);
+        }
+        s.setDefaultTarget(units[targets[targets.length - 1]]);
+      }
+    }
+
+    private Unit readStmt(List<Unit> branches, List<int[]> branchTargets) throws IOException {
+      final byte opcode = (byte) in.readByte();
+      switch (opcode) {
+        case STMT_NOP:
+          return jimple.newNopStmt();
+        case STMT_BREAKPOINT:
+          return jimple.newBreakpointStmt();
+        case STMT_ASSIGN: {
+          Value lhs = readValue();
+          return jimple.newAssignStmt(lhs, readValue());
+        }
+        case STMT_IDENTITY: {
+          Value lhs = readValue();
+          return jimple.newIdentityStmt(lhs, readValue());
+        }
+        case STMT_INVOKE:
+          return jimple.newInvokeStmt(readValue());
+        case STMT_IF: {
+          Unit u = jimple.newIfStmt(readValue(), (Unit) null);
+          branches.add(u);
+          branchTargets.add(new int[] { readUnitIndex() });
+          return u;
+        }
+        case STMT_GOTO: {
+          Unit u = jimple.newGotoStmt((Unit) null);
+          branches.add(u);
+          branchTargets.add(new int[] { readUnitIndex() });
+          return u;
+        }
+        case STMT_TABLESWITCH: {
+          Value key = readValue();
+          int low = in.readSignedVarInt();
+          int high = in.readSignedVarInt();
+          int[] targets = new int[in.readVarInt() + 1];
+          for (int i = 0; i < targets.length; i++) {
+            targets[i] = readUnitIndex();
+          }
+          Unit u = jimple.newTableSwitchStmt(key, low, high, nullTargets(targets.length - 1), (Unit) null);
+          branches.add(u);
+          branchTargets.add(targets);
+          return u;
+        }
+        case STMT_LOOKUPSWITCH: {
+          Value key = readValue();
+          int count = in.readVarInt();
+          List<IntConstant> values = new ArrayList<IntConstant>(count);
+          int[] targets = new int[count + 1];
+          for (int i = 0; i < count; i++) {
+            values.add(IntConstant.v(in.readSignedVarInt()));
+            targets[i] = readUnitIndex();
+          }
+          targets[count] = readUnitIndex();
+          Unit u = jimple.newLookupSwitchStmt(key, values, nullTargets(count), (Unit) null);
+          branches.add(u);
+          branchTargets.add(targets);
+          return u;
+        }
+        case STMT_RETURN:
+          return jimple.newReturnStmt(readValue());
+        case STMT_RETURN_VOID:
+          return jimple.newReturnVoidStmt();
+        case STMT_THROW:
+          return jimple.newThrowStmt(readValue());
+        case STMT_ENTERMONITOR:
+          return jimple.newEnterMonitorStmt(readValue());
+        case STMT_EXITMONITOR:
+          return jimple.newExitMonitorStmt(readValue());
+        case STMT_RET:
+          return jimple.newRetStmt(readValue());
+        default:
+          throw new IOException("Unknown statement " + opcode);
+      }
+    }
+
+    private List<Unit> nullTargets(int count) {
+      return new ArrayList<Unit>(Collections.<Unit>nCopies(count, null));
+    }
+
+    private List<Value> readValues() throws IOException {
+      final int count = in.readVarInt();
+      if (count == 0) {
+        return Collections.emptyList();
+      }
+      List<Value> values = new ArrayList<Value>(count);
+      for (int i = 0; i < count; i++) {
+        values.add(readValue());
+      }
+      return values;
+    }
+
+    private Local readLocal() throws IOException {
+      Value v = readValue();
+      if (!(v instanceof Local)) {
+        throw new IOException("Expected a local, but got " + v);
+      }
+      return (Local) v;
+    }
+
+    private Value readValue() throws IOException {
+      final byte opcode = (byte) in.readByte();
+      switch (opcode) {
+        // Immediates
+        case VALUE_LOCAL: {
+          int idx = in.readVarInt();
+          if (idx >= locals.length) {
+            throw new IOException("Invalid local index " + idx);
+          }
+          return locals[idx];
+        }
+        case VALUE_NULL:
+          return NullConstant.v();
+        case VALUE_INT:
+          return IntConstant.v(in.readSignedVarInt());
+        case VALUE_LONG:
+          return LongConstant.v(in.readLong());
+        case VALUE_FLOAT:
+          return FloatConstant.v(in.readFloat());
+        case VALUE_DOUBLE:
+          return DoubleConstant.v(in.readDouble());
+        case VALUE_STRING:
+          return StringConstant.v(readString(in));
+        case VALUE_CLASS:
+          return ClassConstant.v(readString(in));
+        case VALUE_METHOD_HANDLE: {
+          int kind = in.readVarInt();
+          int ref = in.readVarInt();
+          return MethodHandle.isMethodRef(kind) ? MethodHandle.v(methodRef(ref), kind) : MethodHandle.v(fieldRef(ref), kind);
+        }
+        case VALUE_METHOD_TYPE: {
+          int[] params = new int[in.readVarInt()];
+          for (int i = 0; i < params.length; i++) {
+            params[i] = in.readVarInt();
+          }
+          return MethodType.v(types(params), type(in.readVarInt()));
+        }
+
+        // Binary expressions
+        case VALUE_ADD:
+          return jimple.newAddExpr(readValue(), readValue());
+        case VALUE_SUB:
+          return jimple.newSubExpr(readValue(), readValue());
+        case VALUE_MUL:
+          return jimple.newMulExpr(readValue(), readValue());
+        case VALUE_DIV:
+          return jimple.newDivExpr(readValue(), readValue());
+        case VALUE_REM:
+          return jimple.newRemExpr(readValue(), readValue());
+        case VALUE_AND:
+          return jimple.newAndExpr(readValue(), readValue());
+        case VALUE_OR:
+          return jimple.newOrExpr(readValue(), readValue());
+        case VALUE_XOR:
+          return jimple.newXorExpr(readValue(), readValue());
+        case VALUE_SHL:
+          return jimple.newShlExpr(readValue(), readValue());
+        case VALUE_SHR:
+          return jimple.newShrExpr(readValue(), readValue());
+        case VALUE_USHR:
+          return jimple.newUshrExpr(readValue(), readValue());
+        case VALUE_CMP:
+          return jimple.newCmpExpr(readValue(), readValue());
+        case VALUE_CMPG:
+          return jimple.newCmpgExpr(readValue(), readValue());
+        case VALUE_CMPL:
+          return jimple.newCmplExpr(readValue(), readValue());
+        case VALUE_EQ:
+          return jimple.newEqExpr(readValue(), readValue());
+        case VALUE_NE:
+          return jimple.newNeExpr(readValue(), readValue());
+        case VALUE_GE:
+          return jimple.newGeExpr(readValue(), readValue());
+        case VALUE_GT:
+          return jimple.newGtExpr(readValue(), readValue());
+        case VALUE_LE:
+          return jimple.newLeExpr(readValue(), readValue());
+        case VALUE_LT:
+          return jimple.newLtExpr(readValue(), readValue());
+
+        // Other expressions
+        case VALUE_NEG:
+          return jimple.newNegExpr(readValue());
+        case VALUE_LENGTH:
+          return jimple.newLengthExpr(readValue());
+        case VALUE_CAST: {
+          Type t = type(in.readVarInt());
+          return jimple.newCastExpr(readValue(), t);
+        }
+        case VALUE_INSTANCEOF: {
+          Type t = type(in.readVarInt());
+          return jimple.newInstanceOfExpr(readValue(), t);
+        }
+        case VALUE_NEW:
+          return jimple.newNewExpr((RefType) type(in.readVarInt()));
+        case VALUE_NEWARRAY: {
+          Type t = type(in.readVarInt());
+          return jimple.newNewArrayExpr(t, readValue());
+        }
+        case VALUE_NEWMULTIARRAY: {
+          ArrayType t = (ArrayType) type(in.readVarInt());
+          return jimple.newNewMultiArrayExpr(t, readValues());
+        }
+        case VALUE_VIRTUALINVOKE: {
+          Local base = readLocal();
+          SootMethodRef ref = methodRef(in.readVarInt());
+          return jimple.newVirtualInvokeExpr(base, ref, readValues());
+        }
+        case VALUE_SPECIALINVOKE: {
+          Local base = readLocal();
+          SootMethodRef ref = methodRef(in.readVarInt());
+          return jimple.newSpecialInvokeExpr(base, ref, readValues());
+        }
+        case VALUE_INTERFACEINVOKE: {
+          Local base = readLocal();
+          SootMethodRef ref = methodRef(in.readVarInt());
+          return jimple.newInterfaceInvokeExpr(base, ref, readValues());
+        }
+        case VALUE_STATICINVOKE: {
+          SootMethodRef ref = methodRef(in.readVarInt());
+          return jimple.newStaticInvokeExpr(ref, readValues());
+        }
+        case VALUE_DYNAMICINVOKE: {
+          SootMethodRef bootstrap = methodRef(in.readVarInt());
+          List<Value> bootstrapArgs = readValues();
+          SootMethodRef ref = methodRef(in.readVarInt());
+          int tag = in.readVarInt();
+          return jimple.newDynamicInvokeExpr(bootstrap, bootstrapArgs, ref, tag, readValues());
+        }
+
+        // References
+        case VALUE_ARRAY_REF: {
+          Value base = readValue();
+          return jimple.newArrayRef(base, readValue());
+        }
+        case VALUE_INSTANCE_FIELD_REF: {
+          Value base = readValue();
+          return jimple.newInstanceFieldRef(base, fieldRef(in.readVarInt()));
+        }
+        case VALUE_STATIC_FIELD_REF:
+          return jimple.newStaticFieldRef(fieldRef(in.readVarInt()));
+        case VALUE_PARAMETER_REF: {
+          Type t = type(in.readVarInt());
+          return jimple.newParameterRef(t, in.readVarInt());
+        }
+        case VALUE_THIS_REF:
+          return jimple.newThisRef((RefType) type(in.readVarInt()));
+        case VALUE_CAUGHT_EXCEPTION_REF:
+          return jimple.newCaughtExceptionRef();
+        default:
+          throw new IOException("Unknown value " + opcode);
+      }
+    }
+  }
+}
@@ -0,0 +1,837 @@
+package soot.jimple.binary;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static soot.jimple.binary.BinaryJimple.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import soot.ArrayType;
+import soot.Body;
+import soot.BooleanType;
+import soot.ByteType;
+import soot.CharType;
+import soot.DoubleType;
+import soot.FloatType;
+import soot.IntType;
+import soot.Local;
+import soot.LongType;
+import soot.NullType;
+import soot.RefType;
+import soot.ShortType;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootFieldRef;
+import soot.SootMethod;
+import soot.SootMethodRef;
+import soot.Trap;
+import soot.Type;
+import soot.Unit;
+import soot.UnknownType;
+import soot.Value;
+import soot.VoidType;
+import soot.jimple.AddExpr;
+import soot.jimple.AndExpr;
+import soot.jimple.ArrayRef;
+import soot.jimple.AssignStmt;
+import soot.jimple.BinopExpr;
+import soot.jimple.BreakpointStmt;
+import soot.jimple.CastExpr;
+import soot.jimple.CaughtExceptionRef;
+import soot.jimple.ClassConstant;
+import soot.jimple.CmpExpr;
+import soot.jimple.CmpgExpr;
+import soot.jimple.CmplExpr;
+import soot.jimple.DivExpr;
+import soot.jimple.DoubleConstant;
+import soot.jimple.DynamicInvokeExpr;
+import soot.jimple.EnterMonitorStmt;
+import soot.jimple.EqExpr;
+import soot.jimple.ExitMonitorStmt;
+import soot.jimple.FloatConstant;
+import soot.jimple.GeExpr;
+import soot.jimple.GotoStmt;
+import soot.jimple.GtExpr;
+import soot.jimple.IdentityStmt;
+import soot.jimple.IfStmt;
+import soot.jimple.InstanceFieldRef;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.InstanceOfExpr;
+import soot.jimple.IntConstant;
+import soot.jimple.InterfaceInvokeExpr;
+import soot.jimple.InvokeExpr;
+import soot.jimple.InvokeStmt;
+import soot.jimple.JimpleValueSwitch;
+import soot.jimple.LeExpr;
+import soot.jimple.LengthExpr;
+import soot.jimple.LongConstant;
+import soot.jimple.LookupSwitchStmt;
+import soot.jimple.LtExpr;
+import soot.jimple.MethodHandle;
+import soot.jimple.MethodType;
+import soot.jimple.MulExpr;
+import soot.jimple.NeExpr;
+import soot.jimple.NegExpr;
+import soot.jimple.NewArrayExpr;
+import soot.jimple.NewExpr;
+import soot.jimple.NewMultiArrayExpr;
+import soot.jimple.NopStmt;
+import soot.jimple.NullConstant;
+import soot.jimple.OrExpr;
+import soot.jimple.ParameterRef;
+import soot.jimple.RemExpr;
+import soot.jimple.RetStmt;
+import soot.jimple.ReturnStmt;
+import soot.jimple.ReturnVoidStmt;
+import soot.jimple.ShlExpr;
+import soot.jimple.ShrExpr;
+import soot.jimple.SpecialInvokeExpr;
+import soot.jimple.StaticFieldRef;
+import soot.jimple.StaticInvokeExpr;
+import soot.jimple.StmtSwitch;
+import soot.jimple.StringConstant;
+import soot.jimple.SubExpr;
+import soot.jimple.TableSwitchStmt;
+import soot.jimple.ThisRef;
+import soot.jimple.ThrowStmt;
+import soot.jimple.UshrExpr;
+import soot.jimple.VirtualInvokeExpr;
+import soot.jimple.XorExpr;
+
+/**
+ * Writes classes in the binary Jimple format described in {@link BinaryJimple}.
+ *
+ * <p>
+ * A writer collects the constant pool of a single class. Bodies can either be encoded together with their class by
+ * {@link #write(SootClass, OutputStream)}, or one at a time by {@link #encodeBody(Body)} while they are available and
+ * written later on by {@link #write(SootClass, Map, OutputStream)}. Encoding bodies is thread-safe.
+ * </p>
+ */
+public class BinaryJimpleWriter {
+
+  private final BinaryJimpleOutput pool = new BinaryJimpleOutput();
+  private int poolSize = 0;
+
+  private final Map<String, Integer> strings = new HashMap<String, Integer>();
+  private final Map<Type, Integer> types = new HashMap<Type, Integer>();
+  private final Map<String, Integer> fieldRefs = new HashMap<String, Integer>();
+  private final Map<String, Integer> methodRefs = new HashMap<String, Integer>();
+
+  /**
+   * Writes the given class together with the active bodies of its methods. Methods without an active body are written
+   * without a body.
+   *
+   * @param sc
+   *          the class to write
+   * @param out
+   *          the stream to write to, which is not closed
+   * @throws IOException
+   *           if the stream cannot be written
+   */
+  public void write(SootClass sc, OutputStream out) throws IOException {
+    Map<SootMethod, byte[]> bodies = new HashMap<SootMethod, byte[]>();
+    for (SootMethod m : sc.getMethods()) {
+      if (m.hasActiveBody()) {
+        bodies.put(m, encodeBody(m.getActiveBody()));
+      }
+    }
+    write(sc, bodies, out);
+  }
+
+  /**
+   * Writes the given class with bodies that have been encoded by this writer before.
+   *
+   * @param sc
+   *          the class to write
+   * @param bodies
+   *          the encoded bodies of the methods of the class
+   * @param out
+   *          the stream to write to, which is not closed
+   * @throws IOException
+   *           if the stream cannot be written
+   */
+  public synchronized void write(SootClass sc, Map<SootMethod, byte[]> bodies, OutputStream out) throws IOException {
+    // The class refers to the pool, so it needs to be encoded before the pool is complete
+    final BinaryJimpleOutput cls = new BinaryJimpleOutput();
+    cls.writeVarInt(sc.getModifiers());
+    cls.writeVarInt(string(sc.getName()));
+    cls.writeVarInt(sc.hasSuperclass() ? string(sc.getSuperclass().getName()) + 1 : 0);
+    cls.writeVarInt(sc.getInterfaceCount());
+    for (SootClass i : sc.getInterfaces()) {
+      cls.writeVarInt(string(i.getName()));
+    }
+
+    cls.writeVarInt(sc.getFieldCount());
+    for (SootField f : sc.getFields()) {
+      cls.writeVarInt(f.getModifiers());
+      cls.writeVarInt(string(f.getName()));
+      cls.writeVarInt(type(f.getType()));
+    }
+
+    cls.writeVarInt(sc.getMethodCount());
+    for (SootMethod m : sc.getMethods()) {
+      cls.writeVarInt(m.getModifiers());
+      cls.writeVarInt(string(m.getName()));
+      List<Type> params = m.getParameterTypes();
+      cls.writeVarInt(params.size());
+      for (Type t : params) {
+        cls.writeVarInt(type(t));
+      }
+      cls.writeVarInt(type(m.getReturnType()));
+      List<SootClass> exceptions = m.getExceptionsUnsafe();
+      if (exceptions == null) {
+        cls.writeVarInt(0);
+      } else {
+        cls.writeVarInt(exceptions.size());
+        for (SootClass e : exceptions) {
+          cls.writeVarInt(string(e.getName()));
+        }
+      }
+      byte[] body = bodies.get(m);
+      if (body == null) {
+        cls.writeVarInt(0);
+      } else {
+        cls.writeVarInt(body.length + 1);
+        cls.write(body, 0, body.length);
+      }
+    }
+
+    final BinaryJimpleOutput header = new BinaryJimpleOutput();
+    header.writeInt(MAGIC);
+    header.writeVarInt(VERSION);
+    header.writeVarInt(poolSize);
+    header.writeBytes(pool);
+    header.writeBytes(cls);
+    header.writeTo(out);
+  }
+
+  /**
+   * Encodes the given body. The result can only be passed to {@link #write(SootClass, Map, OutputStream)} of this writer,
+   * because it refers to the constant pool of this writer.
+   *
+   * @param b
+   *          the Jimple body to encode
+   * @return the encoded body
+   * @throws RuntimeException
+   *           if the body contains values that are not Jimple
+   */
+  public synchronized byte[] encodeBody(Body b) {
+    return new BodyWriter(b).write().toByteArray();
+  }
+
+  private int string(String s) {
+    Integer idx = strings.get(s);
+    if (idx == null) {
+      pool.writeByte(POOL_STRING);
+      pool.writeString(s);
+      strings.put(s, idx = poolSize++);
+    }
+    return idx;
+  }
+
+  private int type(Type t) {
+    Integer idx = types.get(t);
+    if (idx == null) {
+      // Entries that this entry depends on must come first
+      int ref = -1;
+      int dims = 0;
+      byte kind;
+      if (t instanceof RefType) {
+        kind = TYPE_REF;
+        ref = string(((RefType) t).getClassName());
+      } else if (t instanceof ArrayType) {
+        ArrayType at = (ArrayType) t;
+        kind = TYPE_ARRAY;
+        ref = type(at.baseType);
+        dims = at.numDimensions;
+      } else {
+        kind = primitiveType(t);
+      }
+      pool.writeByte(POOL_TYPE);
+      pool.writeByte(kind);
+      if (ref >= 0) {
+        pool.writeVarInt(ref);
+      }
+      if (kind == TYPE_ARRAY) {
+        pool.writeVarInt(dims);
+      }
+      types.put(t, idx = poolSize++);
+    }
+    return idx;
+  }
+
+  private static byte primitiveType(Type t) {
+    if (t instanceof IntType) {
+      return TYPE_INT;
+    } else if (t instanceof BooleanType) {
+      return TYPE_BOOLEAN;
+    } else if (t instanceof ByteType) {
+      return TYPE_BYTE;
+    } else if (t instanceof CharType) {
+      return TYPE_CHAR;
+    } else if (t instanceof ShortType) {
+      return TYPE_SHORT;
+    } else if (t instanceof LongType) {
+      return TYPE_LONG;
+    } else if (t instanceof FloatType) {
+      return TYPE_FLOAT;
+    } else if (t instanceof DoubleType) {
+      return TYPE_DOUBLE;
+    } else if (t instanceof VoidType) {
+      return TYPE_VOID;
+    } else if (t instanceof NullType) {
+      return TYPE_NULL;
+    } else if (t instanceof UnknownType) {
+      return TYPE_UNKNOWN;
+    }
+    throw new RuntimeException("Unsupported type in binary Jimple: " + t);
+  }
+
+  private int fieldRef(SootFieldRef f) {
+    final String key = f.getSignature() + (f.isStatic() ? "static" : "");
+    Integer idx = fieldRefs.get(key);
+    if (idx == null) {
+      int cls = string(f.declaringClass().getName());
+      int name = string(f.name());
+      int type = type(f.type());
+      pool.writeByte(POOL_FIELD_REF);
+      pool.writeVarInt(cls);
+      pool.writeVarInt(name);
+      pool.writeVarInt(type);
+      pool.writeBoolean(f.isStatic());
+      fieldRefs.put(key, idx = poolSize++);
+    }
+    return idx;
+  }
+
+  private int methodRef(SootMethodRef m) {
+    final String key = m.getSignature() + (m.isStatic() ? "static" : "");
+    Integer idx = methodRefs.get(key);
+    if (idx == null) {
+      int cls = string(m.getDeclaringClass().getName());
+      int name = string(m.getName());
+      List<Type> paramTypes = m.getParameterTypes();
+      int[] params = new int[paramTypes.size()];
+      for (int i = 0; i < params.length; i++) {
+        params[i] = type(paramTypes.get(i));
+      }
+      int ret = type(m.getReturnType());
+      pool.writeByte(POOL_METHOD_REF);
+      pool.writeVarInt(cls);
+      pool.writeVarInt(name);
+      pool.writeVarInt(params.length);
+      for (int p : params) {
+        pool.writeVarInt(p);
+      }
+      pool.writeVarInt(ret);
+      pool.writeBoolean(m.isStatic());
+      methodRefs.put(key, idx = poolSize++);
+    }
+    return idx;
+  }
+
+  /**
+   * Encodes the locals, units and traps of a single body.
+   */
+  private class BodyWriter implements StmtSwitch, JimpleValueSwitch {
+    private final Body body;
+    private final BinaryJimpleOutput out = new BinaryJimpleOutput();
+    private final Map<Local, Integer> localIndices = new HashMap<Local, Integer>();
+    private final Map<Unit, Integer> unitIndices = new HashMap<Unit, Integer>();
+
+    BodyWriter(Body body) {
+      this.body = body;
+    }
+
+    BinaryJimpleOutput write() {
+      out.writeVarInt(body.getLocalCount());
+      for (Local l : body.getLocals()) {
+        out.writeVarInt(string(l.getName()));
+        out.writeVarInt(type(l.getType()));
+        localIndices.put(l, localIndices.size());
+      }
+
+      // Units may jump forward, so all indices must be known up front
+      final Map<Unit, Integer> unitIndices = this.unitIndices;
+      for (Unit u : body.getUnits()) {
+        unitIndices.put(u, unitIndices.size());
+      }
+      out.writeVarInt(unitIndices.size());
+      for (Unit u : body.getUnits()) {
+        u.apply(this);
+      }
+
+      out.writeVarInt(body.getTraps().size());
+      for (Trap t : body.getTraps()) {
+        out.writeVarInt(string(t.getException().getName()));
+        writeUnit(t.getBeginUnit());
+        writeUnit(t.getEndUnit());
+        writeUnit(t.getHandlerUnit());
+      }
+      return out;
+    }
+
+    private void writeUnit(Unit u) {
+      Integer idx = unitIndices.get(u);
+      if (idx == null) {
+        throw new RuntimeException("Unit is not part of the body: " + u);
+      }
+      out.writeVarInt(idx);
+    }
+
+    private void writeValue(Value v) {
+      v.apply(this);
+    }
+
+    private void writeValues(List<Value> values) {
+      out.writeVarInt(values.size());
+      for (Value v : values) {
+        writeValue(v);
+      }
+    }
+
+    private void writeBinop(byte opcode, BinopExpr v) {
+      out.writeByte(opcode);
+      writeValue(v.getOp1());
+      writeValue(v.getOp2());
+    }
+
+    private void writeInvoke(byte opcode, InvokeExpr v) {
+      out.writeByte(opcode);
+      if (v instanceof InstanceInvokeExpr) {
+        writeValue(((InstanceInvokeExpr) v).getBase());
+      }
+      out.writeVarInt(methodRef(v.getMethodRef()));
+      writeValues(v.getArgs());
+    }
+
+    // Statements
+
+    @Override
+    public void caseBreakpointStmt(BreakpointStmt stmt) {
+      out.writeByte(STMT_BREAKPOINT);
+    }
+
+    @Override
+    public void caseInvokeStmt(InvokeStmt stmt) {
+      out.writeByte(STMT_INVOKE);
+      writeValue(stmt.getInvokeExpr());
+    }
+
+    @Override
+    public void caseAssignStmt(AssignStmt stmt) {
+      out.writeByte(STMT_ASSIGN);
+      writeValue(stmt.getLeftOp());
+      writeValue(stmt.getRightOp());
+    }
+
+    @Override
+    public void caseIdentityStmt(IdentityStmt stmt) {
+      out.writeByte(STMT_IDENTITY);
+      writeValue(stmt.getLeftOp());
+      writeValue(stmt.getRightOp());
+    }
+
+    @Override
+    public void caseEnterMonitorStmt(EnterMonitorStmt stmt) {
+      out.writeByte(STMT_ENTERMONITOR);
+      writeValue(stmt.getOp());
+    }
+
+    @Override
+    public void caseExitMonitorStmt(ExitMonitorStmt stmt) {
+      out.writeByte(STMT_EXITMONITOR);
+      writeValue(stmt.getOp());
+    }
+
+    @Override
+    public void caseGotoStmt(GotoStmt stmt) {
+      out.writeByte(STMT_GOTO);
+      writeUnit(stmt.getTarget());
+    }
+
+    @Override
+    public void caseIfStmt(IfStmt stmt) {
+      out.writeByte(STMT_IF);
+      writeValue(stmt.getCondition());
+      writeUnit(stmt.getTarget());
+    }
+
+    @Override
+    public void caseLookupSwitchStmt(LookupSwitchStmt stmt) {
+      out.writeByte(STMT_LOOKUPSWITCH);
+      writeValue(stmt.getKey());
+      List<IntConstant> values = stmt.getLookupValues();
+      out.writeVarInt(values.size());
+      for (int i = 0; i < values.size(); i++) {
+        out.writeSignedVarInt(values.get(i).value);
+        writeUnit(stmt.getTarget(i));
+      }
+      writeUnit(stmt.getDefaultTarget());
+    }
+
+    @Override
+    public void caseNopStmt(NopStmt stmt) {
+      out.writeByte(STMT_NOP);
+    }
+
+    @Override
+    public void caseRetStmt(RetStmt stmt) {
+      out.writeByte(STMT_RET);
+      writeValue(stmt.getStmtAddress());
+    }
+
+    @Override
+    public void caseReturnStmt(ReturnStmt stmt) {
+      out.writeByte(STMT_RETURN);
+      writeValue(stmt.getOp());
+    }
+
+    @Override
+    public void caseReturnVoidStmt(ReturnVoidStmt stmt) {
+      out.writeByte(STMT_RETURN_VOID);
+    }
+
+    @Override
+    public void caseTableSwitchStmt(TableSwitchStmt stmt) {
+      out.writeByte(STMT_TABLESWITCH);
+      writeValue(stmt.getKey());
+      out.writeSignedVarInt(stmt.getLowIndex());
+      out.writeSignedVarInt(stmt.getHighIndex());
+      List<Unit> targets = stmt.getTargets();
+      out.writeVarInt(targets.size());
+      for (Unit u : targets) {
+        writeUnit(u);
+      }
+      writeUnit(stmt.getDefaultTarget());
+    }
+
+    @Override
+    public void caseThrowStmt(ThrowStmt stmt) {
+      out.writeByte(STMT_THROW);
+      writeValue(stmt.getOp());
+    }
+
+    // Immediates
+
+    @Override
+    public void caseLocal(Local l) {
+      Integer idx = localIndices.get(l);
+      if (idx == null) {
+        throw new RuntimeException("Local is not part of the body: " + l);
+      }
+      out.writeByte(VALUE_LOCAL);
+      out.writeVarInt(idx);
+    }
+
+    @Override
+    public void caseDoubleConstant(DoubleConstant v) {
+      out.writeByte(VALUE_DOUBLE);
+      out.writeDouble(v.value);
+    }
+
+    @Override
+    public void caseFloatConstant(FloatConstant v) {
+      out.writeByte(VALUE_FLOAT);
+      out.writeFloat(v.value);
+    }
+
+    @Override
+    public void caseIntConstant(IntConstant v) {
+      out.writeByte(VALUE_INT);
+      out.writeSignedVarInt(v.value);
+    }
+
+    @Override
+    public void caseLongConstant(LongConstant v) {
+      out.writeByte(VALUE_LONG);
+      out.writeLong(v.value);
+    }
+
+    @Override
+    public void caseNullConstant(NullConstant v) {
+      out.writeByte(VALUE_NULL);
+    }
+
+    @Override
+    public void caseStringConstant(StringConstant v) {
+      out.writeByte(VALUE_STRING);
+      out.writeVarInt(string(v.value));
+    }
+
+    @Override
+    public void caseClassConstant(ClassConstant v) {
+      out.writeByte(VALUE_CLASS);
+      out.writeVarInt(string(v.getValue()));
+    }
+
+    @Override
+    public void caseMethodHandle(MethodHandle handle) {
+      out.writeByte(VALUE_METHOD_HANDLE);
+      out.writeVarInt(handle.getKind());
+      if (handle.isMethodRef()) {
+        out.writeVarInt(methodRef(handle.getMethodRef()));
+      } else {
+        out.writeVarInt(fieldRef(handle.getFieldRef()));
+      }
+    }
+
+    @Override
+    public void caseMethodType(MethodType v) {
+      out.writeByte(VALUE_METHOD_TYPE);
+      List<Type> params = v.getParameterTypes();
+      out.writeVarInt(params.size());
+      for (Type t : params) {
+        out.writeVarInt(type(t));
+      }
+      out.writeVarInt(type(v.getReturnType()));
+    }
+
+    // Expressions
+
+    @Override
+    public void caseAddExpr(AddExpr v) {
+      writeBinop(VALUE_ADD, v);
+    }
+
+    @Override
+    public void caseAndExpr(AndExpr v) {
+      writeBinop(VALUE_AND, v);
+    }
+
+    @Override
+    public void caseCmpExpr(CmpExpr v) {
+      writeBinop(VALUE_CMP, v);
+    }
+
+    @Override
+    public void caseCmpgExpr(CmpgExpr v) {
+      writeBinop(VALUE_CMPG, v);
+    }
+
+    @Override
+    public void caseCmplExpr(CmplExpr v) {
+      writeBinop(VALUE_CMPL, v);
+    }
+
+    @Override
+    public void caseDivExpr(DivExpr v) {
+      writeBinop(VALUE_DIV, v);
+    }
+
+    @Override
+    public void caseEqExpr(EqExpr v) {
+      writeBinop(VALUE_EQ, v);
+    }
+
+    @Override
+    public void caseNeExpr(NeExpr v) {
+      writeBinop(VALUE_NE, v);
+    }
+
+    @Override
+    public void caseGeExpr(GeExpr v) {
+      writeBinop(VALUE_GE, v);
+    }
+
+    @Override
+    public void caseGtExpr(GtExpr v) {
+      writeBinop(VALUE_GT, v);
+    }
+
+    @Override
+    public void caseLeExpr(LeExpr v) {
+      writeBinop(VALUE_LE, v);
+    }
+
+    @Override
+    public void caseLtExpr(LtExpr v) {
+      writeBinop(VALUE_LT, v);
+    }
+
+    @Override
+    public void caseMulExpr(MulExpr v) {
+      writeBinop(VALUE_MUL, v);
+    }
+
+    @Override
+    public void caseOrExpr(OrExpr v) {
+      writeBinop(VALUE_OR, v);
+    }
+
+    @Override
+    public void caseRemExpr(RemExpr v) {
+      writeBinop(VALUE_REM, v);
+    }
+
+    @Override
+    public void caseShlExpr(ShlExpr v) {
+      writeBinop(VALUE_SHL, v);
+    }
+
+    @Override
+    public void caseShrExpr(ShrExpr v) {
+      writeBinop(VALUE_SHR, v);
+    }
+
+    @Override
+    public void caseUshrExpr(UshrExpr v) {
+      writeBinop(VALUE_USHR, v);
+    }
+
+    @Override
+    public void caseSubExpr(SubExpr v) {
+      writeBinop(VALUE_SUB, v);
+    }
+
+    @Override
+    public void caseXorExpr(XorExpr v) {
+      writeBinop(VALUE_XOR, v);
+    }
+
+    @Override
+    public void caseInterfaceInvokeExpr(InterfaceInvokeExpr v) {
+      writeInvoke(VALUE_INTERFACEINVOKE, v);
+    }
+
+    @Override
+    public void caseSpecialInvokeExpr(SpecialInvokeExpr v) {
+      writeInvoke(VALUE_SPECIALINVOKE, v);
+    }
+
+    @Override
+    public void caseStaticInvokeExpr(StaticInvokeExpr v) {
+      writeInvoke(VALUE_STATICINVOKE, v);
+    }
+
+    @Override
+    public void caseVirtualInvokeExpr(VirtualInvokeExpr v) {
+      writeInvoke(VALUE_VIRTUALINVOKE, v);
+    }
+
+    @Override
+    public void caseDynamicInvokeExpr(DynamicInvokeExpr v) {
+      out.writeByte(VALUE_DYNAMICINVOKE);
+      out.writeVarInt(methodRef(v.getBootstrapMethodRef()));
+      writeValues(v.getBootstrapArgs());
+      out.writeVarInt(methodRef(v.getMethodRef()));
+      out.writeVarInt(v.getHandleTag());
+      writeValues(v.getArgs());
+    }
+
+    @Override
+    public void caseCastExpr(CastExpr v) {
+      out.writeByte(VALUE_CAST);
+      out.writeVarInt(type(v.getCastType()));
+      writeValue(v.getOp());
+    }
+
+    @Override
+    public void caseInstanceOfExpr(InstanceOfExpr v) {
+      out.writeByte(VALUE_INSTANCEOF);
+      out.writeVarInt(type(v.getCheckType()));
+      writeValue(v.getOp());
+    }
+
+    @Override
+    public void caseNewArrayExpr(NewArrayExpr v) {
+      out.writeByte(VALUE_NEWARRAY);
+      out.writeVarInt(type(v.getBaseType()));
+      writeValue(v.getSize());
+    }
+
+    @Override
+    public void caseNewMultiArrayExpr(NewMultiArrayExpr v) {
+      out.writeByte(VALUE_NEWMULTIARRAY);
+      out.writeVarInt(type(v.getBaseType()));
+      writeValues(v.getSizes());
+    }
+
+    @Override
+    public void caseNewExpr(NewExpr v) {
+      out.writeByte(VALUE_NEW);
+      out.writeVarInt(type(v.getBaseType()));
+    }
+
+    @Override
+    public void caseLengthExpr(LengthExpr v) {
+      out.writeByte(VALUE_LENGTH);
+      writeValue(v.getOp());
+    }
+
+    @Override
+    public void caseNegExpr(NegExpr v) {
+      out.writeByte(VALUE_NEG);
+      writeValue(v.getOp());
+    }
+
+    // References
+
+    @Override
+    public void caseArrayRef(ArrayRef v) {
+      out.writeByte(VALUE_ARRAY_REF);
+      writeValue(v.getBase());
+      writeValue(v.getIndex());
+    }
+
+    @Override
+    public void caseStaticFieldRef(StaticFieldRef v) {
+      out.writeByte(VALUE_STATIC_FIELD_REF);
+      out.writeVarInt(fieldRef(v.getFieldRef()));
+    }
+
+    @Override
+    public void caseInstanceFieldRef(InstanceFieldRef v) {
+      out.writeByte(VALUE_INSTANCE_FIELD_REF);
+      writeValue(v.getBase());
+      out.writeVarInt(fieldRef(v.getFieldRef()));
+    }
+
+    @Override
+    public void caseParameterRef(ParameterRef v) {
+      out.writeByte(VALUE_PARAMETER_REF);
+      out.writeVarInt(type(v.getType()));
+      out.writeVarInt(v.getIndex());
+    }
+
+    @Override
+    public void caseCaughtExceptionRef(CaughtExceptionRef v) {
+      out.writeByte(VALUE_CAUGHT_EXCEPTION_REF);
+    }
+
+    @Override
+    public void caseThisRef(ThisRef v) {
+      out.writeByte(VALUE_THIS_REF);
+      out.writeVarInt(type(v.getType()));
+    }
+
+    @Override
+    public void defaultCase(Object obj) {
+      throw new RuntimeException("Unsupported value in binary Jimple: " + obj + " (" + obj.getClass().getName() + ")");
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package soot.jimple.cache;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.G;
+import soot.Main;
+import soot.MethodSource;
+import soot.PackManager;
+import soot.PhaseOptions;
+import soot.Scene;
+import soot.Singletons;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Transform;
+import soot.jimple.binary.BinaryJimple;
+import soot.options.Options;
+
+/**
+ * A persistent cache for the Jimple bodies that the jb pack creates from class files. The bodies of a class are stored in
+ * a single binary Jimple file, see {@link BinaryJimple}, in the directory given by {@link Options#body_cache_dir()}. The
+ * name of that file is a hash over the class file, over the class path and over all options that influence the jb pack,
+ * so an entry is never used for a changed class, a changed class path or a run with different jb options.
+ *
+ * <p>
+ * Front ends call {@link #attach(SootClass, byte[])} once they have resolved a class. If the cache has an entry for the
+ * class, the method sources of the class are replaced by sources that read the bodies from the cache. Bodies that are
+ * missing from the entry, or all bodies if there is no entry, are created as usual and written to the cache once the jb
+ * pack has run on all of them, or at the latest when the cache is flushed.
+ * </p>
+ */
+public class BodyCache {
+  private static final Logger logger = LoggerFactory.getLogger(BodyCache.class);
+
+  private volatile String optionsFingerprint = null;
+  private volatile String classPathFingerprint = null;
+  private final Queue<PendingClass> pendingClasses = new ConcurrentLinkedQueue<PendingClass>();
+
+  public BodyCache(Singletons.Global g) {
+  }
+
+  public static BodyCache v() {
+    return G.v().soot_jimple_cache_BodyCache();
+  }
+
+  /**
+   * Returns true if bodies should be read from and written to the cache. The cached bodies carry no tags, so the cache is
+   * not used if the jb pack is expected to attach line numbers or bytecode offsets to the units.
+   */
+  public boolean isEnabled() {
+    final Options opts = Options.v();
+    return !opts.body_cache_dir().isEmpty() && !opts.keep_line_number() && !opts.keep_offset();
+  }
+
+  /**
+   * Replaces the method sources of the given class by sources that use the cache.
+   *
+   * @param sc
+   *          the class that has just been resolved from the given class file
+   * @param classFile
+   *          the contents of the class file
+   */
+  public void attach(SootClass sc, byte[] classFile) {
+    if (!isEnabled()) {
+      return;
+    }
+    int count = 0;
+    for (SootMethod m : sc.getMethods()) {
+      if (m.isConcrete() && m.getSource() != null) {
+        count++;
+      }
+    }
+    if (count == 0) {
+      return;
+    }
+
+    final File file = getCacheFile(computeKey(classFile));
+    final CachedClass cached = file.isFile() ? new CachedClass(file) : null;
+    PendingClass pending = new PendingClass(sc, file, cached, count);
+    pendingClasses.add(pending);
+    for (SootMethod m : sc.getMethods()) {
+      MethodSource ms = m.getSource();
+      if (m.isConcrete() && ms != null) {
+        // Bodies missing from an existing entry are created as usual and added to the entry
+        MethodSource storing = new StoringMethodSource(pending, ms);
+        m.setSource(cached == null ? storing : new CachedMethodSource(cached, storing));
+      }
+    }
+  }
+
+  /**
+   * Writes the entries of all classes for which bodies have been created in this run, including classes of which only some
+   * methods got a body. {@link soot.Main} calls this at the end of the run, other clients have to call it themselves.
+   */
+  public void flush() {
+    for (PendingClass pending : pendingClasses) {
+      pending.flush();
+    }
+    pendingClasses.clear();
+  }
+
+  /**
+   * Computes the key under which the bodies of the given class file are stored.
+   *
+   * @param classFile
+   *          the contents of the class file
+   * @return a hexadecimal hash over the class file and over the options of the jb pack
+   */
+  protected String computeKey(byte[] classFile) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    digest.update(getOptionsFingerprint().getBytes(StandardCharsets.UTF_8));
+    digest.update(getClassPathFingerprint().getBytes(StandardCharsets.UTF_8));
+    digest.update(classFile);
+
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns a string that describes all options that influence the bodies created by the jb pack. The fingerprint is
+   * computed once, options changed later on are not taken into account.
+   */
+  protected String getOptionsFingerprint() {
+    String fingerprint = optionsFingerprint;
+    if (fingerprint == null) {
+      final Options opts = Options.v();
+      final PhaseOptions phaseOptions = PhaseOptions.v();
+      StringBuilder sb = new StringBuilder();
+      sb.append(Main.versionString).append('\n');
+      sb.append("format:").append(BinaryJimple.VERSION).append('\n');
+      sb.append("src-prec:").append(opts.src_prec()).append('\n');
+      sb.append("throw-analysis:").append(opts.throw_analysis()).append('\n');
+      sb.append("check-init-throw-analysis:").append(opts.check_init_throw_analysis()).append('\n');
+      sb.append("omit-excepting-unit-edges:").append(opts.omit_excepting_unit_edges()).append('\n');
+      sb.append("ignore-resolution-errors:").append(opts.ignore_resolution_errors()).append('\n');
+      sb.append("wrong-staticness:").append(opts.wrong_staticness()).append('\n');
+      sb.append("field-type-mismatches:").append(opts.field_type_mismatches()).append('\n');
+      sb.append("allow-phantom-refs:").append(opts.allow_phantom_refs()).append('\n');
+      sb.append("allow-phantom-elms:").append(opts.allow_phantom_elms()).append('\n');
+      sb.append("j2me:").append(opts.j2me()).append('\n');
+      sb.append("jb:").append(new TreeMap<String, String>(phaseOptions.getPhaseOptions("jb"))).append('\n');
+      for (Transform t : PackManager.v().getPack("jb")) {
+        Map<String, String> options = phaseOptions.getPhaseOptions(t);
+        sb.append(t.getPhaseName()).append(':').append(new TreeMap<String, String>(options)).append('\n');
+      }
+      optionsFingerprint = fingerprint = sb.toString();
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Returns a string that describes the state of the class path. The jb pack types a body using the hierarchy of the
+   * classes it refers to, so a body may change although its class file does not. Since the referenced classes are not
+   * known before the body has been created, the fingerprint covers the size and modification time of every file on the
+   * class path. It is computed once per run.
+   */
+  protected String getClassPathFingerprint() {
+    String fingerprint = classPathFingerprint;
+    if (fingerprint == null) {
+      StringBuilder sb = new StringBuilder();
+      for (String entry : Scene.v().getSootClassPath().split(File.pathSeparator)) {
+        sb.append(entry).append('\n');
+        Path path;
+        try {
+          path = Paths.get(entry);
+        } catch (InvalidPathException e) {
+          continue;
+        }
+        if (Files.isDirectory(path)) {
+          try (Stream<Path> files = Files.walk(path)) {
+            files.filter(Files::isRegularFile).sorted().forEach(f -> appendFile(sb, f));
+          } catch (IOException | UncheckedIOException e) {
+            logger.debug("Could not list class path entry " + entry + ": " + e.getMessage());
+          }
+        } else if (Files.isRegularFile(path)) {
+          appendFile(sb, path);
+        }
+      }
+      classPathFingerprint = fingerprint = sb.toString();
+    }
+    return fingerprint;
+  }
+
+  private static void appendFile(StringBuilder sb, Path f) {
+    File file = f.toFile();
+    sb.append(f).append(':').append(file.length()).append(':').append(file.lastModified()).append('\n');
+  }
+
+  private File getCacheFile(String key) {
+    File dir = new File(Options.v().body_cache_dir(), key.substring(0, 2));
+    return new File(dir, key + BinaryJimple.FILE_EXTENSION);
+  }
+
+  /**
+   * Writes the given entry to the cache. The file is first written under a temporary name and then moved to its final name,
+   * so that concurrent runs never read a partially written entry.
+   */
+  void store(File file, byte[] contents) {
+    File dir = file.getParentFile();
+    dir.mkdirs();
+    File tmp = null;
+    try {
+      tmp = File.createTempFile(file.getName(), ".tmp", dir);
+      Files.write(tmp.toPath(), contents);
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      tmp = null;
+    } catch (IOException e) {
+      logger.warn("Could not write body cache entry " + file + ": " + e.getMessage());
+    } finally {
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+}
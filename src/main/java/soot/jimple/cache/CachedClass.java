@@ -0,0 +1,81 @@
+package soot.jimple.cache;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Body;
+import soot.SootMethod;
+import soot.jimple.binary.BinaryJimpleReader;
+
+/**
+ * The cached bodies of a single class. The cache entry is read when the first body is requested.
+ */
+class CachedClass {
+  private static final Logger logger = LoggerFactory.getLogger(CachedClass.class);
+
+  private final File file;
+  private BinaryJimpleReader reader;
+  private boolean failed = false;
+
+  CachedClass(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns the cached body of the given method.
+   *
+   * @param m
+   *          the method
+   * @return the body, or <code>null</code> if the cache entry could not be read or has no body for the method
+   */
+  Body getBody(SootMethod m) {
+    final BinaryJimpleReader reader = getReader();
+    if (reader == null) {
+      return null;
+    }
+    try {
+      return reader.readBody(m);
+    } catch (RuntimeException e) {
+      logger.warn("Could not read body of " + m.getSignature() + " from body cache entry " + file + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  private synchronized BinaryJimpleReader getReader() {
+    if (reader == null && !failed) {
+      try (InputStream in = new FileInputStream(file)) {
+        reader = new BinaryJimpleReader(in);
+      } catch (Exception e) {
+        logger.warn("Could not read body cache entry " + file + ": " + e.getMessage());
+        failed = true;
+      }
+    }
+    return reader;
+  }
+}
@@ -0,0 +1,48 @@
+package soot.jimple.cache;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import soot.Body;
+import soot.MethodSource;
+import soot.SootMethod;
+
+/**
+ * A method source that reads the body from the {@link BodyCache}. The body in the cache has already been processed by the
+ * jb pack, so the pack is not applied again. If the body cannot be read from the cache, it is created by the original
+ * method source instead.
+ */
+class CachedMethodSource implements MethodSource {
+  private final CachedClass cachedClass;
+  private final MethodSource original;
+
+  CachedMethodSource(CachedClass cachedClass, MethodSource original) {
+    this.cachedClass = cachedClass;
+    this.original = original;
+  }
+
+  @Override
+  public Body getBody(SootMethod m, String phaseName) {
+    Body b = cachedClass.getBody(m);
+    return b != null ? b : original.getBody(m, phaseName);
+  }
+}
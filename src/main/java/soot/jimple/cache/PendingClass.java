@@ -0,0 +1,153 @@
+package soot.jimple.cache;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Body;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.ValueBox;
+import soot.jimple.InvokeExpr;
+import soot.jimple.JimpleBody;
+import soot.jimple.binary.BinaryJimpleWriter;
+import soot.tagkit.ArtificialEntityTag;
+
+/**
+ * Collects the bodies of a class for the {@link BodyCache}. The bodies are encoded as soon as they have been created, i.e.,
+ * before any later pack can change them. The entry is written once the bodies of all methods are known, or when the cache
+ * is flushed at the end of the run. The latter matters for library classes in whole-program runs, of which only the
+ * reachable methods get bodies. If the class already has an entry, the bodies of that entry are merged into the new one.
+ */
+class PendingClass {
+  private static final Logger logger = LoggerFactory.getLogger(PendingClass.class);
+
+  private final SootClass sootClass;
+  private final File file;
+  private final CachedClass previous;
+  private final AtomicInteger remaining;
+  private final AtomicBoolean written = new AtomicBoolean(false);
+  private final BinaryJimpleWriter writer = new BinaryJimpleWriter();
+  private final Map<SootMethod, byte[]> bodies = new ConcurrentHashMap<SootMethod, byte[]>();
+  private final Set<SootMethod> recorded = ConcurrentHashMap.<SootMethod>newKeySet();
+
+  /**
+   * @param sootClass
+   *          the class whose bodies are collected
+   * @param file
+   *          the cache entry
+   * @param previous
+   *          the existing entry for the class, or <code>null</code> if there is none
+   * @param methodCount
+   *          the number of methods that may get a body
+   */
+  PendingClass(SootClass sootClass, File file, CachedClass previous, int methodCount) {
+    this.sootClass = sootClass;
+    this.file = file;
+    this.previous = previous;
+    this.remaining = new AtomicInteger(methodCount);
+  }
+
+  /**
+   * Records the body that has been created for the given method.
+   *
+   * @param m
+   *          the method
+   * @param b
+   *          the body, or <code>null</code> if no body could be created
+   */
+  void record(SootMethod m, Body b) {
+    if (written.get() || !recorded.add(m)) {
+      return;
+    }
+    if (b instanceof JimpleBody && isCacheable(b)) {
+      try {
+        bodies.put(m, writer.encodeBody(b));
+      } catch (RuntimeException e) {
+        logger.debug("Not caching the body of " + m.getSignature() + ": " + e.getMessage());
+      }
+    }
+    // Bodies that cannot be cached are left out of the entry, and created anew in every run
+    if (remaining.decrementAndGet() == 0 && previous == null) {
+      write();
+    }
+  }
+
+  /**
+   * Writes the entry with the bodies collected so far, unless it has already been written or no new body has been
+   * collected.
+   */
+  void flush() {
+    write();
+  }
+
+  private void write() {
+    if (bodies.isEmpty() || !written.compareAndSet(false, true)) {
+      return;
+    }
+    if (previous != null) {
+      for (SootMethod m : sootClass.getMethods()) {
+        if (m.isConcrete() && !bodies.containsKey(m)) {
+          Body b = previous.getBody(m);
+          if (b != null) {
+            bodies.put(m, writer.encodeBody(b));
+          }
+        }
+      }
+    }
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writer.write(sootClass, bodies, out);
+      BodyCache.v().store(file, out.toByteArray());
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not write body cache entry " + file + ": " + e.getMessage());
+    }
+  }
+  /**
+   * Checks whether the given body can be read back from the cache. Bodies that refer to classes that Soot creates on its
+   * own while building bodies, e.g., for lambda expressions, cannot be cached because the referenced classes would not
+   * exist in a later run.
+   */
+  private static boolean isCacheable(Body b) {
+    for (ValueBox vb : b.getUseAndDefBoxes()) {
+      Object v = vb.getValue();
+      if (v instanceof InvokeExpr) {
+        SootClass declaring = ((InvokeExpr) v).getMethodRef().getDeclaringClass();
+        if (declaring.hasTag(ArtificialEntityTag.NAME)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,53 @@
+package soot.jimple.cache;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import soot.Body;
+import soot.MethodSource;
+import soot.PreparableMethodSource;
+import soot.SootMethod;
+
+/**
+ * A method source that hands every body created by the original method source to a {@link PendingClass}, so that it can
+ * be written to the {@link BodyCache}.
+ */
+class StoringMethodSource implements PreparableMethodSource {
+  private final PendingClass pending;
+  private final MethodSource original;
+
+  StoringMethodSource(PendingClass pending, MethodSource original) {
+    this.pending = pending;
+    this.original = original;
+  }
+
+  @Override
+  public boolean prepare(SootMethod m) {
+    return original instanceof PreparableMethodSource && ((PreparableMethodSource) original).prepare(m);
+  }
+
+  @Override
+  public Body getBody(SootMethod m, String phaseName) {
+    Body b = original.getBody(m, phaseName);
+    pending.record(m, b);
+    return b;
+  }
+}
@@ -109,6 +109,16 @@ public final class TypeManager {
     if (type == null) {
       return null;
     }
+    update();
+    return peek(type);
+  }
+
+  /**
+   * Adds the allocation nodes created since the last call to the type masks. {@link #get(Type)} does this implicitly; callers
+   * that query masks through {@link #peek(Type)} from several threads must call this method beforehand, while no other thread
+   * is reading the masks.
+   */
+  final public void update() {
     while (allocNodeListener.hasNext()) {
       AllocNode n = allocNodeListener.next();
       Type nt = n.getType();
@@ -143,6 +153,16 @@ public final class TypeManager {
 
       }
     }
+  }
+
+  /**
+   * Returns the type mask of type without consuming newly created allocation nodes, so that it can be called concurrently as
+   * long as {@link #update()} is not running at the same time.
+   */
+  final public BitVector peek(Type type) {
+    if (type == null) {
+      return null;
+    }
     BitVector ret = (BitVector) typeMask.get(type);
     if (ret == null && fh != null) {
       // If we have a phantom class and have no type mask, we assume that
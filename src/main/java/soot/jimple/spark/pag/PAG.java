@@ -65,13 +65,16 @@ import soot.jimple.spark.internal.ClientAccessibilityOracle;
 import soot.jimple.spark.internal.SparkLibraryHelper;
 import soot.jimple.spark.internal.TypeManager;
 import soot.jimple.spark.sets.BitPointsToSet;
+import soot.jimple.spark.sets.ConcurrentBitPointsToSet;
 import soot.jimple.spark.sets.DoublePointsToSet;
 import soot.jimple.spark.sets.EmptyPointsToSet;
 import soot.jimple.spark.sets.HashPointsToSet;
 import soot.jimple.spark.sets.HybridPointsToSet;
 import soot.jimple.spark.sets.P2SetFactory;
+import soot.jimple.spark.sets.P2SetMemoryMonitor;
 import soot.jimple.spark.sets.P2SetVisitor;
 import soot.jimple.spark.sets.PointsToSetInternal;
+import soot.jimple.spark.sets.RoaringPointsToSet;
 import soot.jimple.spark.sets.SharedHybridSet;
 import soot.jimple.spark.sets.SharedListSet;
 import soot.jimple.spark.sets.SortedArraySet;
@@ -137,6 +140,9 @@ public class PAG implements PointsToAnalysis {
       case SparkOptions.set_impl_bit:
         setFactory = BitPointsToSet.getFactory();
         break;
+      case SparkOptions.set_impl_roaring:
+        setFactory = RoaringPointsToSet.getFactory();
+        break;
       case SparkOptions.set_impl_double:
         P2SetFactory oldF;
         P2SetFactory newF;
@@ -159,6 +165,9 @@ public class PAG implements PointsToAnalysis {
           case SparkOptions.double_set_old_bit:
             oldF = BitPointsToSet.getFactory();
             break;
+          case SparkOptions.double_set_old_roaring:
+            oldF = RoaringPointsToSet.getFactory();
+            break;
           default:
             throw new RuntimeException();
         }
@@ -181,6 +190,9 @@ public class PAG implements PointsToAnalysis {
           case SparkOptions.double_set_new_bit:
             newF = BitPointsToSet.getFactory();
             break;
+          case SparkOptions.double_set_new_roaring:
+            newF = RoaringPointsToSet.getFactory();
+            break;
           default:
             throw new RuntimeException();
         }
@@ -189,6 +201,13 @@ public class PAG implements PointsToAnalysis {
       default:
         throw new RuntimeException();
     }
+    if (opts.propagator() == SparkOptions.propagator_parallel) {
+      // The parallel propagator updates sets from several threads at once
+      if (opts.set_impl() != SparkOptions.set_impl_double) {
+        logger.warn("The parallel propagator always uses concurrent bit sets, ignoring set-impl");
+      }
+      setFactory = ConcurrentBitPointsToSet.getFactory();
+    }
     runGeomPTA = opts.geom_pta();
   }
 
@@ -269,6 +288,14 @@ public class PAG implements PointsToAnalysis {
     return setFactory;
   }
 
+  /** Returns the monitor that keeps track of the memory used by the points-to sets of this graph. */
+  public P2SetMemoryMonitor getMemoryMonitor() {
+    if (memoryMonitor == null) {
+      memoryMonitor = new P2SetMemoryMonitor(this);
+    }
+    return memoryMonitor;
+  }
+
   private <K extends Node> void lookupInMap(Map<K, Object> map) {
     for (K object : map.keySet()) {
       lookup(map, object);
@@ -582,6 +609,7 @@ public class PAG implements PointsToAnalysis {
   }
 
   protected P2SetFactory setFactory;
+  protected P2SetMemoryMonitor memoryMonitor;
   protected boolean somethingMerged = false;
 
   /**
@@ -103,6 +103,10 @@ public final class BitPointsToSet extends PointsToSetInternal {
     return bits.get(n.getNumber());
   }
 
+  public long sizeInBytes() {
+    return 48 + bits.size() / 8;
+  }
+
   public static P2SetFactory getFactory() {
     return new P2SetFactory() {
       public PointsToSetInternal newSet(Type type, PAG pag) {
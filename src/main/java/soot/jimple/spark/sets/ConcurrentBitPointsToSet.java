@@ -0,0 +1,220 @@
+package soot.jimple.spark.sets;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import soot.Type;
+import soot.jimple.spark.internal.TypeManager;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.util.BitVector;
+
+/**
+ * Implementation of points-to set using a bit vector that can be updated by several threads at once. The bits are kept in
+ * pages of atomic words; words are updated by compare-and-swap, and missing pages are installed under the set's lock. Type
+ * masks are read through {@link TypeManager#peek(Type)}, so the type manager has to be updated before sets are filled
+ * concurrently.
+ *
+ * @see soot.jimple.spark.solver.PropParallel
+ */
+public final class ConcurrentBitPointsToSet extends PointsToSetInternal {
+  private static final int PAGE_SHIFT = 12;
+  private static final int PAGE_WORDS = 1 << (PAGE_SHIFT - 6);
+  private static final AtomicLongArray[] NO_PAGES = new AtomicLongArray[0];
+
+  public ConcurrentBitPointsToSet(Type type, PAG pag) {
+    super(type);
+    this.pag = pag;
+  }
+
+  /** Returns true if this set contains no run-time objects. */
+  public final boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Adds contents of other into this set, returns true if this set changed.
+   */
+  public final boolean addAll(PointsToSetInternal other, PointsToSetInternal exclude) {
+    if (other != null && !(other instanceof ConcurrentBitPointsToSet)) {
+      return superAddAll(other, exclude);
+    }
+    if (exclude != null && !(exclude instanceof ConcurrentBitPointsToSet)) {
+      return superAddAll(other, exclude);
+    }
+    return nativeAddAll((ConcurrentBitPointsToSet) other, (ConcurrentBitPointsToSet) exclude);
+  }
+
+  /** Calls v's visit method on all nodes in this set. */
+  public final boolean forall(P2SetVisitor v) {
+    final AtomicLongArray[] pages = this.pages;
+    for (int p = 0; p < pages.length; p++) {
+      final AtomicLongArray page = pages[p];
+      if (page == null) {
+        continue;
+      }
+      for (int w = 0; w < PAGE_WORDS; w++) {
+        final int base = (p << PAGE_SHIFT) + (w << 6);
+        for (long bits = page.get(w); bits != 0L; bits &= bits - 1) {
+          v.visit((Node) pag.getAllocNodeNumberer().get(base + Long.numberOfTrailingZeros(bits)));
+        }
+      }
+    }
+    return v.getReturnValue();
+  }
+
+  /** Adds n to this set, returns true if n was not already in this set. */
+  public final boolean add(Node n) {
+    if (pag.getTypeManager().castNeverFails(n.getType(), type)) {
+      return fastAdd(n.getNumber());
+    }
+    return false;
+  }
+
+  /** Returns true iff the set contains n. */
+  public final boolean contains(Node n) {
+    final int bit = n.getNumber();
+    final AtomicLongArray[] pages = this.pages;
+    final int p = bit >>> PAGE_SHIFT;
+    if (p >= pages.length || pages[p] == null) {
+      return false;
+    }
+    return (pages[p].get((bit >>> 6) & (PAGE_WORDS - 1)) & (1L << bit)) != 0L;
+  }
+
+  public static P2SetFactory getFactory() {
+    return new P2SetFactory() {
+      public PointsToSetInternal newSet(Type type, PAG pag) {
+        return new ConcurrentBitPointsToSet(type, pag);
+      }
+    };
+  }
+
+  /* End of public methods. */
+  /* End of package methods. */
+
+  private boolean superAddAll(PointsToSetInternal other, PointsToSetInternal exclude) {
+    boolean ret = super.addAll(other, exclude);
+    if (ret) {
+      empty = false;
+    }
+    return ret;
+  }
+
+  private boolean nativeAddAll(ConcurrentBitPointsToSet other, ConcurrentBitPointsToSet exclude) {
+    if (other == null) {
+      return false;
+    }
+    BitVector mask = null;
+    TypeManager typeManager = pag.getTypeManager();
+    if (!typeManager.castNeverFails(other.getType(), this.getType())) {
+      mask = typeManager.peek(this.getType());
+    }
+    final AtomicLongArray[] opages = other.pages;
+    final AtomicLongArray[] epages = (exclude == null ? NO_PAGES : exclude.pages);
+    boolean ret = false;
+    for (int p = 0; p < opages.length; p++) {
+      final AtomicLongArray opage = opages[p];
+      if (opage == null) {
+        continue;
+      }
+      final AtomicLongArray epage = (p < epages.length ? epages[p] : null);
+      AtomicLongArray page = null;
+      for (int w = 0; w < PAGE_WORDS; w++) {
+        long bits = opage.get(w);
+        if (bits == 0L) {
+          continue;
+        }
+        if (epage != null) {
+          bits &= ~epage.get(w);
+        }
+        if (mask != null) {
+          bits = filter(bits, mask, (p << PAGE_SHIFT) + (w << 6));
+        }
+        if (bits == 0L) {
+          continue;
+        }
+        if (page == null) {
+          page = makePage(p);
+        }
+        ret |= setBits(page, w, bits);
+      }
+    }
+    return ret;
+  }
+
+  private static long filter(long bits, BitVector mask, int base) {
+    long ret = 0L;
+    for (long b = bits; b != 0L; b &= b - 1) {
+      final int i = Long.numberOfTrailingZeros(b);
+      if (mask.get(base + i)) {
+        ret |= 1L << i;
+      }
+    }
+    return ret;
+  }
+
+  private boolean fastAdd(int bit) {
+    return setBits(makePage(bit >>> PAGE_SHIFT), (bit >>> 6) & (PAGE_WORDS - 1), 1L << bit);
+  }
+
+  private boolean setBits(AtomicLongArray page, int word, long bits) {
+    long old;
+    do {
+      old = page.get(word);
+      if ((old | bits) == old) {
+        return false;
+      }
+    } while (!page.compareAndSet(word, old, old | bits));
+    empty = false;
+    return true;
+  }
+
+  private AtomicLongArray makePage(int p) {
+    AtomicLongArray[] pages = this.pages;
+    if (p < pages.length && pages[p] != null) {
+      return pages[p];
+    }
+    synchronized (this) {
+      pages = this.pages;
+      if (p < pages.length) {
+        if (pages[p] != null) {
+          return pages[p];
+        }
+        pages = pages.clone();
+      } else {
+        pages = Arrays.copyOf(pages, Math.max(p + 1, pages.length * 2));
+      }
+      final AtomicLongArray page = new AtomicLongArray(PAGE_WORDS);
+      pages[p] = page;
+      this.pages = pages;
+      return page;
+    }
+  }
+
+  private volatile AtomicLongArray[] pages = NO_PAGES;
+  private volatile boolean empty = true;
+  private final PAG pag;
+}
@@ -100,6 +100,13 @@ public class DoublePointsToSet extends PointsToSetInternal {
 
   /** Sets all newly-added nodes to old nodes. */
   public void flushNew() {
+    if (oldSetShared && !newSet.isEmpty()) {
+      // Other sets hold the same old set, copy it before adding to it
+      PointsToSetInternal copy = G.v().oldSetFactory.newSet(type, pag);
+      copy.addAll(oldSet, null);
+      oldSet = copy;
+      oldSetShared = false;
+    }
     oldSet.addAll(newSet, null);
     newSet = G.v().newSetFactory.newSet(type, pag);
   }
@@ -108,6 +115,12 @@ public class DoublePointsToSet extends PointsToSetInternal {
   public void unFlushNew() {
     newSet.addAll(oldSet, null);
     oldSet = G.v().oldSetFactory.newSet(type, pag);
+    oldSetShared = false;
+  }
+
+  /** Returns an estimate of the number of bytes used by this set, including a shared old set. */
+  public long sizeInBytes() {
+    return 32 + oldSet.sizeInBytes() + newSet.sizeInBytes();
   }
 
   /** Merges other into this set. */
@@ -135,6 +148,7 @@ public class DoublePointsToSet extends PointsToSetInternal {
     newNewSet.addAll(o, newOldSet);
     newSet = newNewSet;
     oldSet = newOldSet;
+    oldSetShared = false;
   }
 
   /** Returns true iff the set contains n. */
@@ -155,9 +169,24 @@ public class DoublePointsToSet extends PointsToSetInternal {
   }
 
   /* End of public methods. */
+
+  /**
+   * Replaces the old set by the given set with the same contents, which may also be used by other sets. It is copied before
+   * this set adds to it.
+   */
+  void shareOldSet(PointsToSetInternal shared) {
+    oldSet = shared;
+    oldSetShared = true;
+  }
+
+  boolean isOldSetShared() {
+    return oldSetShared;
+  }
+
   /* End of package methods. */
 
   private PAG pag;
+  private boolean oldSetShared = false;
   protected PointsToSetInternal newSet;
   protected PointsToSetInternal oldSet;
 }
@@ -80,6 +80,11 @@ public final class HashPointsToSet extends PointsToSetInternal {
     return s.contains(n);
   }
 
+  public long sizeInBytes() {
+    // A HashSet entry takes a table slot and a map entry
+    return 64 + 48L * s.size();
+  }
+
   public static P2SetFactory getFactory() {
     return new P2SetFactory() {
       public PointsToSetInternal newSet(Type type, PAG pag) {
@@ -151,6 +151,10 @@ public class HybridPointsToSet extends PointsToSetInternal {
     }
   }
 
+  public long sizeInBytes() {
+    return 48 + 8L * nodes.length + (bits == null ? 0 : 24 + bits.size() / 8);
+  }
+
   public static P2SetFactory<HybridPointsToSet> getFactory() {
     return HYBRID_PTS_FACTORY;
   }
@@ -0,0 +1,221 @@
+package soot.jimple.spark.sets;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Type;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+
+/**
+ * Keeps track of the memory used by the points-to sets of a {@link PAG}, per set implementation. Propagators call
+ * {@link #check()} between their iterations. When the estimate exceeds the budget given by the p2set-memory-budget option,
+ * the old sets of {@link DoublePointsToSet}s with the same type and contents are replaced by a single shared set, which the
+ * double sets copy again before they add to it.
+ */
+public class P2SetMemoryMonitor {
+  private static final Logger logger = LoggerFactory.getLogger(P2SetMemoryMonitor.class);
+
+  private final PAG pag;
+  private final long budget;
+  private final boolean enabled;
+
+  private Map<String, Long> bytesByImplementation = Collections.emptyMap();
+  private long totalBytes = 0;
+  private long peakBytes = 0;
+  private int compactions = 0;
+  private int sharedOldSets = 0;
+  private boolean warnedOverBudget = false;
+
+  public P2SetMemoryMonitor(PAG pag) {
+    this(pag, pag.getOpts().p2set_memory_budget() * 1024L * 1024L);
+  }
+
+  /**
+   * @param budget
+   *          the budget in bytes, or 0 for none
+   */
+  P2SetMemoryMonitor(PAG pag, long budget) {
+    this.pag = pag;
+    this.budget = budget;
+    this.enabled = budget > 0 || pag.getOpts().verbose();
+  }
+
+  /**
+   * Measures the memory used by the points-to sets, and compacts them if this exceeds the budget. Does nothing unless a
+   * budget is set or Spark is verbose.
+   */
+  public void check() {
+    if (!enabled) {
+      return;
+    }
+    measure();
+    if (budget > 0 && totalBytes > budget) {
+      compact();
+      measure();
+      if (totalBytes > budget && !warnedOverBudget) {
+        logger.warn("Points-to sets use about " + totalBytes / (1024 * 1024) + " MB after compaction, more than the budget of "
+            + budget / (1024 * 1024) + " MB");
+        warnedOverBudget = true;
+      }
+    }
+  }
+
+  /** Logs the numbers of the last measurement. */
+  public void report() {
+    logger.debug("[Spark] Points-to sets use about " + totalBytes / 1024 + " kB, at most " + peakBytes / 1024 + " kB");
+    for (Map.Entry<String, Long> e : bytesByImplementation.entrySet()) {
+      logger.debug("[Spark]   " + e.getKey() + ": " + e.getValue() / 1024 + " kB");
+    }
+    logger.debug("[Spark] " + compactions + " compactions shared " + sharedOldSets + " old sets");
+  }
+
+  /** Returns the estimated bytes used per set implementation by the last measurement. */
+  public Map<String, Long> getBytesByImplementation() {
+    return bytesByImplementation;
+  }
+
+  /** Returns the estimated bytes used by all points-to sets at the last measurement. */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /** Returns the largest estimate of all measurements. */
+  public long getPeakBytes() {
+    return peakBytes;
+  }
+
+  /** Returns how often the points-to sets have been compacted because they exceeded the budget. */
+  public int getCompactions() {
+    return compactions;
+  }
+
+  /** Returns how many old sets have been replaced by a shared set in all compactions. */
+  public int getSharedOldSets() {
+    return sharedOldSets;
+  }
+
+  private void measure() {
+    final Map<String, Long> bytes = new TreeMap<String, Long>();
+    // Shared old sets are only counted once
+    final Set<PointsToSetInternal> seen = Collections.newSetFromMap(new IdentityHashMap<PointsToSetInternal, Boolean>());
+    long total = 0;
+    for (Node n : pag.getVarNodeNumberer()) {
+      total += measure(n, bytes, seen);
+    }
+    for (Node n : pag.getFieldRefNodeNumberer()) {
+      total += measure(n, bytes, seen);
+    }
+    for (Node n : pag.getAllocDotFieldNodeNumberer()) {
+      total += measure(n, bytes, seen);
+    }
+    bytesByImplementation = Collections.unmodifiableMap(bytes);
+    totalBytes = total;
+    peakBytes = Math.max(peakBytes, total);
+  }
+
+  private static long measure(Node n, Map<String, Long> bytes, Set<PointsToSetInternal> seen) {
+    if (n.getReplacement() != n) {
+      // Merged nodes share the set of their representative
+      return 0;
+    }
+    PointsToSetInternal set = n.getP2Set();
+    if (set instanceof DoublePointsToSet) {
+      return measure(set.getNewSet(), "new ", bytes, seen) + measure(set.getOldSet(), "old ", bytes, seen);
+    }
+    return measure(set, "", bytes, seen);
+  }
+
+  private static long measure(PointsToSetInternal set, String prefix, Map<String, Long> bytes,
+      Set<PointsToSetInternal> seen) {
+    if (set instanceof EmptyPointsToSet || !seen.add(set)) {
+      return 0;
+    }
+    long size = set.sizeInBytes();
+    String key = prefix + set.getClass().getSimpleName();
+    Long old = bytes.get(key);
+    bytes.put(key, old == null ? size : old + size);
+    return size;
+  }
+
+  private void compact() {
+    final Map<Type, Map<PointsToSetEqualsWrapper, DoublePointsToSet>> pool
+        = new HashMap<Type, Map<PointsToSetEqualsWrapper, DoublePointsToSet>>();
+    int shared = 0;
+    for (Node n : pag.getVarNodeNumberer()) {
+      shared += compact(n, pool);
+    }
+    for (Node n : pag.getFieldRefNodeNumberer()) {
+      shared += compact(n, pool);
+    }
+    for (Node n : pag.getAllocDotFieldNodeNumberer()) {
+      shared += compact(n, pool);
+    }
+    compactions++;
+    sharedOldSets += shared;
+    logger.debug("[Spark] Points-to sets exceeded the memory budget, shared " + shared + " old sets");
+  }
+
+  private static int compact(Node n, Map<Type, Map<PointsToSetEqualsWrapper, DoublePointsToSet>> pool) {
+    if (n.getReplacement() != n) {
+      return 0;
+    }
+    PointsToSetInternal set = n.getP2Set();
+    if (!(set instanceof DoublePointsToSet)) {
+      return 0;
+    }
+    DoublePointsToSet d = (DoublePointsToSet) set;
+    PointsToSetInternal old = d.getOldSet();
+    if (old.isEmpty()) {
+      return 0;
+    }
+    Map<PointsToSetEqualsWrapper, DoublePointsToSet> sets = pool.get(d.getType());
+    if (sets == null) {
+      sets = new HashMap<PointsToSetEqualsWrapper, DoublePointsToSet>();
+      pool.put(d.getType(), sets);
+    }
+    PointsToSetEqualsWrapper key = new PointsToSetEqualsWrapper(old);
+    DoublePointsToSet owner = sets.get(key);
+    if (owner == null) {
+      sets.put(key, d);
+      return 0;
+    }
+    PointsToSetInternal canonical = owner.getOldSet();
+    if (canonical == old) {
+      return 0;
+    }
+    // The set is no longer owned by a single double set
+    owner.shareOldSet(canonical);
+    d.shareOldSet(canonical);
+    return 1;
+  }
+}
@@ -170,6 +170,14 @@ public abstract class PointsToSetInternal implements PointsToSet, EqualsSupporti
     return ret[0];
   }
 
+  /**
+   * Returns an estimate of the number of bytes used by this set. The default estimate assumes one reference per element;
+   * implementations override it with an estimate based on their actual storage.
+   */
+  public long sizeInBytes() {
+    return 16 + 8L * size();
+  }
+
   public String toString() {
     final StringBuffer ret = new StringBuffer();
     this.forall(new P2SetVisitor() {
@@ -0,0 +1,118 @@
+package soot.jimple.spark.sets;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.function.IntConsumer;
+
+import soot.Type;
+import soot.jimple.spark.internal.TypeManager;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.util.BitVector;
+import soot.util.RoaringBitVector;
+
+/**
+ * Implementation of points-to set using a compressed bit vector. Unlike {@link BitPointsToSet} and
+ * {@link HybridPointsToSet}, whose bit vectors span all allocation nodes up to the largest one in the set, this set only
+ * stores the chunks of 2^16 allocation nodes that it actually contains, as sorted arrays, bitmaps or runs.
+ *
+ * @see RoaringBitVector
+ */
+public final class RoaringPointsToSet extends PointsToSetInternal {
+  private final RoaringBitVector bits = new RoaringBitVector();
+  private final PAG pag;
+
+  public RoaringPointsToSet(Type type, PAG pag) {
+    super(type);
+    this.pag = pag;
+  }
+
+  /** Returns true if this set contains no run-time objects. */
+  public final boolean isEmpty() {
+    return bits.isEmpty();
+  }
+
+  /**
+   * Adds contents of other into this set, returns true if this set changed.
+   */
+  public final boolean addAll(PointsToSetInternal other, PointsToSetInternal exclude) {
+    if (other != null && !(other instanceof RoaringPointsToSet)) {
+      return super.addAll(other, exclude);
+    }
+    if (exclude != null && !(exclude instanceof RoaringPointsToSet)) {
+      return super.addAll(other, exclude);
+    }
+    return nativeAddAll((RoaringPointsToSet) other, (RoaringPointsToSet) exclude);
+  }
+
+  private boolean nativeAddAll(RoaringPointsToSet other, RoaringPointsToSet exclude) {
+    BitVector mask = null;
+    TypeManager typeManager = pag.getTypeManager();
+    if (!typeManager.castNeverFails(other.getType(), this.getType())) {
+      mask = typeManager.get(this.getType());
+    }
+    return bits.orAndAndNot(other.bits, mask, exclude == null ? null : exclude.bits);
+  }
+
+  /** Calls v's visit method on all nodes in this set. */
+  public final boolean forall(final P2SetVisitor v) {
+    bits.forEach(new IntConsumer() {
+      @Override
+      public void accept(int number) {
+        v.visit((Node) pag.getAllocNodeNumberer().get(number));
+      }
+    });
+    return v.getReturnValue();
+  }
+
+  /** Adds n to this set, returns true if n was not already in this set. */
+  public final boolean add(Node n) {
+    if (pag.getTypeManager().castNeverFails(n.getType(), type)) {
+      return bits.set(n.getNumber());
+    }
+    return false;
+  }
+
+  /** Returns true iff the set contains n. */
+  public final boolean contains(Node n) {
+    return bits.get(n.getNumber());
+  }
+
+  @Override
+  public int size() {
+    return bits.cardinality();
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 24 + bits.sizeInBytes();
+  }
+
+  public static P2SetFactory getFactory() {
+    return new P2SetFactory() {
+      public PointsToSetInternal newSet(Type type, PAG pag) {
+        return new RoaringPointsToSet(type, pag);
+      }
+    };
+  }
+}
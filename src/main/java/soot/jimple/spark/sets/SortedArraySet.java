@@ -162,6 +162,10 @@ public final class SortedArraySet extends PointsToSetInternal {
     return false;
   }
 
+  public long sizeInBytes() {
+    return 32 + (nodes == null ? 0 : 16 + 8L * nodes.length);
+  }
+
   public final static P2SetFactory getFactory() {
     return new P2SetFactory() {
       public final PointsToSetInternal newSet(Type type, PAG pag) {
@@ -144,6 +144,7 @@ public class PropAlias extends Propagator {
         getP2Set(src).flushNew();
       }
       outFieldRefWorkList = new HashSet<FieldRefNode>();
+      pag.getMemoryMonitor().check();
     } while (!varNodeWorkList.isEmpty());
   }
 
@@ -104,6 +104,7 @@ public class PropCycle extends Propagator {
         }
         changed = true;
       }
+      pag.getMemoryMonitor().check();
     } while (changed);
   }
 
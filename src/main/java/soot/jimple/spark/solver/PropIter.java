@@ -108,6 +108,7 @@ public class PropIter extends Propagator {
       for (NewInstanceNode object : pag.assignInstanceSources()) {
         change = handleNewInstances(object) | change;
       }
+      pag.getMemoryMonitor().check();
     } while (change);
   }
 
@@ -102,6 +102,7 @@ public class PropMerge extends Propagator {
           }
         }
       }
+      pag.getMemoryMonitor().check();
     } while (!varNodeWorkList.isEmpty());
   }
 
@@ -0,0 +1,479 @@
+package soot.jimple.spark.solver;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.Type;
+import soot.jimple.spark.pag.AllocDotField;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.ClassConstantNode;
+import soot.jimple.spark.pag.FieldRefNode;
+import soot.jimple.spark.pag.NewInstanceNode;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.pag.SparkField;
+import soot.jimple.spark.pag.VarNode;
+import soot.jimple.spark.sets.P2SetVisitor;
+import soot.jimple.spark.sets.PointsToSetInternal;
+import soot.options.Options;
+import soot.util.ArrayNumberer;
+import soot.util.queue.QueueReader;
+
+/**
+ * Propagates points-to sets along pointer assignment graph using several threads. The propagation runs in rounds. In each
+ * round, the closure over the simple edges is computed in parallel on a work-stealing pool, starting from the nodes whose
+ * points-to sets grew in the previous round. Stores, the on-the-fly call graph and reflective allocations then run
+ * sequentially, since they add nodes and edges to the graph, and finally the loads whose base or field sets grew are swept
+ * in parallel again. Requires points-to sets that can be updated concurrently, such as
+ * {@link soot.jimple.spark.sets.ConcurrentBitPointsToSet}.
+ */
+public class PropParallel extends Propagator {
+  private static final Logger logger = LoggerFactory.getLogger(PropParallel.class);
+
+  /** Number of queued nodes above which a task hands half of its work to the other threads. */
+  private static final int SPLIT_THRESHOLD = 256;
+
+  /** Number of loads below which a task does not split any further. */
+  private static final int LOAD_CHUNK = 64;
+
+  public PropParallel(PAG pag) {
+    this(pag, Options.v().num_threads());
+  }
+
+  public PropParallel(PAG pag, int threadNum) {
+    this(pag, threadNum, SPLIT_THRESHOLD, LOAD_CHUNK);
+  }
+
+  PropParallel(PAG pag, int threadNum, int splitThreshold, int loadChunk) {
+    this.pag = pag;
+    this.threadNum = threadNum < 1 ? Runtime.getRuntime().availableProcessors() : threadNum;
+    this.splitThreshold = splitThreshold;
+    this.loadChunk = loadChunk;
+  }
+
+  /** Actually does the propagation. */
+  public void propagate() {
+    ofcg = pag.getOnFlyCallGraph();
+    pool = new ForkJoinPool(threadNum, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        t.setName("Spark propagator " + t.getPoolIndex());
+        return t;
+      }
+    }, null, false);
+
+    try {
+      List<VarNode> pending = new ArrayList<VarNode>();
+      for (AllocNode object : pag.allocSources()) {
+        for (Node element : pag.allocLookup(object)) {
+          if (element.makeP2Set().add(object)) {
+            pending.add((VarNode) element.getReplacement());
+          }
+        }
+      }
+
+      boolean verbose = pag.getOpts().verbose();
+      int round = 0;
+      while (!pending.isEmpty()) {
+        round++;
+        if (verbose) {
+          logger.debug("Round " + round + " starts with " + pending.size() + " nodes.");
+        }
+        Collection<VarNode> changed = propagateSimple(pending);
+        pending = new ArrayList<VarNode>();
+
+        boolean fieldsChanged = handleStores(changed);
+        updateCallGraph(changed, pending);
+        handleNewInstances(pending);
+        handleLoads(changed, fieldsChanged, pending);
+        pag.getMemoryMonitor().check();
+      }
+      if (verbose) {
+        logger.debug("Propagation finished after " + round + " rounds, " + forkedTasks.get() + " tasks were forked.");
+      }
+    } finally {
+      pool.shutdown();
+      pool = null;
+      simpleTargets = null;
+      queued = null;
+      grown = null;
+    }
+  }
+
+  /* End of public methods. */
+  /* End of package methods. */
+
+  /**
+   * Propagates the points-to sets of the given nodes along the simple and new-instance edges until nothing changes any more.
+   * Returns all var nodes whose points-to sets grew, including the given ones.
+   */
+  protected Collection<VarNode> propagateSimple(List<VarNode> seeds) {
+    pag.getTypeManager().update();
+
+    final ArrayNumberer<VarNode> varNodes = pag.getVarNodeNumberer();
+    final int size = varNodes.size() + 1;
+    simpleTargets = new Node[size][];
+    for (VarNode src : pag.simpleSources()) {
+      addTargets(src, pag.simpleLookup(src));
+    }
+    for (VarNode src : pag.newInstanceSources()) {
+      addTargets(src, pag.newInstanceLookup(src));
+    }
+    queued = new AtomicIntegerArray(size);
+    grown = new AtomicIntegerArray(size);
+
+    List<VarNode> roots = new ArrayList<VarNode>(seeds.size());
+    for (VarNode seed : seeds) {
+      grown.set(seed.getNumber(), 1);
+      if (queued.compareAndSet(seed.getNumber(), 0, 1)) {
+        roots.add(seed);
+      }
+    }
+    pool.invoke(new SimpleTask(roots.toArray(new VarNode[roots.size()])));
+
+    List<VarNode> ret = new ArrayList<VarNode>();
+    for (int i = 1; i < size; i++) {
+      if (grown.get(i) != 0) {
+        ret.add(varNodes.get(i));
+      }
+    }
+    return ret;
+  }
+
+  private void addTargets(VarNode src, Node[] targets) {
+    if (targets.length == 0) {
+      return;
+    }
+    final int number = src.getReplacement().getNumber();
+    Node[] old = simpleTargets[number];
+    int offset = 0;
+    if (old == null) {
+      simpleTargets[number] = new Node[targets.length];
+    } else {
+      offset = old.length;
+      simpleTargets[number] = new Node[offset + targets.length];
+      System.arraycopy(old, 0, simpleTargets[number], 0, offset);
+    }
+    for (int i = 0; i < targets.length; i++) {
+      // Make the sets now, the worker threads must not create them
+      Node target = targets[i].getReplacement();
+      target.makeP2Set();
+      simpleTargets[number][offset + i] = target;
+    }
+  }
+
+  /**
+   * Propagates the points-to sets of changed nodes into the fields they are stored to, and the points-to sets of stored
+   * nodes into the fields of changed bases. Returns true if any field changed.
+   */
+  protected boolean handleStores(Collection<VarNode> changed) {
+    boolean ret = false;
+    for (final VarNode src : changed) {
+      for (Node element : pag.storeLookup(src)) {
+        final FieldRefNode target = (FieldRefNode) element;
+        ret = target.getBase().getP2Set().forall(new P2SetVisitor() {
+          public final void visit(Node n) {
+            returnValue = store(src, pag.makeAllocDotField((AllocNode) n, target.getField())) | returnValue;
+          }
+        }) | ret;
+      }
+      for (final FieldRefNode fr : src.getAllFieldRefs()) {
+        final Node[] storeSources = pag.storeInvLookup(fr);
+        if (storeSources.length == 0) {
+          continue;
+        }
+        ret = src.getP2Set().forall(new P2SetVisitor() {
+          public final void visit(Node n) {
+            AllocDotField nDotF = pag.makeAllocDotField((AllocNode) n, fr.getField());
+            for (Node element : storeSources) {
+              returnValue = store((VarNode) element, nDotF) | returnValue;
+            }
+          }
+        }) | ret;
+      }
+    }
+    return ret;
+  }
+
+  private boolean store(VarNode src, AllocDotField nDotF) {
+    if (ofcg != null) {
+      ofcg.updatedFieldRef(nDotF, src.getP2Set());
+    }
+    return nDotF.makeP2Set().addAll(src.getP2Set(), null);
+  }
+
+  /**
+   * Notifies the on-the-fly call graph of the changed nodes and propagates along the edges it adds. Nodes whose points-to
+   * sets grow are added to pending.
+   */
+  protected void updateCallGraph(Collection<VarNode> changed, List<VarNode> pending) {
+    if (ofcg == null) {
+      return;
+    }
+    QueueReader<Node> addedEdges = pag.edgeReader();
+    for (VarNode src : changed) {
+      ofcg.updatedNode(src);
+    }
+    ofcg.build();
+    pag.getTypeManager().update();
+
+    while (addedEdges.hasNext()) {
+      Node addedSrc = addedEdges.next();
+      Node addedTgt = addedEdges.next();
+      if (addedSrc instanceof VarNode) {
+        VarNode edgeSrc = (VarNode) addedSrc.getReplacement();
+        if (addedTgt instanceof VarNode) {
+          VarNode edgeTgt = (VarNode) addedTgt.getReplacement();
+          if (edgeTgt.makeP2Set().addAll(edgeSrc.getP2Set(), null)) {
+            pending.add(edgeTgt);
+          }
+        } else if (addedTgt instanceof NewInstanceNode) {
+          addedTgt.getReplacement().makeP2Set().addAll(edgeSrc.getP2Set(), null);
+        }
+      } else if (addedSrc instanceof AllocNode) {
+        VarNode edgeTgt = (VarNode) addedTgt.getReplacement();
+        if (edgeTgt.makeP2Set().add(addedSrc)) {
+          pending.add(edgeTgt);
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the objects allocated by reflective calls to newInstance() for the classes reaching the receiver.
+   */
+  protected void handleNewInstances(final List<VarNode> pending) {
+    for (final NewInstanceNode src : pag.assignInstanceSources()) {
+      final NewInstanceNode edgeSrc = (NewInstanceNode) src.getReplacement();
+      for (Node element : pag.assignInstanceLookup(src)) {
+        final VarNode edgeTgt = (VarNode) element.getReplacement();
+        edgeSrc.getP2Set().forall(new P2SetVisitor() {
+          public final void visit(Node n) {
+            if (n instanceof ClassConstantNode) {
+              ClassConstantNode ccn = (ClassConstantNode) n;
+              Type ccnType = ccn.getClassConstant().toSootType();
+
+              // If the referenced class has not been loaded, we do this now
+              SootClass targetClass = ((RefType) ccnType).getSootClass();
+              if (targetClass.resolvingLevel() == SootClass.DANGLING) {
+                Scene.v().forceResolve(targetClass.getName(), SootClass.SIGNATURES);
+              }
+
+              if (edgeTgt.makeP2Set().add(pag.makeAllocNode(edgeSrc.getValue(), ccnType, ccn.getMethod()))) {
+                pending.add(edgeTgt);
+              }
+            }
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Propagates the fields of the objects reaching the bases of loads into the targets of the loads. If no field changed,
+   * only the loads whose bases changed are considered. Nodes whose points-to sets grow are added to pending.
+   */
+  protected void handleLoads(Collection<VarNode> changed, boolean fieldsChanged, List<VarNode> pending) {
+    Collection<FieldRefNode> sources;
+    if (fieldsChanged) {
+      sources = pag.loadSources();
+    } else {
+      sources = new LinkedHashSet<FieldRefNode>();
+      for (VarNode base : changed) {
+        sources.addAll(base.getAllFieldRefs());
+      }
+    }
+
+    List<FieldRefNode> loads = new ArrayList<FieldRefNode>(sources.size());
+    List<Node[]> targets = new ArrayList<Node[]>(sources.size());
+    for (FieldRefNode fr : sources) {
+      Node[] loadTargets = pag.loadLookup(fr);
+      if (loadTargets.length == 0 || fr.getBase().getP2Set().isEmpty()) {
+        continue;
+      }
+      Node[] reps = new Node[loadTargets.length];
+      for (int i = 0; i < loadTargets.length; i++) {
+        reps[i] = loadTargets[i].getReplacement();
+        reps[i].makeP2Set();
+      }
+      loads.add(fr);
+      targets.add(reps);
+    }
+    if (loads.isEmpty()) {
+      return;
+    }
+
+    pag.getTypeManager().update();
+    Set<VarNode> loaded = Collections.newSetFromMap(new ConcurrentHashMap<VarNode, Boolean>());
+    pool.invoke(new LoadTask(loads.toArray(new FieldRefNode[loads.size()]), targets.toArray(new Node[targets.size()][]),
+        0, loads.size(), loaded));
+    pending.addAll(loaded);
+  }
+
+  /**
+   * Drains a stack of var nodes, pushing every target whose points-to set grows, and forks half of the stack off whenever it
+   * grows large.
+   */
+  private final class SimpleTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final VarNode[] roots;
+
+    SimpleTask(VarNode[] roots) {
+      this.roots = roots;
+    }
+
+    @Override
+    protected void compute() {
+      ArrayDeque<VarNode> stack = new ArrayDeque<VarNode>(roots.length);
+      for (VarNode root : roots) {
+        stack.push(root);
+      }
+      List<SimpleTask> forked = new ArrayList<SimpleTask>();
+      while (!stack.isEmpty()) {
+        if (stack.size() > splitThreshold) {
+          VarNode[] half = new VarNode[stack.size() / 2];
+          for (int i = 0; i < half.length; i++) {
+            half[i] = stack.pollLast();
+          }
+          SimpleTask task = new SimpleTask(half);
+          task.fork();
+          forked.add(task);
+          forkedTasks.incrementAndGet();
+        }
+
+        VarNode src = stack.pop();
+        queued.set(src.getNumber(), 0);
+        Node[] targets = simpleTargets[src.getNumber()];
+        if (targets == null) {
+          continue;
+        }
+        PointsToSetInternal srcSet = src.getP2Set();
+        if (srcSet.isEmpty()) {
+          continue;
+        }
+        for (Node target : targets) {
+          if (target.getP2Set().addAll(srcSet, null) && target instanceof VarNode) {
+            int number = target.getNumber();
+            grown.set(number, 1);
+            if (queued.compareAndSet(number, 0, 1)) {
+              stack.push((VarNode) target);
+            }
+          }
+        }
+      }
+      for (SimpleTask task : forked) {
+        task.join();
+      }
+    }
+  }
+
+  /**
+   * Handles a range of loads, splitting it in halves until it is small enough.
+   */
+  private final class LoadTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final FieldRefNode[] loads;
+    private final Node[][] targets;
+    private final int from;
+    private final int to;
+    private final Set<VarNode> loaded;
+
+    LoadTask(FieldRefNode[] loads, Node[][] targets, int from, int to, Set<VarNode> loaded) {
+      this.loads = loads;
+      this.targets = targets;
+      this.from = from;
+      this.to = to;
+      this.loaded = loaded;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > loadChunk) {
+        int mid = (from + to) >>> 1;
+        forkedTasks.addAndGet(2);
+        invokeAll(new LoadTask(loads, targets, from, mid, loaded), new LoadTask(loads, targets, mid, to, loaded));
+        return;
+      }
+      for (int i = from; i < to; i++) {
+        final SparkField field = loads[i].getField();
+        final Node[] loadTargets = targets[i];
+        loads[i].getBase().getP2Set().forall(new P2SetVisitor() {
+          public final void visit(Node n) {
+            AllocDotField nDotF = ((AllocNode) n).dot(field);
+            if (nDotF == null) {
+              return;
+            }
+            PointsToSetInternal p2Set = nDotF.getP2Set();
+            if (p2Set.isEmpty()) {
+              return;
+            }
+            for (Node target : loadTargets) {
+              if (target.getP2Set().addAll(p2Set, null)) {
+                loaded.add((VarNode) target);
+              }
+            }
+          }
+        });
+      }
+    }
+  }
+
+  protected final PAG pag;
+  protected final int threadNum;
+  protected OnFlyCallGraph ofcg;
+
+  private final int splitThreshold;
+  private final int loadChunk;
+  // Number of tasks forked by the simple and load phases, for statistics
+  final AtomicInteger forkedTasks = new AtomicInteger();
+
+  private ForkJoinPool pool;
+  // Snapshot of the simple and new-instance edges, indexed by the number of the source node
+  private Node[][] simpleTargets;
+  // Per var node, whether it is on the stack of some task
+  private AtomicIntegerArray queued;
+  // Per var node, whether its points-to set grew in the current round
+  private AtomicIntegerArray grown;
+}
@@ -115,6 +115,7 @@ public class PropWorklist extends Propagator {
       for (PointsToSetInternal nDotF : nodesToFlush) {
         nDotF.flushNew();
       }
+      pag.getMemoryMonitor().check();
     } while (!varNodeWorkList.isEmpty());
   }
 
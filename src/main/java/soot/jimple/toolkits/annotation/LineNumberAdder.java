@@ -63,7 +63,7 @@ public class LineNumberAdder extends SceneTransformer {
         while (s instanceof IdentityStmt) {
           s = units.getSuccOf(s);
         }
-        LineNumberTag tag = (LineNumberTag) s.getTag(LineNumberTag.NAME);
+        LineNumberTag tag = s.getTag(LineNumberTag.KEY);
         if (tag != null) {
           lineToMeth.put(tag.getLineNumber(), meth);
         }
@@ -77,7 +77,7 @@ public class LineNumberAdder extends SceneTransformer {
         while (s instanceof IdentityStmt) {
           s = units.getSuccOf(s);
         }
-        LineNumberTag tag = (LineNumberTag) s.getTag(LineNumberTag.NAME);
+        LineNumberTag tag = s.getTag(LineNumberTag.KEY);
         if (tag != null) {
           int line_num = tag.getLineNumber() - 1;
           // already taken
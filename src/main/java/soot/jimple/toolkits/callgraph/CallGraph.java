@@ -197,14 +197,16 @@ public class CallGraph implements Iterable<Edge> {
    * @return whether the removal was successful.
    */
   public boolean removeEdges(Collection<Edge> edges) {
-    if (!edges.removeAll(edges)) {
-      return false;
-    }
+    boolean removed = false;
     for (Edge e : edges) {
-      removeEdge(e, false);
+      if (removeEdge(e, false)) {
+        removed = true;
+      }
     }
-    reader.remove(edges);
-    return true;
+    if (removed) {
+      reader.remove(edges);
+    }
+    return removed;
   }
 
   /**
@@ -87,6 +87,17 @@ public class CallGraphBuilder {
     this.ofcgb = createCGBuilder(makeContextManager(cg), reachables);
   }
 
+  /**
+   * This constructor adds the edges of the given reachable methods to an existing call graph, using the given
+   * PointsToAnalysis to resolve virtual calls. The call graph of the Scene is not replaced.
+   */
+  public CallGraphBuilder(PointsToAnalysis pa, CallGraph cg, ReachableMethods reachables) {
+    this.pa = pa;
+    this.cg = cg;
+    this.reachables = reachables;
+    this.ofcgb = createCGBuilder(makeContextManager(cg), reachables);
+  }
+
   protected OnFlyCallGraphBuilder createCGBuilder(ContextManager cm, ReachableMethods reachables2) {
     return new OnFlyCallGraphBuilder(cm, reachables);
   }
@@ -228,7 +228,7 @@ public class ReflectionTraceInfo {
       }
     }
     {
-      LineNumberTag tag = (LineNumberTag) host.getTag(LineNumberTag.NAME);
+      LineNumberTag tag = host.getTag(LineNumberTag.KEY);
       if (tag != null) {
         if (tag.getLineNumber() == lineNumber) {
           return true;
@@ -37,7 +37,8 @@ import soot.options.Options;
 import soot.options.ShimpleOptions;
 import soot.shimple.internal.SPatchingChain;
 import soot.shimple.internal.ShimpleBodyBuilder;
-import soot.util.HashChain;
+import soot.util.Chain;
+import soot.util.CompactChain;
 
 // * <p> We decided to hide all the intelligence in
 // * internal.ShimpleBodyBuilder for clarity of API.  Eventually we will
@@ -78,7 +79,7 @@ public class ShimpleBody extends StmtBody {
     this.options = new ShimpleOptions(options);
 
     setSSA(true);
-    this.unitChain = new SPatchingChain(this, new HashChain<Unit>());
+    this.unitChain = new SPatchingChain(this, newUnitStorage());
     this.sbb = new ShimpleBodyBuilder(this);
   }
 
@@ -103,7 +104,7 @@ public class ShimpleBody extends StmtBody {
     // must happen before SPatchingChain gets created
     this.options = new ShimpleOptions(options);
 
-    this.unitChain = new SPatchingChain(this, new HashChain<Unit>());
+    this.unitChain = new SPatchingChain(this, newUnitStorage());
     importBodyContentsFrom(body);
 
     /* Shimplise body */
@@ -201,6 +202,14 @@ public class ShimpleBody extends StmtBody {
     return b;
   }
 
+  @Override
+  public void useCompactUnitChain() {
+    Chain<Unit> storage = unitChain.getNonPatchingChain();
+    if (!(storage instanceof CompactChain)) {
+      this.unitChain = new SPatchingChain(this, new CompactChain<>(storage));
+    }
+  }
+
   /**
    * Sets a flag that indicates whether ShimpleBody is still in SSA form after a transformation or not. It is often up to the
    * user to indicate if a body is no longer in SSA form.
@@ -22,7 +22,6 @@ package soot.tagkit;
  * #L%
  */
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -30,15 +29,16 @@ import java.util.List;
 
 /**
  * This class is the reference implementation for the Host interface, which allows arbitrary taggable data to be stored with
- * Soot objects.
+ * Soot objects. Tags are kept in a compact array-backed store that is only allocated once the first tag is added, and are
+ * looked up by the id of their {@link TagKey}. The name of a tag must therefore not change while it is attached to a host.
  */
 public class AbstractHost implements Host {
 
   protected int line, col;
 
-  // avoid creating an empty list for each element, when it is not used
+  // avoid creating an empty store for each element, when it is not used
   // use lazy instantiation (in addTag) instead
-  protected List<Tag> mTagList = null;
+  private TagStore mTagList = null;
 
   /**
    * Get the {@link List} of {@link Tag Tags} on {@code this} {@link Host}. This list should not be modified!
@@ -57,26 +57,17 @@ public class AbstractHost implements Host {
    */
   @Override
   public void removeTag(String aName) {
-    int tagIndex = searchForTag(aName);
+    int tagIndex = searchForTag(TagKey.idOf(aName));
     if (tagIndex != -1) {
       mTagList.remove(tagIndex);
     }
   }
 
   /**
-   * Search for {@link Tag} named {@code aName}.
+   * Search for the {@link Tag} with the given {@link TagKey} id.
    */
-  private int searchForTag(String aName) {
-    if (mTagList != null) {
-      int i = 0;
-      for (Tag tag : mTagList) {
-        if (tag != null && tag.getName().equals(aName)) {
-          return i;
-        }
-        i++;
-      }
-    }
-    return -1;
+  private int searchForTag(int key) {
+    return (mTagList == null) ? -1 : mTagList.indexOfKey(key);
   }
 
   /**
@@ -89,10 +80,25 @@ public class AbstractHost implements Host {
    */
   @Override
   public Tag getTag(String aName) {
-    int tagIndex = searchForTag(aName);
+    int tagIndex = searchForTag(TagKey.idOf(aName));
     return (tagIndex == -1) ? null : mTagList.get(tagIndex);
   }
 
+  /**
+   * Return the {@link Tag} with the given {@link TagKey} from {@code this} {@link Host} or {@code null} if there is no such
+   * {@link Tag}.
+   * 
+   * @param key
+   * 
+   * @return
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends Tag> T getTag(TagKey<T> key) {
+    int tagIndex = searchForTag(key.getId());
+    return (tagIndex == -1) ? null : (T) mTagList.get(tagIndex);
+  }
+
   /**
    * Check if {@code this} {@link Host} has a {@link Tag} named {@code aName}.
    * 
@@ -102,7 +108,19 @@ public class AbstractHost implements Host {
    */
   @Override
   public boolean hasTag(String aName) {
-    return (searchForTag(aName) != -1);
+    return (searchForTag(TagKey.idOf(aName)) != -1);
+  }
+
+  /**
+   * Check if {@code this} {@link Host} has a {@link Tag} with the given {@link TagKey}.
+   * 
+   * @param key
+   * 
+   * @return
+   */
+  @Override
+  public boolean hasTag(TagKey<?> key) {
+    return (searchForTag(key.getId()) != -1);
   }
 
   /**
@@ -113,7 +131,7 @@ public class AbstractHost implements Host {
   @Override
   public void addTag(Tag t) {
     if (mTagList == null) {
-      mTagList = new ArrayList<Tag>(1);
+      mTagList = new TagStore(1);
     }
     mTagList.add(t);
   }
@@ -136,7 +154,7 @@ public class AbstractHost implements Host {
     List<Tag> tags = h.getTags();
     if (!tags.isEmpty()) {
       if (mTagList == null) {
-        mTagList = new ArrayList<Tag>(tags.size());
+        mTagList = new TagStore(tags.size());
       }
       mTagList.addAll(tags);
     }
@@ -146,12 +164,12 @@ public class AbstractHost implements Host {
   public int getJavaSourceStartLineNumber() {
     if (line <= 0) {
       // get line from source
-      SourceLnPosTag tag = (SourceLnPosTag) getTag(SourceLnPosTag.NAME);
+      SourceLnPosTag tag = getTag(SourceLnPosTag.KEY);
       if (tag != null) {
         line = tag.startLn();
       } else {
         // get line from bytecode
-        LineNumberTag tag2 = (LineNumberTag) getTag(LineNumberTag.NAME);
+        LineNumberTag tag2 = getTag(LineNumberTag.KEY);
         line = (tag2 == null) ? -1 : tag2.getLineNumber();
       }
     }
@@ -162,7 +180,7 @@ public class AbstractHost implements Host {
   public int getJavaSourceStartColumnNumber() {
     if (col <= 0) {
       // get line from source
-      SourceLnPosTag tag = (SourceLnPosTag) getTag(SourceLnPosTag.NAME);
+      SourceLnPosTag tag = getTag(SourceLnPosTag.KEY);
       col = (tag == null) ? -1 : tag.startPos();
     }
     return col;
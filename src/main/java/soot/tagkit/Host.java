@@ -43,6 +43,13 @@ public interface Host {
   /** Returns the tag with the given name. */
   public Tag getTag(String aName);
 
+  /** Returns the tag with the given key. */
+  public default <T extends Tag> T getTag(TagKey<T> key) {
+    @SuppressWarnings("unchecked")
+    T tag = (T) getTag(key.getName());
+    return tag;
+  }
+
   /** Adds a tag. */
   public void addTag(Tag t);
 
@@ -52,6 +59,11 @@ public interface Host {
   /** Returns true if this host has a tag with the given name. */
   public boolean hasTag(String aName);
 
+  /** Returns true if this host has a tag with the given key. */
+  public default boolean hasTag(TagKey<?> key) {
+    return hasTag(key.getName());
+  }
+
   /** Removes all the tags from this host. */
   public void removeAllTags();
 
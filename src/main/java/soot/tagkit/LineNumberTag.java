@@ -26,6 +26,8 @@ public class LineNumberTag implements Tag {
 
   public static final String NAME = "LineNumberTag";
 
+  public static final TagKey<LineNumberTag> KEY = TagKey.of(NAME, LineNumberTag.class);
+
   /* it is a u2 value representing line number. */
   protected int line_number;
 
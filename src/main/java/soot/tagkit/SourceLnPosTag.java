@@ -26,6 +26,8 @@ public class SourceLnPosTag implements Tag {
 
   public static final String NAME = "SourceLnPosTag";
 
+  public static final TagKey<SourceLnPosTag> KEY = TagKey.of(NAME, SourceLnPosTag.class);
+
   private final int startLn;
   private final int endLn;
   private final int startPos;
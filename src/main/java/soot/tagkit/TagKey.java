@@ -0,0 +1,100 @@
+package soot.tagkit;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An interned key for {@link Tag Tags} with a given name. Each distinct tag name is assigned a small integer id the first
+ * time it is used, which allows {@link Host Hosts} to find their tags by comparing integers instead of strings. Keys are
+ * global and not reset with the rest of Soot, so that ids stay valid for tags that outlive a reset.
+ *
+ * <p>
+ * Frequently queried tags declare a typed key, e.g. {@link LineNumberTag#KEY}, which can be passed to
+ * {@link Host#getTag(TagKey)} to obtain the tag without a cast.
+ * </p>
+ *
+ * @param <T>
+ *          the type of the tags stored under this key
+ */
+public final class TagKey<T extends Tag> {
+
+  private static final ConcurrentMap<String, TagKey<?>> KEYS = new ConcurrentHashMap<>();
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  private final String name;
+  private final int id;
+
+  private TagKey(String name, int id) {
+    this.name = name;
+    this.id = id;
+  }
+
+  /**
+   * Returns the key for tags with the given name, creating it if necessary.
+   */
+  public static TagKey<Tag> of(String name) {
+    return of(name, Tag.class);
+  }
+
+  /**
+   * Returns the key for tags with the given name, creating it if necessary. The caller guarantees that all tags with this
+   * name are instances of <code>type</code>.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Tag> TagKey<T> of(String name, Class<T> type) {
+    TagKey<?> key = KEYS.get(name);
+    if (key == null) {
+      key = KEYS.computeIfAbsent(name, n -> new TagKey<>(n, NEXT_ID.getAndIncrement()));
+    }
+    return (TagKey<T>) key;
+  }
+
+  /**
+   * Returns the id of the key for tags with the given name without creating a key, or -1 if no tag with this name has ever
+   * been added to a host.
+   */
+  static int idOf(String name) {
+    TagKey<?> key = KEYS.get(name);
+    return key == null ? -1 : key.id;
+  }
+
+  /** Returns the id of the key of the given tag, or -1 for <code>null</code>. */
+  static int idOf(Tag tag) {
+    return tag == null ? -1 : of(tag.getName()).id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  @Override
+  public String toString() {
+    return name + "#" + id;
+  }
+}
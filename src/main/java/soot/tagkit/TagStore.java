@@ -0,0 +1,124 @@
+package soot.tagkit;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Array-backed storage of the tags of an {@link AbstractHost}. Next to each tag, the id of its {@link TagKey} is stored, so
+ * that lookups by name compare integers only. This list is also the view returned by {@link AbstractHost#getTags()} and
+ * keeps the key ids in sync if clients add or remove tags through it.
+ */
+final class TagStore extends AbstractList<Tag> implements RandomAccess {
+
+  private Tag[] tags;
+  private int[] keys;
+  private int size;
+
+  TagStore(int capacity) {
+    this.tags = new Tag[Math.max(1, capacity)];
+    this.keys = new int[tags.length];
+  }
+
+  /** Returns the index of the first tag with the given key id, or -1 if there is none. */
+  int indexOfKey(int key) {
+    if (key >= 0) {
+      final int[] keys = this.keys;
+      for (int i = 0, n = size; i < n; i++) {
+        if (keys[i] == key) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public Tag get(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return tags[index];
+  }
+
+  @Override
+  public Tag set(int index, Tag t) {
+    Tag old = get(index);
+    tags[index] = t;
+    keys[index] = TagKey.idOf(t);
+    return old;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void add(int index, Tag t) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    modCount++;
+    if (size == tags.length) {
+      int capacity = size + (size >> 1) + 1;
+      tags = Arrays.copyOf(tags, capacity);
+      keys = Arrays.copyOf(keys, capacity);
+    }
+    System.arraycopy(tags, index, tags, index + 1, size - index);
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    tags[index] = t;
+    keys[index] = TagKey.idOf(t);
+    size++;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends Tag> c) {
+    // copy first, the collection may be this very list
+    Object[] a = c.toArray();
+    for (Object t : a) {
+      add(size, (Tag) t);
+    }
+    return a.length != 0;
+  }
+
+  @Override
+  public Tag remove(int index) {
+    Tag old = get(index);
+    modCount++;
+    int moved = size - index - 1;
+    System.arraycopy(tags, index + 1, tags, index, moved);
+    System.arraycopy(keys, index + 1, keys, index, moved);
+    tags[--size] = null;
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    modCount++;
+    Arrays.fill(tags, 0, size, null);
+    size = 0;
+  }
+}
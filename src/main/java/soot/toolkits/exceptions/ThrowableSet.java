@@ -42,6 +42,7 @@ import soot.Singletons;
 import soot.SootClass;
 import soot.Unit;
 import soot.options.Options;
+import soot.util.BitVector;
 
 /**
  * <p>
@@ -85,6 +86,14 @@ import soot.options.Options;
  * contains, though, because we trust {@link Scene} to enforce the existence of only one <code>RefLikeType</code> instance
  * with a given name.
  * </p>
+ *
+ * <p>
+ * Besides the sets of types, each <code>ThrowableSet</code> keeps bit vectors over the numbers the {@link Scene}'s type
+ * numberer assigns to its included and excluded types. Membership tests, hashing and the equality checks done when
+ * canonicalizing sets in the {@link Manager} registry use these bit vectors, and the results of
+ * {@link #catchableAs(RefType)} and {@link #whichCatchableAs(RefType)} are memoized per catcher type, so repeated queries
+ * against the same trap types, as done when building exceptional CFGs, are answered without consulting the hierarchy.
+ * </p>
  */
 
 public class ThrowableSet {
@@ -110,6 +119,19 @@ public class ThrowableSet {
    */
   protected Map<Object, ThrowableSet> memoizedAdds;
 
+  /**
+   * Type numbers of the elements of {@link #exceptionsIncluded} and {@link #exceptionsExcluded}.
+   */
+  private final BitVector includedNumbers;
+  private final BitVector excludedNumbers;
+  private final int hashCode;
+
+  /**
+   * Memoized results of {@link #catchableAs(RefType)} and {@link #whichCatchableAs(RefType)}, keyed by the catcher type.
+   */
+  private Map<RefType, Boolean> memoizedCatchableAs;
+  private Map<RefType, Pair> memoizedWhichCatchableAs;
+
   /**
    * Constructs a <code>ThrowableSet</code> which contains the exception types represented in <code>include</code>, except
    * for those which are also in <code>exclude</code>. The constructor is private to ensure that the only way to get a new
@@ -123,6 +145,9 @@ public class ThrowableSet {
   protected ThrowableSet(Set<RefLikeType> include, Set<AnySubType> exclude) {
     exceptionsIncluded = getImmutable(include);
     exceptionsExcluded = getImmutable(exclude);
+    includedNumbers = numbersOf(exceptionsIncluded);
+    excludedNumbers = numbersOf(exceptionsExcluded);
+    hashCode = 31 * includedNumbers.hashCode() + excludedNumbers.hashCode();
     // We don't need to clone include and exclude to guarantee
     // immutability since ThrowableSet(Set,Set) is private to this
     // class, where it is only called (via
@@ -140,6 +165,19 @@ public class ThrowableSet {
     return Collections.unmodifiableSet(in);
   }
 
+  private static BitVector numbersOf(Set<? extends RefLikeType> types) {
+    BitVector numbers = new BitVector();
+    for (RefLikeType t : types) {
+      numbers.set(t.getNumber());
+    }
+    return numbers;
+  }
+
+  /** Returns whether the given type is among {@link #exceptionsIncluded}. */
+  private boolean includes(RefLikeType t) {
+    return includedNumbers.get(t.getNumber());
+  }
+
   /**
    * Returns an {@link Iterator} over a {@link Collection} of Throwable types which iterates over its elements in a
    * consistent order (maintaining an ordering that is consistent across different runs makes it easier to compare sets
@@ -208,7 +246,7 @@ public class ThrowableSet {
     if (INSTRUMENTING) {
       Manager.v().addsOfRefType++;
     }
-    if (this.exceptionsIncluded.contains(e)) {
+    if (includes(e)) {
       if (INSTRUMENTING) {
         Manager.v().addsInclusionFromMap++;
         Manager.v().addsExclusionWithoutSearch++;
@@ -357,7 +395,7 @@ public class ThrowableSet {
       }
     }
 
-    if (this.exceptionsIncluded.contains(e)) {
+    if (includes(e)) {
       if (INSTRUMENTING) {
         Manager.v().addsInclusionFromMap++;
       }
@@ -627,6 +665,20 @@ public class ThrowableSet {
       Manager.v().catchableAsQueries++;
     }
 
+    Map<RefType, Boolean> memo = memoizedCatchableAs;
+    Boolean result = (memo == null) ? null : memo.get(catcher);
+    if (result == null) {
+      result = computeCatchableAs(catcher);
+      if (memo == null) {
+        memoizedCatchableAs = memo = new ConcurrentHashMap<>();
+      }
+      memo.put(catcher, result);
+    }
+    return result;
+  }
+
+  private boolean computeCatchableAs(RefType catcher) {
+
     FastHierarchy h = Scene.v().getOrMakeFastHierarchy();
     /**
      * Originally this implementation had checked if the catcher.getSootClass() is a phantom class. However this makes
@@ -652,7 +704,7 @@ public class ThrowableSet {
       }
     }
 
-    if (exceptionsIncluded.contains(catcher)) {
+    if (includes(catcher)) {
       if (INSTRUMENTING) {
         if (exceptionsExcluded.size() == 0) {
           Manager.v().catchableAsFromMap++;
@@ -710,6 +762,20 @@ public class ThrowableSet {
       Manager.v().removesOfAnySubType++;
     }
 
+    Map<RefType, Pair> memo = memoizedWhichCatchableAs;
+    Pair result = (memo == null) ? null : memo.get(catcher);
+    if (result == null) {
+      result = computeWhichCatchableAs(catcher);
+      if (memo == null) {
+        memoizedWhichCatchableAs = memo = new ConcurrentHashMap<>();
+      }
+      memo.put(catcher, result);
+    }
+    return result;
+  }
+
+  private Pair computeWhichCatchableAs(RefType catcher) {
+
     FastHierarchy h = Scene.v().getOrMakeFastHierarchy();
     Set<RefLikeType> caughtIncluded = null;
     Set<AnySubType> caughtExcluded = null;
@@ -964,11 +1030,7 @@ public class ThrowableSet {
 
   @Override
   public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    result = (prime * result) + exceptionsIncluded.hashCode();
-    result = (prime * result) + exceptionsExcluded.hashCode();
-    return result;
+    return hashCode;
   }
 
   @Override
@@ -984,7 +1046,9 @@ public class ThrowableSet {
     }
     ThrowableSet other = (ThrowableSet) obj;
 
-    return exceptionsIncluded.equals(other.exceptionsIncluded) && exceptionsExcluded.equals(other.exceptionsExcluded);
+    // Types are unique per number, so comparing the numbers suffices
+    return hashCode == other.hashCode && includedNumbers.equals(other.includedNumbers)
+        && excludedNumbers.equals(other.excludedNumbers);
   }
 
   /**
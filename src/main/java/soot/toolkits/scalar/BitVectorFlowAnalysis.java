@@ -0,0 +1,363 @@
+package soot.toolkits.scalar;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import soot.baf.GotoInst;
+import soot.jimple.GotoStmt;
+import soot.toolkits.graph.DirectedGraph;
+
+/**
+ * A data-flow analysis for gen/kill problems over a fixed universe of at most a few thousand elements, such as the locals
+ * or the definitions of a body. Unlike {@link FlowAnalysis}, which allocates and copies a {@link FlowSet} per node, this
+ * analysis keeps all flow information in a few flat <code>long[]</code> arrays indexed by node and word.
+ *
+ * The transfer function of every node is <code>out = gen | (in & ~kill)</code>, computed once by
+ * {@link #genKill(Object, long[], long[])}. Straight-line chains of nodes are composed into basic blocks, the fixed point
+ * is computed on the blocks in reverse post-order, and the results of the individual nodes are filled in afterwards. Like
+ * {@link FlowAnalysis}, only the nodes reachable from the entries in flow direction are analyzed; the flow of all other
+ * nodes is empty.
+ *
+ * @param <N>
+ *          node type of the directed graph
+ */
+public abstract class BitVectorFlowAnalysis<N> {
+  protected final DirectedGraph<N> graph;
+  protected final int universeSize;
+
+  private final boolean forward;
+  private final boolean union;
+  private final int words;
+
+  private Map<N, Integer> nodeIndex;
+  /** Flow into and out of every node, in flow direction, <code>words</code> longs per node. */
+  private long[] flowIn;
+  private long[] flowOut;
+
+  /**
+   * @param graph
+   *          the graph to analyze
+   * @param universeSize
+   *          the number of elements in the universe, bits are numbered from 0 to <code>universeSize - 1</code>
+   * @param forward
+   *          true for a forward analysis, false for a backward one
+   * @param union
+   *          true if flows are merged by union, false if they are merged by intersection
+   */
+  protected BitVectorFlowAnalysis(DirectedGraph<N> graph, int universeSize, boolean forward, boolean union) {
+    this.graph = graph;
+    this.universeSize = universeSize;
+    this.forward = forward;
+    this.union = union;
+    this.words = (universeSize + 63) >>> 6;
+  }
+
+  /**
+   * Sets the bits generated and killed by the given node. Both arrays are cleared before every call.
+   */
+  protected abstract void genKill(N node, long[] gen, long[] kill);
+
+  /**
+   * Sets the bits that flow into the entries of the graph. None are set by default.
+   */
+  protected void entryFlow(long[] flow) {
+  }
+
+  /** Sets the given bit in an array passed to {@link #genKill(Object, long[], long[])} or {@link #entryFlow(long[])}. */
+  protected static void set(long[] flow, int bit) {
+    flow[bit >>> 6] |= 1L << bit;
+  }
+
+  public void doAnalysis() {
+    final List<N> order = reversePostOrder();
+    final int n = order.size();
+    final int w = words;
+    nodeIndex = new HashMap<N, Integer>((n * 4) / 3 + 1);
+    for (int i = 0; i < n; i++) {
+      nodeIndex.put(order.get(i), i);
+    }
+
+    // Predecessors and successors in flow direction, restricted to the analyzed nodes
+    final int[][] preds = new int[n][];
+    final int[][] succs = new int[n][];
+    for (int i = 0; i < n; i++) {
+      N node = order.get(i);
+      preds[i] = indices(forward ? graph.getPredsOf(node) : graph.getSuccsOf(node));
+      succs[i] = indices(forward ? graph.getSuccsOf(node) : graph.getPredsOf(node));
+    }
+    final boolean[] isEntry = new boolean[n];
+    for (N entry : entries()) {
+      Integer i = nodeIndex.get(entry);
+      if (i != null) {
+        isEntry[i] = true;
+      }
+    }
+
+    // Transfer functions of the nodes
+    final long[] nodeGen = new long[n * w];
+    final long[] nodeKill = new long[n * w];
+    final long[] gen = new long[w];
+    final long[] kill = new long[w];
+    for (int i = 0; i < n; i++) {
+      Arrays.fill(gen, 0L);
+      Arrays.fill(kill, 0L);
+      genKill(order.get(i), gen, kill);
+      System.arraycopy(gen, 0, nodeGen, i * w, w);
+      System.arraycopy(kill, 0, nodeKill, i * w, w);
+    }
+
+    // Chains of nodes with a single predecessor and successor form a block
+    final int[] blockOf = new int[n];
+    final int[] blockStart = new int[n + 1];
+    final int[] blockNodes = new int[n];
+    int blocks = 0;
+    int filled = 0;
+    for (int i = 0; i < n; i++) {
+      if (!isBlockHead(i, isEntry, preds, succs)) {
+        continue;
+      }
+      blockStart[blocks] = filled;
+      int cur = i;
+      for (;;) {
+        blockOf[cur] = blocks;
+        blockNodes[filled++] = cur;
+        if (succs[cur].length != 1 || isBlockHead(succs[cur][0], isEntry, preds, succs)) {
+          break;
+        }
+        cur = succs[cur][0];
+      }
+      blocks++;
+    }
+    blockStart[blocks] = filled;
+    assert filled == n;
+
+    // Transfer functions of the blocks: f2(f1(x)) = (gen2 | (gen1 & ~kill2)) | (x & ~(kill1 | kill2))
+    final long[] blockGen = new long[blocks * w];
+    final long[] blockKill = new long[blocks * w];
+    for (int b = 0; b < blocks; b++) {
+      final int bo = b * w;
+      for (int k = blockStart[b]; k < blockStart[b + 1]; k++) {
+        final int no = blockNodes[k] * w;
+        for (int j = 0; j < w; j++) {
+          blockGen[bo + j] = nodeGen[no + j] | (blockGen[bo + j] & ~nodeKill[no + j]);
+          blockKill[bo + j] |= nodeKill[no + j];
+        }
+      }
+    }
+
+    // Fixed point on the blocks, in reverse post-order
+    final long[] entry = new long[w];
+    entryFlow(entry);
+    final long[] blockIn = new long[blocks * w];
+    final long[] blockOut = new long[blocks * w];
+    if (!union) {
+      Arrays.fill(blockOut, -1L);
+    }
+    final long[] in = new long[w];
+    final BitSet pending = new BitSet(blocks);
+    pending.set(0, blocks);
+    while (!pending.isEmpty()) {
+      for (int b = pending.nextSetBit(0); b >= 0; b = pending.nextSetBit(b + 1)) {
+        pending.clear(b);
+        final int head = blockNodes[blockStart[b]];
+        final int bo = b * w;
+        boolean first = true;
+        if (isEntry[head]) {
+          System.arraycopy(entry, 0, in, 0, w);
+          first = false;
+        }
+        for (int p : preds[head]) {
+          final int po = blockOf[p] * w;
+          if (first) {
+            System.arraycopy(blockOut, po, in, 0, w);
+            first = false;
+          } else if (union) {
+            for (int j = 0; j < w; j++) {
+              in[j] |= blockOut[po + j];
+            }
+          } else {
+            for (int j = 0; j < w; j++) {
+              in[j] &= blockOut[po + j];
+            }
+          }
+        }
+        boolean changed = false;
+        for (int j = 0; j < w; j++) {
+          blockIn[bo + j] = in[j];
+          final long out = blockGen[bo + j] | (in[j] & ~blockKill[bo + j]);
+          if (out != blockOut[bo + j]) {
+            blockOut[bo + j] = out;
+            changed = true;
+          }
+        }
+        if (changed) {
+          final int tail = blockNodes[blockStart[b + 1] - 1];
+          for (int s : succs[tail]) {
+            pending.set(blockOf[s]);
+          }
+        }
+      }
+    }
+
+    // Flow of the individual nodes
+    flowIn = new long[n * w];
+    flowOut = new long[n * w];
+    for (int b = 0; b < blocks; b++) {
+      System.arraycopy(blockIn, b * w, flowIn, blockNodes[blockStart[b]] * w, w);
+      for (int k = blockStart[b]; k < blockStart[b + 1]; k++) {
+        final int no = blockNodes[k] * w;
+        if (k > blockStart[b]) {
+          System.arraycopy(flowOut, blockNodes[k - 1] * w, flowIn, no, w);
+        }
+        for (int j = 0; j < w; j++) {
+          flowOut[no + j] = nodeGen[no + j] | (flowIn[no + j] & ~nodeKill[no + j]);
+        }
+      }
+    }
+  }
+
+  /** Returns true iff the given bit is set in the flow before the given node, in program order. */
+  public boolean isSetBefore(N node, int bit) {
+    return isSet(forward ? flowIn : flowOut, node, bit);
+  }
+
+  /** Returns true iff the given bit is set in the flow after the given node, in program order. */
+  public boolean isSetAfter(N node, int bit) {
+    return isSet(forward ? flowOut : flowIn, node, bit);
+  }
+
+  /** Calls the given action on every bit set in the flow before the given node, in program order, in increasing order. */
+  public void forEachBefore(N node, IntConsumer action) {
+    forEach(forward ? flowIn : flowOut, node, action);
+  }
+
+  /** Calls the given action on every bit set in the flow after the given node, in program order, in increasing order. */
+  public void forEachAfter(N node, IntConsumer action) {
+    forEach(forward ? flowOut : flowIn, node, action);
+  }
+
+  private boolean isSet(long[] flow, N node, int bit) {
+    Integer i = nodeIndex.get(node);
+    return i != null && (flow[i * words + (bit >>> 6)] & (1L << bit)) != 0L;
+  }
+
+  private void forEach(long[] flow, N node, IntConsumer action) {
+    Integer i = nodeIndex.get(node);
+    if (i == null) {
+      return;
+    }
+    final int offset = i * words;
+    for (int j = 0; j < words; j++) {
+      for (long word = flow[offset + j]; word != 0L; word &= word - 1) {
+        final int bit = (j << 6) | Long.numberOfTrailingZeros(word);
+        if (bit >= universeSize) {
+          return;
+        }
+        action.accept(bit);
+      }
+    }
+  }
+
+  private boolean isBlockHead(int i, boolean[] isEntry, int[][] preds, int[][] succs) {
+    return isEntry[i] || preds[i].length != 1 || succs[preds[i][0]].length != 1 || preds[i][0] == i;
+  }
+
+  private int[] indices(List<N> nodes) {
+    int[] ret = new int[nodes.size()];
+    int n = 0;
+    for (N node : nodes) {
+      Integer i = nodeIndex.get(node);
+      if (i != null) {
+        ret[n++] = i;
+      }
+    }
+    return n == ret.length ? ret : Arrays.copyOf(ret, n);
+  }
+
+  /**
+   * Returns the entries in flow direction. As in {@link FlowAnalysis}, a backward analysis of a graph without tails starts
+   * at the gotos of its infinite loops.
+   */
+  private List<N> entries() {
+    List<N> entries = forward ? graph.getHeads() : graph.getTails();
+    if (!entries.isEmpty() || forward) {
+      return entries;
+    }
+    entries = new ArrayList<N>();
+    for (N node : reachable(graph.getHeads(), true)) {
+      if (node instanceof GotoInst || node instanceof GotoStmt) {
+        entries.add(node);
+      }
+    }
+    return entries;
+  }
+
+  /** Returns the nodes reachable from the entries in flow direction, in reverse post-order. */
+  private List<N> reversePostOrder() {
+    List<N> ret = reachable(entries(), forward);
+    Collections.reverse(ret);
+    return ret;
+  }
+
+  /** Returns the nodes reachable from the given ones, in post-order. */
+  private List<N> reachable(List<N> roots, boolean alongSuccs) {
+    final List<N> postOrder = new ArrayList<N>(graph.size());
+    final Map<N, Boolean> visited = new HashMap<N, Boolean>((graph.size() * 4) / 3 + 1);
+    final List<N> stack = new ArrayList<N>();
+    final List<Integer> next = new ArrayList<Integer>();
+    for (N root : roots) {
+      if (visited.put(root, Boolean.TRUE) != null) {
+        continue;
+      }
+      stack.add(root);
+      next.add(0);
+      while (!stack.isEmpty()) {
+        final int top = stack.size() - 1;
+        final N node = stack.get(top);
+        final List<N> out = alongSuccs ? graph.getSuccsOf(node) : graph.getPredsOf(node);
+        final int i = next.get(top);
+        if (i < out.size()) {
+          next.set(top, i + 1);
+          N o = out.get(i);
+          if (visited.put(o, Boolean.TRUE) == null) {
+            stack.add(o);
+            next.add(0);
+          }
+        } else {
+          postOrder.add(node);
+          stack.remove(top);
+          next.remove(top);
+        }
+      }
+    }
+    return postOrder;
+  }
+}
@@ -22,9 +22,10 @@ package soot.toolkits.scalar;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,8 +52,6 @@ import soot.toolkits.exceptions.ThrowAnalysis;
 import soot.toolkits.graph.ExceptionalUnitGraph;
 import soot.toolkits.graph.ExceptionalUnitGraphFactory;
 import soot.util.Chain;
-import soot.util.HashMultiMap;
-import soot.util.MultiMap;
 
 //@formatter:off
 /**
@@ -152,7 +151,8 @@ public class SharedInitializationLocalSplitter extends BodyTransformer {
     final ExceptionalUnitGraph graph
         = ExceptionalUnitGraphFactory.createExceptionalUnitGraph(body, throwAnalysis, omitExceptingUnitEdges);
     final LocalDefs defs = G.v().soot_toolkits_scalar_LocalDefsFactory().newLocalDefs(graph, true);
-    final MultiMap<Local, Cluster> clustersPerLocal = new HashMultiMap<Local, Cluster>();
+    // Keep the locals and clusters in code order so that the split locals are added deterministically
+    final Map<Local, List<Cluster>> clustersPerLocal = new LinkedHashMap<Local, List<Cluster>>();
 
     final Chain<Unit> units = body.getUnits();
     for (Unit s : units) {
@@ -169,15 +169,16 @@ public class SharedInitializationLocalSplitter extends BodyTransformer {
               .allMatch(u -> (u instanceof AssignStmt) && (((AssignStmt) u).getRightOp() instanceof Constant))) {
             continue;
           }
-          clustersPerLocal.put(luse, new Cluster(s, allAffectingDefs));
+          clustersPerLocal.computeIfAbsent(luse, k -> new ArrayList<Cluster>()).add(new Cluster(s, allAffectingDefs));
         }
       }
     }
 
     final Chain<Local> locals = body.getLocals();
     int w = 0;
-    for (Local lcl : clustersPerLocal.keySet()) {
-      Set<Cluster> clusters = clustersPerLocal.get(lcl);
+    for (Map.Entry<Local, List<Cluster>> e : clustersPerLocal.entrySet()) {
+      Local lcl = e.getKey();
+      List<Cluster> clusters = e.getValue();
       if (clusters.size() <= 1) {
         // Not interesting
         continue;
@@ -22,7 +22,11 @@ package soot.toolkits.scalar;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +34,6 @@ import org.slf4j.LoggerFactory;
 import soot.Local;
 import soot.Timers;
 import soot.Unit;
-import soot.Value;
 import soot.ValueBox;
 import soot.options.Options;
 import soot.toolkits.graph.DirectedBodyGraph;
@@ -42,7 +45,7 @@ import soot.toolkits.graph.ExceptionalUnitGraph;
 public class SimpleLiveLocals implements LiveLocals {
   private static final Logger logger = LoggerFactory.getLogger(SimpleLiveLocals.class);
 
-  private final FlowAnalysis<Unit, FlowSet<Local>> analysis;
+  private final Analysis analysis;
 
   /**
    * Computes the analysis given a DirectedBodyGraph<Unit> computed from a method body. It is recommended that a
@@ -77,60 +80,64 @@ public class SimpleLiveLocals implements LiveLocals {
 
   @Override
   public List<Local> getLiveLocalsAfter(Unit s) {
-    // ArraySparseSet returns a unbacked list of elements!
-    return analysis.getFlowAfter(s).toList();
+    final List<Local> ret = new ArrayList<Local>();
+    analysis.forEachAfter(s, new IntConsumer() {
+      @Override
+      public void accept(int i) {
+        ret.add(analysis.locals[i]);
+      }
+    });
+    return ret;
   }
 
   @Override
   public List<Local> getLiveLocalsBefore(Unit s) {
-    // ArraySparseSet returns a unbacked list of elements!
-    return analysis.getFlowBefore(s).toList();
+    final List<Local> ret = new ArrayList<Local>();
+    analysis.forEachBefore(s, new IntConsumer() {
+      @Override
+      public void accept(int i) {
+        ret.add(analysis.locals[i]);
+      }
+    });
+    return ret;
   }
 
-  private static class Analysis extends BackwardFlowAnalysis<Unit, FlowSet<Local>> {
+  /**
+   * Liveness is a backward gen/kill problem over the locals of the body: a unit kills the locals it defines and generates
+   * the locals it uses.
+   */
+  private static class Analysis extends BitVectorFlowAnalysis<Unit> {
+    final Local[] locals;
+    final Map<Local, Integer> localIndex;
+
     Analysis(DirectedBodyGraph<Unit> g) {
-      super(g);
+      this(g, g.getBody().getLocals().toArray(new Local[0]));
     }
 
-    @Override
-    protected FlowSet<Local> newInitialFlow() {
-      return new ArraySparseSet<Local>();
+    private Analysis(DirectedBodyGraph<Unit> g, Local[] locals) {
+      super(g, locals.length, false, true);
+      this.locals = locals;
+      this.localIndex = new HashMap<Local, Integer>((locals.length * 4) / 3 + 1);
+      for (int i = 0; i < locals.length; i++) {
+        localIndex.put(locals[i], i);
+      }
     }
 
     @Override
-    protected void flowThrough(FlowSet<Local> in, Unit unit, FlowSet<Local> out) {
-      in.copy(out);
-
-      // Perform kill
+    protected void genKill(Unit unit, long[] gen, long[] kill) {
       for (ValueBox box : unit.getDefBoxes()) {
-        Value v = box.getValue();
-        if (v instanceof Local) {
-          out.remove((Local) v);
+        Integer i = localIndex.get(box.getValue());
+        if (i != null) {
+          set(kill, i);
         }
       }
-
-      // Perform generation
+      // A local that is used and defined by the same unit is live before it
       for (ValueBox box : unit.getUseBoxes()) {
-        Value v = box.getValue();
-        if (v instanceof Local) {
-          out.add((Local) v);
+        Integer i = localIndex.get(box.getValue());
+        if (i != null) {
+          set(gen, i);
         }
       }
     }
-
-    @Override
-    protected void mergeInto(Unit succNode, FlowSet<Local> inout, FlowSet<Local> in) {
-      inout.union(in);
-    }
-
-    @Override
-    protected void merge(FlowSet<Local> in1, FlowSet<Local> in2, FlowSet<Local> out) {
-      in1.union(in2, out);
-    }
-
-    @Override
-    protected void copy(FlowSet<Local> source, FlowSet<Local> dest) {
-      source.copy(dest);
-    }
   }
 }
@@ -26,57 +26,113 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A class that numbers objects, so they can be placed in bitsets.
  *
+ * <p>
+ * Numbers are allocated atomically and objects are stored in fixed-size chunks that are never copied, so that many threads
+ * can number objects at the same time, e.g., when bodies are constructed in parallel. Concurrent attempts to number the same
+ * object are serialized on one of a fixed set of lock stripes chosen by the object's identity hash, and only the rare
+ * allocation of a new chunk and the reuse of removed numbers take a global lock.
+ * </p>
+ *
  * @author Ondrej Lhotak
  * @author xiao, generalize it.
  */
 public class ArrayNumberer<E extends Numberable> implements IterableNumberer<E> {
 
-  protected E[] numberToObj;
-  protected int lastNumber;
-  protected BitSet freeNumbers;
+  private static final int CHUNK_SHIFT = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int STRIPE_SHIFT = 6;
+
+  protected volatile AtomicReferenceArray<E>[] chunks;
+  protected final AtomicInteger lastNumber;
+  protected final BitSet freeNumbers = new BitSet();
+  protected volatile int freeCount = 0;
+
+  private final Object[] stripes = new Object[1 << STRIPE_SHIFT];
 
   @SuppressWarnings("unchecked")
   public ArrayNumberer() {
-    this.numberToObj = (E[]) new Numberable[1024];
-    this.lastNumber = 0;
+    this.chunks = new AtomicReferenceArray[1];
+    this.lastNumber = new AtomicInteger(0);
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Object();
+    }
   }
 
   public ArrayNumberer(E[] elements) {
-    this.numberToObj = elements;
-    this.lastNumber = elements.length;
+    this();
+    for (int i = 0; i < elements.length; i++) {
+      chunkFor(i).set(i & CHUNK_MASK, elements[i]);
+    }
+    this.lastNumber.set(elements.length);
+  }
+
+  /** Returns the chunk holding the given number, allocating it if necessary. */
+  private AtomicReferenceArray<E> chunkFor(int number) {
+    final int c = number >>> CHUNK_SHIFT;
+    AtomicReferenceArray<E>[] cs = chunks;
+    if (c < cs.length) {
+      AtomicReferenceArray<E> chunk = cs[c];
+      if (chunk != null) {
+        return chunk;
+      }
+    }
+    synchronized (this) {
+      cs = chunks;
+      if (c >= cs.length) {
+        cs = Arrays.copyOf(cs, Math.max(c + 1, cs.length * 2));
+      }
+      AtomicReferenceArray<E> chunk = cs[c];
+      if (chunk == null) {
+        chunk = new AtomicReferenceArray<E>(CHUNK_SIZE);
+        cs[c] = chunk;
+      }
+      chunks = cs;
+      return chunk;
+    }
   }
 
-  private void resize(int n) {
-    numberToObj = Arrays.copyOf(numberToObj, n);
+  private Object stripeFor(E o) {
+    return stripes[(System.identityHashCode(o) * 0x9E3779B9) >>> (32 - STRIPE_SHIFT)];
+  }
+
+  /** Takes the smallest number freed by {@link #remove(Numberable)}, or returns 0 if there is none. */
+  private int reuseFreeNumber() {
+    synchronized (freeNumbers) {
+      int ns = freeNumbers.nextSetBit(0);
+      if (ns == -1) {
+        return 0;
+      }
+      freeNumbers.clear(ns);
+      freeCount--;
+      return ns;
+    }
   }
 
   @Override
-  public synchronized void add(E o) {
+  public void add(E o) {
     if (o.getNumber() != 0) {
       return;
     }
 
-    // In case we removed entries from the numberer, we want to re-use the free space
-    int chosenNumber = -1;
-    if (freeNumbers != null) {
-      int ns = freeNumbers.nextSetBit(0);
-      if (ns != -1) {
-        chosenNumber = ns;
-        freeNumbers.clear(ns);
+    synchronized (stripeFor(o)) {
+      if (o.getNumber() != 0) {
+        return;
       }
+      // In case we removed entries from the numberer, we want to re-use the free space
+      int chosenNumber = (freeCount > 0) ? reuseFreeNumber() : 0;
+      if (chosenNumber == 0) {
+        chosenNumber = lastNumber.incrementAndGet();
+      }
+      chunkFor(chosenNumber).set(chosenNumber & CHUNK_MASK, o);
+      o.setNumber(chosenNumber);
     }
-    if (chosenNumber == -1) {
-      chosenNumber = ++lastNumber;
-    }
-    if (chosenNumber >= numberToObj.length) {
-      resize(numberToObj.length * 2);
-    }
-    numberToObj[chosenNumber] = o;
-    o.setNumber(chosenNumber);
   }
 
   @Override
@@ -96,16 +152,18 @@ public class ArrayNumberer<E extends Numberable> implements IterableNumberer<E>
     if (number == 0) {
       return null;
     }
-    E ret = numberToObj[(int) number];
-    if (ret == null) {
+    final int c = (int) (number >>> CHUNK_SHIFT);
+    AtomicReferenceArray<E>[] cs = chunks;
+    if (c >= cs.length) {
       return null;
     }
-    return ret;
+    AtomicReferenceArray<E> chunk = cs[c];
+    return chunk == null ? null : chunk.get((int) number & CHUNK_MASK);
   }
 
   @Override
   public int size() {
-    return lastNumber;
+    return lastNumber.get();
   }
 
   @Override
@@ -115,20 +173,20 @@ public class ArrayNumberer<E extends Numberable> implements IterableNumberer<E>
 
       @Override
       public final boolean hasNext() {
-        return cur <= lastNumber && cur < numberToObj.length && numberToObj[cur] != null;
+        return cur <= lastNumber.get() && get(cur) != null;
       }
 
       @Override
       public final E next() {
         if (hasNext()) {
-          return numberToObj[cur++];
+          return get(cur++);
         }
         throw new NoSuchElementException();
       }
 
       @Override
       public final void remove() {
-        ArrayNumberer.this.remove(numberToObj[cur - 1]);
+        ArrayNumberer.this.remove(get(cur - 1));
       }
     };
   }
@@ -143,12 +201,12 @@ public class ArrayNumberer<E extends Numberable> implements IterableNumberer<E>
     if (num == 0) {
       return false;
     }
-    if (freeNumbers == null) {
-      freeNumbers = new BitSet(2 * num);
-    }
-    numberToObj[num] = null;
+    chunkFor(num).set(num & CHUNK_MASK, null);
     o.setNumber(0);
-    freeNumbers.set(num);
+    synchronized (freeNumbers) {
+      freeNumbers.set(num);
+      freeCount++;
+    }
     return true;
   }
 }
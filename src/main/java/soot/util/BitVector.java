@@ -138,6 +138,14 @@ public class BitVector {
     return (bits[indexOf(bit)] & mask(bit)) != 0L;
   }
 
+  /**
+   * Returns the word holding bits <code>64 * index</code> to <code>64 * index + 63</code>, or 0 if it lies beyond the end of
+   * this vector.
+   */
+  long word(int index) {
+    return index < bits.length ? bits[index] : 0L;
+  }
+
   @Override
   public int hashCode() {
     long ret = 0;
@@ -0,0 +1,604 @@
+package soot.util;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation of the Chain interface that keeps its elements and links in flat arrays. Every element occupies one slot
+ * in the {@code items} array, and the {@code next} and {@code prev} arrays hold the slot indices of its neighbours. A
+ * small open-addressing table maps elements to their slots. Compared to {@link HashChain}, this avoids allocating a link
+ * object and a hash map entry per element, which considerably reduces the footprint of chains holding the units of large
+ * method bodies, while keeping insertion, removal, lookup of neighbours and iteration in constant time per element.
+ *
+ * <p>
+ * Slots of removed elements are recycled for later insertions. As with {@link HashChain}, the hash code of an element must
+ * not change while it is contained in the chain.
+ * </p>
+ */
+public class CompactChain<E> extends AbstractCollection<E> implements Chain<E> {
+
+  /** Marks the absence of a slot, e.g., the successor of the last element. */
+  protected static final int NONE = -1;
+
+  protected Object[] items;
+  protected int[] next;
+  protected int[] prev;
+
+  /** Open-addressing index from elements to their slots. Stores <code>slot + 1</code>, with 0 denoting a free bucket. */
+  protected int[] table;
+
+  protected int first = NONE;
+  protected int last = NONE;
+  protected int size = 0;
+
+  /** Number of slots that have ever been handed out. Slots below this bound are either in use or on the free list. */
+  protected int used = 0;
+
+  /** Head of the list of recycled slots, linked through the {@code next} array. */
+  protected int free = NONE;
+
+  protected int stateCount = 0;
+
+  /** Constructs an empty CompactChain. */
+  public CompactChain() {
+    this(8);
+  }
+
+  /** Constructs an empty CompactChain with the given initial capacity. */
+  public CompactChain(int initialCapacity) {
+    int capacity = Math.max(4, initialCapacity);
+    this.items = new Object[capacity];
+    this.next = new int[capacity];
+    this.prev = new int[capacity];
+    this.table = new int[tableSizeFor(capacity)];
+  }
+
+  /** Constructs a CompactChain filled with the contents of the src Chain. */
+  public CompactChain(Chain<E> src) {
+    this(src.size());
+    addAll(src);
+  }
+
+  private static int tableSizeFor(int capacity) {
+    // keep the load factor of the index at or below 1/2
+    return Integer.highestOneBit(Math.max(4, capacity) - 1) << 2;
+  }
+
+  private static int hash(Object o) {
+    int h = o.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  @SuppressWarnings("unchecked")
+  private E itemAt(int slot) {
+    return (E) items[slot];
+  }
+
+  /** Returns the slot holding the given object, or {@link #NONE} if it is not contained in this chain. */
+  protected int slotOf(Object o) {
+    if (o == null) {
+      return NONE;
+    }
+    final int[] table = this.table;
+    final int mask = table.length - 1;
+    for (int i = hash(o) & mask;; i = (i + 1) & mask) {
+      int s = table[i];
+      if (s == 0) {
+        return NONE;
+      }
+      Object item = items[s - 1];
+      if (item == o || item.equals(o)) {
+        return s - 1;
+      }
+    }
+  }
+
+  private void index(int slot) {
+    final int[] table = this.table;
+    final int mask = table.length - 1;
+    int i = hash(items[slot]) & mask;
+    while (table[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    table[i] = slot + 1;
+  }
+
+  private void unindex(int slot) {
+    final int[] table = this.table;
+    final int mask = table.length - 1;
+    int i = hash(items[slot]) & mask;
+    while (table[i] != slot + 1) {
+      i = (i + 1) & mask;
+    }
+    // Backward-shift deletion: move later entries of the same probe sequence into the hole so
+    // that lookups never stop early at it.
+    for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+      int k = hash(items[table[j] - 1]) & mask;
+      boolean stays = (i <= j) ? (i < k && k <= j) : (i < k || k <= j);
+      if (!stays) {
+        table[i] = table[j];
+        i = j;
+      }
+    }
+    table[i] = 0;
+  }
+
+  private void rehash(int newTableSize) {
+    this.table = new int[newTableSize];
+    for (int s = first; s != NONE; s = next[s]) {
+      index(s);
+    }
+  }
+
+  /** Stores the item in a fresh slot and indexes it, without linking it into the chain. */
+  private int allocate(E item) {
+    int slot;
+    if (free != NONE) {
+      slot = free;
+      free = next[slot];
+    } else {
+      if (used == items.length) {
+        int capacity = items.length + (items.length >> 1) + 1;
+        items = Arrays.copyOf(items, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+      }
+      slot = used++;
+    }
+    if ((size + 1) * 2 > table.length) {
+      rehash(table.length << 1);
+    }
+    items[slot] = item;
+    index(slot);
+    size++;
+    return slot;
+  }
+
+  private void link(int slot, int before, int after) {
+    prev[slot] = before;
+    next[slot] = after;
+    if (before == NONE) {
+      first = slot;
+    } else {
+      next[before] = slot;
+    }
+    if (after == NONE) {
+      last = slot;
+    } else {
+      prev[after] = slot;
+    }
+  }
+
+  /** Unlinks the element in the given slot from the chain and recycles the slot. */
+  protected void release(int slot) {
+    final int before = prev[slot];
+    final int after = next[slot];
+    if (before == NONE) {
+      first = after;
+    } else {
+      next[before] = after;
+    }
+    if (after == NONE) {
+      last = before;
+    } else {
+      prev[after] = before;
+    }
+    unindex(slot);
+    items[slot] = null;
+    next[slot] = free;
+    free = slot;
+    size--;
+  }
+
+  private int insertionPoint(E toInsert, E point) {
+    if (toInsert == null) {
+      throw new RuntimeException("Cannot insert a null object into a Chain!");
+    }
+    if (point == null) {
+      throw new RuntimeException("Insertion point cannot be null!");
+    }
+    if (slotOf(toInsert) != NONE) {
+      throw new RuntimeException("Chain already contains object.");
+    }
+    int slot = slotOf(point);
+    if (slot == NONE) {
+      throw new RuntimeException("Insertion point not found in chain!");
+    }
+    return slot;
+  }
+
+  /** Erases the contents of the current CompactChain. */
+  @Override
+  public synchronized void clear() {
+    stateCount++;
+    Arrays.fill(items, 0, used, null);
+    Arrays.fill(table, 0);
+    first = last = free = NONE;
+    size = used = 0;
+  }
+
+  @Override
+  public synchronized void swapWith(E out, E in) {
+    insertBefore(in, out);
+    remove(out);
+  }
+
+  /** Adds the given object to this CompactChain. */
+  @Override
+  public synchronized boolean add(E item) {
+    addLast(item);
+    return true;
+  }
+
+  /**
+   * Gets all elements in the chain. There is no guarantee on sorting. The returned collection is a copy and thus not affected
+   * by later modifications of this chain.
+   *
+   * @return All elements in the chain in an unsorted collection
+   */
+  @Override
+  public synchronized Collection<E> getElementsUnsorted() {
+    return new ArrayList<E>(this);
+  }
+
+  @Override
+  public synchronized boolean follows(E someObject, E someReferenceObject) {
+    for (int s = slotOf(someReferenceObject); s != NONE; s = next[s]) {
+      if (items[s] == someObject) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized boolean contains(Object o) {
+    return slotOf(o) != NONE;
+  }
+
+  @Override
+  public synchronized boolean containsAll(Collection<?> c) {
+    for (Object o : c) {
+      if (slotOf(o) == NONE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized void insertAfter(E toInsert, E point) {
+    int slot = insertionPoint(toInsert, point);
+    stateCount++;
+    link(allocate(toInsert), slot, next[slot]);
+  }
+
+  @Override
+  public synchronized void insertAfter(Collection<? extends E> toInsert, E point) {
+    if (toInsert == null) {
+      throw new RuntimeException("Cannot insert a null Collection into a Chain!");
+    }
+    if (point == null) {
+      throw new RuntimeException("Insertion point cannot be null!");
+    }
+
+    E previousPoint = point;
+    for (E o : toInsert) {
+      insertAfter(o, previousPoint);
+      previousPoint = o;
+    }
+  }
+
+  @Override
+  public synchronized void insertAfter(List<E> toInsert, E point) {
+    insertAfter((Collection<E>) toInsert, point);
+  }
+
+  @Override
+  public synchronized void insertAfter(Chain<E> toInsert, E point) {
+    insertAfter((Collection<E>) toInsert, point);
+  }
+
+  @Override
+  public synchronized void insertBefore(E toInsert, E point) {
+    int slot = insertionPoint(toInsert, point);
+    stateCount++;
+    link(allocate(toInsert), prev[slot], slot);
+  }
+
+  @Override
+  public synchronized void insertBefore(Collection<? extends E> toInsert, E point) {
+    if (toInsert == null) {
+      throw new RuntimeException("Cannot insert a null Collection into a Chain!");
+    }
+    if (point == null) {
+      throw new RuntimeException("Insertion point cannot be null!");
+    }
+
+    for (E o : toInsert) {
+      insertBefore(o, point);
+    }
+  }
+
+  @Override
+  public synchronized void insertBefore(List<E> toInsert, E point) {
+    insertBefore((Collection<E>) toInsert, point);
+  }
+
+  @Override
+  public synchronized void insertBefore(Chain<E> toInsert, E point) {
+    insertBefore((Collection<E>) toInsert, point);
+  }
+
+  @Override
+  public synchronized boolean remove(Object item) {
+    if (item == null) {
+      throw new RuntimeException("Cannot remove a null object from a Chain!");
+    }
+
+    stateCount++;
+    int slot = slotOf(item);
+    if (slot != NONE) {
+      release(slot);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized void addFirst(E item) {
+    if (item == null) {
+      throw new RuntimeException("Cannot insert a null object into a Chain!");
+    }
+    stateCount++;
+    if (slotOf(item) != NONE) {
+      throw new RuntimeException("Chain already contains object.");
+    }
+    link(allocate(item), NONE, first);
+  }
+
+  @Override
+  public synchronized void addLast(E item) {
+    if (item == null) {
+      throw new RuntimeException("Cannot insert a null object into a Chain!");
+    }
+    stateCount++;
+    if (slotOf(item) != NONE) {
+      throw new RuntimeException("Chain already contains object: " + item);
+    }
+    link(allocate(item), last, NONE);
+  }
+
+  @Override
+  public synchronized void removeFirst() {
+    if (first == NONE) {
+      throw new NoSuchElementException();
+    }
+    stateCount++;
+    release(first);
+  }
+
+  @Override
+  public synchronized void removeLast() {
+    if (last == NONE) {
+      throw new NoSuchElementException();
+    }
+    stateCount++;
+    release(last);
+  }
+
+  @Override
+  public synchronized E getFirst() {
+    if (first == NONE) {
+      throw new NoSuchElementException();
+    }
+    return itemAt(first);
+  }
+
+  @Override
+  public synchronized E getLast() {
+    if (last == NONE) {
+      throw new NoSuchElementException();
+    }
+    return itemAt(last);
+  }
+
+  @Override
+  public synchronized E getSuccOf(E point) throws NoSuchElementException {
+    int slot = slotOf(point);
+    if (slot == NONE) {
+      throw new NoSuchElementException();
+    }
+    slot = next[slot];
+    return slot == NONE ? null : itemAt(slot);
+  }
+
+  @Override
+  public synchronized E getPredOf(E point) throws NoSuchElementException {
+    if (point == null) {
+      throw new RuntimeException("Chain cannot contain null objects!");
+    }
+    int slot = slotOf(point);
+    if (slot == NONE) {
+      throw new NoSuchElementException();
+    }
+    slot = prev[slot];
+    return slot == NONE ? null : itemAt(slot);
+  }
+
+  @Override
+  public synchronized Iterator<E> snapshotIterator() {
+    return new ArrayList<E>(this).iterator();
+  }
+
+  public synchronized Iterator<E> snapshotIterator(E from) {
+    ArrayList<E> l = new ArrayList<E>();
+    if (from != null) {
+      for (Iterator<E> it = new SlotIterator(from, null); it.hasNext();) {
+        l.add(it.next());
+      }
+    }
+    return l.iterator();
+  }
+
+  @Override
+  public synchronized Iterator<E> iterator() {
+    if (first == NONE) {
+      return HashChain.emptyIterator();
+    } else {
+      return new SlotIterator(itemAt(first), null);
+    }
+  }
+
+  @Override
+  public synchronized Iterator<E> iterator(E from) {
+    if (from == null || first == NONE) {
+      return HashChain.emptyIterator();
+    } else {
+      return new SlotIterator(from, null);
+    }
+  }
+
+  /**
+   * Returns an iterator ranging from <code>head</code> to <code>tail</code>, inclusive, with the same semantics as
+   * {@link HashChain#iterator(Object, Object)}.
+   *
+   * @throws NoSuchElementException
+   *           if <code>head</code> is not an element of the chain.
+   */
+  @Override
+  public synchronized Iterator<E> iterator(E head, E tail) {
+    if (head == null || first == NONE) {
+      return HashChain.emptyIterator();
+    } else if (this.getPredOf(head) == tail) {
+      return HashChain.emptyIterator();
+    } else {
+      return new SlotIterator(head, tail);
+    }
+  }
+
+  @Override
+  public synchronized int size() {
+    return size;
+  }
+
+  /** Returns a textual representation of the contents of this Chain. */
+  @Override
+  public synchronized String toString() {
+    StringBuilder strBuf = new StringBuilder();
+    strBuf.append('[');
+    for (int s = first; s != NONE; s = next[s]) {
+      if (s != first) {
+        strBuf.append(", ");
+      }
+      strBuf.append(items[s].toString());
+    }
+    strBuf.append(']');
+    return strBuf.toString();
+  }
+
+  /** Returns the number of times this chain has been modified. */
+  @Override
+  public long getModificationCount() {
+    return stateCount;
+  }
+
+  protected class SlotIterator implements Iterator<E> {
+    private final E destination;
+    private int nextSlot;
+    private int currentSlot = NONE;
+    private E current = null;
+    private int iteratorStateCount;
+
+    public SlotIterator(E from, E to) {
+      if (from == null) { // NOTE: 'to' is allowed to be 'null' to traverse entire chain
+        throw new RuntimeException("Chain cannot contain null objects!");
+      }
+      this.nextSlot = slotOf(from);
+      if (nextSlot == NONE) {
+        throw new NoSuchElementException(
+            "CompactChain.SlotIterator(obj) with obj that is not in the chain: " + from.toString());
+      }
+      this.destination = to;
+      this.iteratorStateCount = stateCount;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (stateCount != iteratorStateCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      if (destination == null) {
+        return nextSlot != NONE;
+      } else {
+        // Ignore whether (nextSlot == NONE), so next() will produce
+        // a NoSuchElementException if destination is not in the chain.
+        return destination != current;
+      }
+    }
+
+    @Override
+    public E next() throws NoSuchElementException {
+      if (stateCount != iteratorStateCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      if (nextSlot == NONE) {
+        String exceptionMsg;
+        if (destination != null && destination != current) {
+          exceptionMsg = "CompactChain.SlotIterator.next() reached end of chain without reaching specified tail unit";
+        } else {
+          exceptionMsg = "CompactChain.SlotIterator.next() called past the end of the Chain";
+        }
+        throw new NoSuchElementException(exceptionMsg);
+      }
+      currentSlot = nextSlot;
+      current = itemAt(currentSlot);
+      nextSlot = next[currentSlot];
+      return current;
+    }
+
+    @Override
+    public void remove() throws IllegalStateException {
+      if (stateCount != iteratorStateCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (currentSlot == NONE) {
+        throw new IllegalStateException();
+      }
+
+      stateCount++;
+      iteratorStateCount++;
+      release(currentSlot);
+      currentSlot = NONE;
+    }
+  }
+}
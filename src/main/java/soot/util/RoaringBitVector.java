@@ -0,0 +1,635 @@
+package soot.util;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed bit vector in the style of Roaring bitmaps. The bits are grouped into chunks of 2^16 bits that share the upper
+ * 16 bits of their index, and every chunk that contains a set bit is kept in the most compact of three containers: a sorted
+ * array of the lower 16 bits for sparse chunks, a plain bitmap for dense chunks, or a list of runs for chunks that consist
+ * of long ranges of set bits. Chunks without set bits take no space, so a sparse vector over a large universe stays small.
+ *
+ * Bits can only be set, never cleared.
+ *
+ * @see BitVector
+ */
+public final class RoaringBitVector {
+  /** Largest number of elements kept in an array container. */
+  private static final int ARRAY_MAX = 4096;
+  /** Number of words in a bitmap container. */
+  private static final int BITMAP_WORDS = 1 << 10;
+
+  private char[] keys = new char[4];
+  private Container[] containers = new Container[4];
+  private int size = 0;
+  private int cardinality = 0;
+  private int optimizedCardinality = 0;
+
+  public boolean get(int bit) {
+    int i = indexOf(high(bit));
+    return i >= 0 && containers[i].contains(low(bit));
+  }
+
+  /**
+   * Sets the given bit.
+   *
+   * @return true iff the bit was not set before
+   */
+  public boolean set(int bit) {
+    final char key = high(bit);
+    int i = indexOf(key);
+    if (i < 0) {
+      i = insert(-i - 1, key, new ArrayContainer(4));
+    }
+    Container c = containers[i];
+    final int before = c.cardinality();
+    c = c.add(low(bit));
+    containers[i] = c;
+    if (c.cardinality() == before) {
+      return false;
+    }
+    cardinality++;
+    compactIfGrown();
+    return true;
+  }
+
+  /**
+   * Computes this = this OR ((orset AND andset) AND (NOT andnotset)). Both andset and andnotset may be null. Returns true
+   * iff this is modified.
+   */
+  public boolean orAndAndNot(RoaringBitVector orset, BitVector andset, RoaringBitVector andnotset) {
+    if (orset == this) {
+      return false;
+    }
+    final int before = cardinality;
+    long[] buffer = null;
+    for (int j = 0; j < orset.size; j++) {
+      final char key = orset.keys[j];
+      final Container other = orset.containers[j];
+      Container exclude = null;
+      if (andnotset != null) {
+        int e = andnotset.indexOf(key);
+        if (e >= 0) {
+          exclude = andnotset.containers[e];
+        }
+      }
+      final int i = indexOf(key);
+      final Container old = i < 0 ? null : containers[i];
+      final int oldCard = old == null ? 0 : old.cardinality();
+      Container c = old;
+      if (other instanceof ArrayContainer) {
+        // Sparse chunks are merged element by element
+        final ArrayContainer a = (ArrayContainer) other;
+        final int base = key << 16;
+        for (int k = 0; k < a.cardinality; k++) {
+          final char v = a.values[k];
+          if ((andset == null || andset.get(base | v)) && (exclude == null || !exclude.contains(v))) {
+            c = (c == null ? new ArrayContainer(4) : c).add(v);
+          }
+        }
+      } else {
+        // Dense chunks are merged word by word
+        if (buffer == null) {
+          buffer = new long[BITMAP_WORDS];
+        } else {
+          Arrays.fill(buffer, 0L);
+        }
+        other.orInto(buffer);
+        if (andset != null) {
+          final int base = key << 10;
+          for (int w = 0; w < BITMAP_WORDS; w++) {
+            buffer[w] &= andset.word(base + w);
+          }
+        }
+        if (exclude != null) {
+          exclude.andNotInto(buffer);
+        }
+        if (old == null) {
+          BitmapContainer b = new BitmapContainer();
+          b.or(buffer);
+          c = b.cardinality == 0 ? null : b.cardinality <= ARRAY_MAX ? b.toArray() : b;
+        } else if (!old.containsAll(buffer)) {
+          BitmapContainer b = old.toBitmap();
+          b.or(buffer);
+          c = b.cardinality <= ARRAY_MAX ? b.toArray() : b;
+        }
+      }
+      if (c != null && c.cardinality() > oldCard) {
+        if (i < 0) {
+          insert(-i - 1, key, c);
+        } else {
+          containers[i] = c;
+        }
+        cardinality += c.cardinality() - oldCard;
+      }
+    }
+    if (cardinality == before) {
+      return false;
+    }
+    compactIfGrown();
+    return true;
+  }
+
+  /** Calls the given action on the index of every set bit, in increasing order. */
+  public void forEach(IntConsumer action) {
+    for (int i = 0; i < size; i++) {
+      containers[i].forEach(keys[i] << 16, action);
+    }
+  }
+
+  public int cardinality() {
+    return cardinality;
+  }
+
+  public boolean isEmpty() {
+    return cardinality == 0;
+  }
+
+  /** Returns an estimate of the number of bytes used by this vector. */
+  public long sizeInBytes() {
+    long ret = 16 + 2L * keys.length + 4L * containers.length;
+    for (int i = 0; i < size; i++) {
+      ret += containers[i].sizeInBytes();
+    }
+    return ret;
+  }
+
+  /** Converts every chunk to its most compact container. */
+  public void runOptimize() {
+    for (int i = 0; i < size; i++) {
+      containers[i] = containers[i].optimize();
+    }
+    optimizedCardinality = cardinality;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder ret = new StringBuilder("{");
+    forEach(new IntConsumer() {
+      @Override
+      public void accept(int bit) {
+        if (ret.length() > 1) {
+          ret.append(", ");
+        }
+        ret.append(bit);
+      }
+    });
+    return ret.append('}').toString();
+  }
+
+  /**
+   * Bitmap containers are only created when chunks become dense. Once the vector has grown considerably, it is worth
+   * checking whether the new chunks can be stored more compactly. The check takes time linear in the size of the vector, and
+   * the growth required before the next check is proportional to it, so this adds constant amortized time per set bit.
+   */
+  private void compactIfGrown() {
+    if (cardinality - optimizedCardinality > Math.max(optimizedCardinality, ARRAY_MAX)) {
+      runOptimize();
+    }
+  }
+
+  private int indexOf(char key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  private int insert(int pos, char key, Container c) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      containers = Arrays.copyOf(containers, size * 2);
+    }
+    System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+    System.arraycopy(containers, pos, containers, pos + 1, size - pos);
+    keys[pos] = key;
+    containers[pos] = c;
+    size++;
+    return pos;
+  }
+
+  private static char high(int bit) {
+    return (char) (bit >>> 16);
+  }
+
+  private static char low(int bit) {
+    return (char) bit;
+  }
+
+  private static void setRange(long[] words, int start, int end) {
+    final int first = start >>> 6;
+    final int last = end >>> 6;
+    final long firstMask = -1L << start;
+    final long lastMask = -1L >>> (63 - (end & 63));
+    if (first == last) {
+      words[first] |= firstMask & lastMask;
+      return;
+    }
+    words[first] |= firstMask;
+    for (int w = first + 1; w < last; w++) {
+      words[w] = -1L;
+    }
+    words[last] |= lastMask;
+  }
+
+  private static void clearRange(long[] words, int start, int end) {
+    final int first = start >>> 6;
+    final int last = end >>> 6;
+    final long firstMask = -1L << start;
+    final long lastMask = -1L >>> (63 - (end & 63));
+    if (first == last) {
+      words[first] &= ~(firstMask & lastMask);
+      return;
+    }
+    words[first] &= ~firstMask;
+    for (int w = first + 1; w < last; w++) {
+      words[w] = 0L;
+    }
+    words[last] &= ~lastMask;
+  }
+
+  /** The set lower 16 bits of one chunk. */
+  private abstract static class Container {
+    abstract int cardinality();
+
+    abstract boolean contains(char v);
+
+    /** Adds v, returns the container that holds the result, which may be a new one. */
+    abstract Container add(char v);
+
+    /** Sets the bits of this container in the given bitmap of a chunk. */
+    abstract void orInto(long[] words);
+
+    /** Clears the bits of this container in the given bitmap of a chunk. */
+    abstract void andNotInto(long[] words);
+
+    /** Calls the given action on base plus every element, in increasing order. */
+    abstract void forEach(int base, IntConsumer action);
+
+    abstract int numberOfRuns();
+
+    abstract long sizeInBytes();
+
+    boolean containsAll(long[] words) {
+      long[] mine = new long[BITMAP_WORDS];
+      orInto(mine);
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        if ((words[w] & ~mine[w]) != 0L) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    BitmapContainer toBitmap() {
+      BitmapContainer b = new BitmapContainer();
+      orInto(b.words);
+      b.cardinality = cardinality();
+      return b;
+    }
+
+    ArrayContainer toArray() {
+      final ArrayContainer a = new ArrayContainer(cardinality());
+      forEach(0, new IntConsumer() {
+        @Override
+        public void accept(int v) {
+          a.values[a.cardinality++] = (char) v;
+        }
+      });
+      return a;
+    }
+
+    RunContainer toRuns() {
+      final RunContainer r = new RunContainer(numberOfRuns());
+      forEach(0, new IntConsumer() {
+        @Override
+        public void accept(int v) {
+          r.append((char) v);
+        }
+      });
+      return r;
+    }
+
+    /** Returns the most compact container for the elements of this one. */
+    Container optimize() {
+      final int card = cardinality();
+      final long runBytes = 4L * numberOfRuns();
+      final long otherBytes = card <= ARRAY_MAX ? 2L * card : 8L * BITMAP_WORDS;
+      Container ret;
+      if (runBytes < otherBytes) {
+        ret = this instanceof RunContainer ? this : toRuns();
+      } else if (card <= ARRAY_MAX) {
+        ret = this instanceof ArrayContainer ? this : toArray();
+      } else {
+        ret = toBitmap();
+      }
+      return ret.trim();
+    }
+
+    /** Releases unused capacity. */
+    Container trim() {
+      return this;
+    }
+  }
+
+  private static final class ArrayContainer extends Container {
+    private char[] values;
+    private int cardinality = 0;
+
+    ArrayContainer(int capacity) {
+      values = new char[capacity];
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char v) {
+      return Arrays.binarySearch(values, 0, cardinality, v) >= 0;
+    }
+
+    @Override
+    Container add(char v) {
+      int pos = Arrays.binarySearch(values, 0, cardinality, v);
+      if (pos >= 0) {
+        return this;
+      }
+      if (cardinality == ARRAY_MAX) {
+        return toBitmap().add(v);
+      }
+      pos = -pos - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+      }
+      System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+      values[pos] = v;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    void orInto(long[] words) {
+      for (int i = 0; i < cardinality; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+    }
+
+    @Override
+    void andNotInto(long[] words) {
+      for (int i = 0; i < cardinality; i++) {
+        words[values[i] >>> 6] &= ~(1L << values[i]);
+      }
+    }
+
+    @Override
+    boolean containsAll(long[] words) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        for (long word = words[w]; word != 0L; word &= word - 1) {
+          if (!contains((char) ((w << 6) | Long.numberOfTrailingZeros(word)))) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int i = 0; i < cardinality; i++) {
+        action.accept(base | values[i]);
+      }
+    }
+
+    @Override
+    int numberOfRuns() {
+      int runs = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (i == 0 || values[i] != values[i - 1] + 1) {
+          runs++;
+        }
+      }
+      return runs;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 24 + 2L * values.length;
+    }
+
+    @Override
+    Container trim() {
+      if (values.length > cardinality) {
+        values = Arrays.copyOf(values, cardinality);
+      }
+      return this;
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    private final long[] words = new long[BITMAP_WORDS];
+    private int cardinality = 0;
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char v) {
+      return (words[v >>> 6] & (1L << v)) != 0L;
+    }
+
+    @Override
+    Container add(char v) {
+      final long mask = 1L << v;
+      if ((words[v >>> 6] & mask) == 0L) {
+        words[v >>> 6] |= mask;
+        cardinality++;
+      }
+      return this;
+    }
+
+    void or(long[] other) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        cardinality += Long.bitCount(other[w] & ~words[w]);
+        words[w] |= other[w];
+      }
+    }
+
+    @Override
+    void orInto(long[] other) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        other[w] |= words[w];
+      }
+    }
+
+    @Override
+    void andNotInto(long[] other) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        other[w] &= ~words[w];
+      }
+    }
+
+    @Override
+    boolean containsAll(long[] other) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        if ((other[w] & ~words[w]) != 0L) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        for (long word = words[w]; word != 0L; word &= word - 1) {
+          action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+        }
+      }
+    }
+
+    @Override
+    int numberOfRuns() {
+      int runs = 0;
+      long carry = 0L;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        final long word = words[w];
+        // A run starts at every set bit whose predecessor is clear
+        runs += Long.bitCount(word & ~((word << 1) | carry));
+        carry = word >>> 63;
+      }
+      return runs;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 32 + 8L * BITMAP_WORDS;
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      return this;
+    }
+  }
+
+  private static final class RunContainer extends Container {
+    /** Pairs of the first element of a run and the number of further elements in it. */
+    private char[] runs;
+    private int runCount = 0;
+    private int cardinality = 0;
+
+    RunContainer(int capacity) {
+      runs = new char[2 * Math.max(1, capacity)];
+    }
+
+    void append(char v) {
+      final int last = 2 * (runCount - 1);
+      if (runCount > 0 && v == runs[last] + runs[last + 1] + 1) {
+        runs[last + 1]++;
+      } else {
+        if (2 * runCount == runs.length) {
+          runs = Arrays.copyOf(runs, runs.length * 2);
+        }
+        runs[2 * runCount] = v;
+        runs[2 * runCount + 1] = 0;
+        runCount++;
+      }
+      cardinality++;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char v) {
+      // Find the last run starting at or before v
+      int lo = 0;
+      int hi = runCount - 1;
+      while (lo <= hi) {
+        final int mid = (lo + hi) >>> 1;
+        if (runs[2 * mid] <= v) {
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return hi >= 0 && v - runs[2 * hi] <= runs[2 * hi + 1];
+    }
+
+    @Override
+    Container add(char v) {
+      if (contains(v)) {
+        return this;
+      }
+      // Runs are only built by optimize(), new elements go to a plain container
+      return (cardinality < ARRAY_MAX ? toArray() : toBitmap()).add(v);
+    }
+
+    @Override
+    void orInto(long[] words) {
+      for (int i = 0; i < runCount; i++) {
+        setRange(words, runs[2 * i], runs[2 * i] + runs[2 * i + 1]);
+      }
+    }
+
+    @Override
+    void andNotInto(long[] words) {
+      for (int i = 0; i < runCount; i++) {
+        clearRange(words, runs[2 * i], runs[2 * i] + runs[2 * i + 1]);
+      }
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int i = 0; i < runCount; i++) {
+        final int start = runs[2 * i];
+        final int end = start + runs[2 * i + 1];
+        for (int v = start; v <= end; v++) {
+          action.accept(base | v);
+        }
+      }
+    }
+
+    @Override
+    int numberOfRuns() {
+      return runCount;
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 32 + 2L * runs.length;
+    }
+
+    @Override
+    Container trim() {
+      if (runs.length > 2 * runCount) {
+        runs = Arrays.copyOf(runs, 2 * runCount);
+      }
+      return this;
+    }
+  }
+}
@@ -24,8 +24,8 @@ package soot.util;
 
 import heros.ThreadSafe;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A class that numbers strings, so they can be placed in bitsets.
@@ -35,14 +35,17 @@ import java.util.Map;
 @ThreadSafe
 public class StringNumberer extends ArrayNumberer<NumberedString> {
 
-  private final Map<String, NumberedString> stringToNumbered = new HashMap<String, NumberedString>(1024);
+  private final ConcurrentMap<String, NumberedString> stringToNumbered
+      = new ConcurrentHashMap<String, NumberedString>(1024);
 
-  public synchronized NumberedString findOrAdd(String s) {
+  public NumberedString findOrAdd(String s) {
     NumberedString ret = stringToNumbered.get(s);
     if (ret == null) {
-      ret = new NumberedString(s);
-      stringToNumbered.put(s, ret);
-      add(ret);
+      ret = stringToNumbered.computeIfAbsent(s, k -> {
+        NumberedString n = new NumberedString(k);
+        add(n);
+        return n;
+      });
     }
     return ret;
   }
@@ -0,0 +1,99 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import soot.options.Options;
+
+/**
+ * Tests that running the body packs on several threads gives the same results as running them on a single thread.
+ */
+public class BodyPackSchedulerTest {
+
+  private static final String CLASS_NAME = "java.util.ArrayList";
+
+  private static void setup(int threadNum) {
+    G.reset();
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_output_format(Options.output_format_none);
+    Options.v().set_num_threads(threadNum);
+    Options.v().setPhaseOption("jop", "enabled:true");
+    Scene.v().addBasicClass(CLASS_NAME, SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+    Scene.v().getSootClass(CLASS_NAME).setApplicationClass();
+  }
+
+  private static Map<String, String> runBodyPacks(int threadNum) {
+    setup(threadNum);
+    PackManager.v().runBodyPacks();
+
+    Map<String, String> bodies = new TreeMap<String, String>();
+    for (SootMethod m : Scene.v().getSootClass(CLASS_NAME).getMethods()) {
+      if (m.hasActiveBody()) {
+        bodies.put(m.getSignature(), m.getActiveBody().toString());
+      }
+    }
+    return bodies;
+  }
+
+  @Test
+  public void testSameAsSequential() {
+    Map<String, String> expected = runBodyPacks(1);
+    Map<String, String> actual = runBodyPacks(4);
+
+    assertEquals(expected.keySet(), actual.keySet());
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testExceptionPropagates() {
+    setup(4);
+    PackManager.v().getPack("jtp").add(new Transform("jtp.fail", new BodyTransformer() {
+      @Override
+      protected void internalTransform(Body b, String phaseName, Map<String, String> options) {
+        if (b.getMethod().getName().equals("size")) {
+          throw new IllegalStateException("failed in " + b.getMethod().getSignature());
+        }
+      }
+    }));
+
+    try {
+      PackManager.v().runBodyPacks();
+      fail("the exception thrown by a method task was not propagated");
+    } catch (IllegalStateException e) {
+      // The fork/join pool may wrap the exception into a new one of the same type
+      Throwable cause = e;
+      while (cause.getCause() != null && !cause.getMessage().startsWith("failed in")) {
+        cause = cause.getCause();
+      }
+      assertEquals("failed in <java.util.ArrayList: int size()>", cause.getMessage());
+    }
+  }
+}
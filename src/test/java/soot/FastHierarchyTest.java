@@ -24,7 +24,10 @@ package soot;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -176,6 +179,78 @@ public class FastHierarchyTest {
     assertThat(fh.getAllImplementersOfInterface(interfaceD), containsInAnyOrder(scA, scB, scC1, scD));
   }
 
+  @Test
+  public void testCanStoreClassInInterface() {
+    G.reset();
+
+    Scene s = Scene.v();
+    s.loadNecessaryClasses();
+
+    SootClass interfaceA = generacteSceneClass("InterfaceA", Modifier.INTERFACE);
+    SootClass interfaceB = generacteSceneClass("InterfaceB", Modifier.INTERFACE);
+    SootClass interfaceC = generacteSceneClass("InterfaceC", Modifier.INTERFACE);
+
+    SootClass scA = generacteSceneClass("ClassA", Modifier.ABSTRACT);
+    SootClass scSub = generacteSceneClass("ClassSub", 0);
+    SootClass scZ = generacteSceneClass("ClassZ", 0);
+
+    interfaceA.addInterface(interfaceB);
+    scA.addInterface(interfaceA);
+    scSub.setSuperclass(scA);
+
+    FastHierarchy fh = s.getOrMakeFastHierarchy();
+
+    assertTrue(fh.canStoreClass(scA, interfaceB));
+    assertTrue(fh.canStoreClass(scSub, interfaceA));
+    assertTrue(fh.canStoreClass(scSub, interfaceB));
+    assertFalse(fh.canStoreClass(scZ, interfaceB));
+    assertFalse(fh.canStoreClass(scSub, interfaceC));
+
+    // Only the concrete subclass of the abstract implementer can be stored
+    assertTrue(fh.canStoreType(AnySubType.v(interfaceB.getType()), scSub.getType()));
+    assertFalse(fh.canStoreType(AnySubType.v(interfaceB.getType()), scZ.getType()));
+    assertTrue(fh.canStoreType(AnySubType.v(scA.getType()), interfaceB.getType()));
+    assertFalse(fh.canStoreType(AnySubType.v(scZ.getType()), interfaceA.getType()));
+  }
+
+  @Test
+  public void testResolveAbstractDispatch() {
+    G.reset();
+
+    Scene s = Scene.v();
+    s.loadNecessaryClasses();
+
+    SootClass interfaceA = generacteSceneClass("InterfaceA", Modifier.INTERFACE);
+    SootClass scA = generacteSceneClass("ClassA", 0);
+    SootClass scSub = generacteSceneClass("ClassSub", 0);
+    SootClass scOther = generacteSceneClass("ClassOther", 0);
+
+    scA.addInterface(interfaceA);
+    scSub.setSuperclass(scA);
+    scOther.addInterface(interfaceA);
+
+    SootMethod iFoo = addMethod(interfaceA, Modifier.PUBLIC | Modifier.ABSTRACT);
+    SootMethod aFoo = addMethod(scA, Modifier.PUBLIC);
+    SootMethod subFoo = addMethod(scSub, Modifier.PUBLIC);
+    SootMethod otherFoo = addMethod(scOther, Modifier.PUBLIC);
+
+    FastHierarchy fh = s.getOrMakeFastHierarchy();
+
+    Set<SootMethod> targets = fh.resolveAbstractDispatch(interfaceA, iFoo);
+    assertThat(targets, containsInAnyOrder(aFoo, subFoo, otherFoo));
+    assertThat(fh.resolveAbstractDispatch(scA, aFoo), containsInAnyOrder(aFoo, subFoo));
+
+    // The second query is answered from the dispatch table
+    assertSame(targets, fh.resolveAbstractDispatch(interfaceA, iFoo));
+    assertSame(subFoo, fh.resolveConcreteDispatch(scSub, iFoo));
+  }
+
+  private static SootMethod addMethod(SootClass sc, int modifiers) {
+    SootMethod m = Scene.v().makeSootMethod("foo", Collections.<Type>emptyList(), VoidType.v(), modifiers);
+    sc.addMethod(m);
+    return m;
+  }
+
   private static class FastHierarchyForUnittest extends FastHierarchy {
 
     @Override
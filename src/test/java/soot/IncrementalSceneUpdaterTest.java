@@ -0,0 +1,136 @@
+package soot;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import soot.jimple.toolkits.callgraph.CHATransformer;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.options.Options;
+
+public class IncrementalSceneUpdaterTest {
+
+  @Test
+  public void testChangedAndAddedClass() throws IOException {
+    File dir = Files.createTempDir();
+    // Main.main() calls Callee.foo(), which calls Callee.bar()
+    writeClass(dir, "Main", "main", "([Ljava/lang/String;)V", "Callee", "foo");
+    writeClass(dir, "Callee", "foo", "()V", "Callee", "bar", "bar");
+
+    G.reset();
+    Options.v().set_whole_program(true);
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_soot_classpath(dir.getAbsolutePath());
+    Options.v().set_process_dir(Collections.singletonList(dir.getAbsolutePath()));
+    Options.v().set_output_format(Options.output_format_none);
+    Scene.v().loadNecessaryClasses();
+    SootMethod main = Scene.v().getMethod("<Main: void main(java.lang.String[])>");
+    Scene.v().setEntryPoints(Collections.singletonList(main));
+    CHATransformer.v().transform();
+
+    SootClass callee = Scene.v().getSootClass("Callee");
+    SootMethod oldFoo = callee.getMethodByName("foo");
+    assertEquals(Collections.singleton(oldFoo), targets(main));
+
+    // Now Callee.foo() calls the method run() of the new class Extra, and Callee.bar() is replaced by Callee.baz()
+    writeClass(dir, "Callee", "foo", "()V", "Extra", "run", "baz");
+    writeClass(dir, "Extra", "run", "()V", null, null);
+
+    IncrementalSceneUpdater updater = new IncrementalSceneUpdater();
+    updater.update(Arrays.asList("Callee", "Extra"), Collections.<String>emptyList());
+
+    // The class is reloaded in place
+    assertSame(callee, Scene.v().getSootClass("Callee"));
+    assertFalse(callee.declaresMethodByName("bar"));
+    SootMethod foo = callee.getMethodByName("foo");
+    SootMethod run = Scene.v().getMethod("<Extra: void run()>");
+    assertNotSame(oldFoo, foo);
+    assertTrue(Scene.v().getSootClass("Extra").isApplicationClass());
+
+    assertEquals(Collections.singleton(foo), targets(main));
+    assertEquals(Collections.singleton(run), targets(foo));
+    CallGraph cg = Scene.v().getCallGraph();
+    assertFalse(cg.edgesInto(oldFoo).hasNext());
+    assertTrue(Scene.v().getReachableMethods().contains(run));
+
+    updater.runBodyPacks();
+    assertTrue(foo.hasActiveBody());
+  }
+
+  private static Set<SootMethod> targets(SootMethod m) {
+    Set<SootMethod> ret = new HashSet<SootMethod>();
+    for (Iterator<Edge> it = Scene.v().getCallGraph().edgesOutOf(m); it.hasNext();) {
+      SootMethod tgt = it.next().tgt();
+      if (!tgt.isJavaLibraryMethod()) {
+        ret.add(tgt);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Writes a class with a static method that calls the given static method, if any, and with the given empty static
+   * methods.
+   */
+  private static void writeClass(File dir, String name, String method, String desc, String calleeOwner, String callee,
+      String... emptyMethods) throws IOException {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+    MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, method, desc, null, null);
+    mv.visitCode();
+    if (callee != null) {
+      mv.visitMethodInsn(Opcodes.INVOKESTATIC, calleeOwner, callee, "()V", false);
+    }
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    for (String empty : emptyMethods) {
+      mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, empty, "()V", null, null);
+      mv.visitCode();
+      mv.visitInsn(Opcodes.RETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+    }
+    cw.visitEnd();
+    Files.write(cw.toByteArray(), new File(dir, name + ".class"));
+  }
+}
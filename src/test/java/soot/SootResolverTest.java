@@ -23,6 +23,11 @@ package soot;
  * #L%
  */
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
 import org.junit.Test;
 import soot.options.Options;
 
@@ -69,4 +74,63 @@ public class SootResolverTest {
         // throw java.lang.AssertionError !!!
         Scene.v().loadNecessaryClasses();
     }
+
+    @Test
+    public void testPrefetchClassSources() {
+        Map<String, Integer> expected = loadWholeProgram(false);
+        Map<String, Integer> actual = loadWholeProgram(true);
+        Assert.assertTrue("no prefetched source was used", SootResolver.v().prefetchedSourcesUsed > 0);
+
+        // Prefetching must not change which classes are resolved and how far
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testPipelineBodies() throws InterruptedException {
+        Map<String, String> expected = loadBodies(false);
+        Map<String, String> actual = loadBodies(true);
+
+        // Bodies built ahead of time must be the same as those built on retrieval
+        Assert.assertEquals(expected, actual);
+    }
+
+    private static Map<String, String> loadBodies(boolean pipeline) throws InterruptedException {
+        G.reset();
+
+        Options.v().set_allow_phantom_refs(true);
+        Options.v().set_pipeline_bodies(pipeline);
+        Scene.v().addBasicClass("java.util.ArrayList", SootClass.BODIES);
+        Scene.v().loadNecessaryClasses();
+        SootClass sc = Scene.v().getSootClass("java.util.ArrayList");
+
+        if (pipeline) {
+            // The bodies are prepared on background threads
+            for (int i = 0; i < 200 && SootResolver.v().preparedBodies.get() == 0; i++) {
+                Thread.sleep(50);
+            }
+            Assert.assertTrue("no body was prepared", SootResolver.v().preparedBodies.get() > 0);
+        }
+
+        Map<String, String> bodies = new TreeMap<>();
+        for (SootMethod m : sc.getMethods()) {
+            if (m.isConcrete()) {
+                bodies.put(m.getSignature(), m.retrieveActiveBody().toString());
+            }
+        }
+        return bodies;
+    }
+
+    private static Map<String, Integer> loadWholeProgram(boolean prefetch) {
+        G.reset();
+
+        Options.v().set_whole_program(true);
+        Options.v().set_prefetch_class_sources(prefetch);
+        Scene.v().loadNecessaryClasses();
+
+        Map<String, Integer> levels = new HashMap<>();
+        for (SootClass sc : Scene.v().getClasses()) {
+            levels.put(sc.getName(), sc.resolvingLevel());
+        }
+        return levels;
+    }
 }
@@ -0,0 +1,188 @@
+package soot.jimple.binary;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soot.Body;
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.options.Options;
+
+/**
+ * Round-trip tests for the binary Jimple format.
+ */
+public class BinaryJimpleTest {
+
+  private static final String[] CLASSES = { BinaryJimpleTest.class.getName(), "soot.util.HashChain",
+      "soot.jimple.toolkits.scalar.Evaluator", "soot.jimple.binary.BinaryJimpleInput" };
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testBodiesRoundTrip() throws Exception {
+    setup();
+    for (String name : CLASSES) {
+      SootClass sc = Scene.v().getSootClass(name);
+      List<String> expected = new ArrayList<>();
+      for (SootMethod m : sc.getMethods()) {
+        if (m.isConcrete()) {
+          expected.add(m.retrieveActiveBody().toString());
+        }
+      }
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new BinaryJimpleWriter().write(sc, out);
+      BinaryJimpleReader reader = new BinaryJimpleReader(new ByteArrayInputStream(out.toByteArray()));
+      Assert.assertEquals(name, reader.getClassName());
+
+      List<String> actual = new ArrayList<>();
+      for (SootMethod m : sc.getMethods()) {
+        if (m.isConcrete()) {
+          Body b = reader.readBody(m);
+          Assert.assertNotNull(m.getSignature(), b);
+          actual.add(b.toString());
+        }
+      }
+      Assert.assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testClassProvider() throws Exception {
+    setup();
+    final String name = "soot.util.HashChain";
+    SootClass sc = Scene.v().getSootClass(name);
+    List<String> expectedBodies = new ArrayList<>();
+    for (SootMethod m : sc.getMethods()) {
+      if (m.isConcrete()) {
+        expectedBodies.add(m.retrieveActiveBody().toString());
+      }
+    }
+    List<String> expected = describe(sc);
+
+    File dir = tmp.newFolder("jimplebin");
+    File file = new File(dir, name + BinaryJimple.FILE_EXTENSION);
+    try (OutputStream out = new FileOutputStream(file)) {
+      new BinaryJimpleWriter().write(sc, out);
+    }
+
+    G.reset();
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_src_prec(Options.src_prec_jimplebin);
+    // The supertypes of the class are still read from class files
+    Options.v().set_soot_classpath(dir.getAbsolutePath() + File.pathSeparator + new File("target/classes").getAbsolutePath());
+    Scene.v().addBasicClass(name, SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+
+    SootClass loaded = Scene.v().getSootClass(name);
+    Assert.assertTrue(loaded.getMethods().stream().filter(SootMethod::isConcrete)
+        .allMatch(m -> m.getSource() instanceof BinaryJimpleMethodSource));
+    Assert.assertEquals(expected, describe(loaded));
+    List<String> actualBodies = new ArrayList<>();
+    for (SootMethod m : loaded.getMethods()) {
+      if (m.isConcrete()) {
+        actualBodies.add(m.retrieveActiveBody().toString());
+      }
+    }
+    Assert.assertEquals(expectedBodies, actualBodies);
+  }
+
+  private static List<String> describe(SootClass sc) {
+    List<String> members = new ArrayList<>();
+    members.add(sc.getModifiers() + " " + sc.getName() + " " + sc.getSuperclass().getName() + " " + sc.getInterfaces());
+    for (SootField f : sc.getFields()) {
+      members.add(f.getDeclaration());
+    }
+    for (SootMethod m : sc.getMethods()) {
+      members.add(m.getDeclaration() + " " + m.isConcrete());
+    }
+    return members;
+  }
+
+  private static void setup() {
+    G.reset();
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_soot_classpath(
+        new File("target/classes").getAbsolutePath() + File.pathSeparator + new File("target/test-classes").getAbsolutePath());
+    for (String name : CLASSES) {
+      Scene.v().addBasicClass(name, SootClass.BODIES);
+    }
+    Scene.v().loadNecessaryClasses();
+  }
+
+  // Used as input for the round trip, covers lambdas, switches, traps and constants of all kinds
+
+  @SuppressWarnings("unused")
+  private static int sample(String s, long l, double d, int[][] a) {
+    IntSupplier supplier = () -> s.length();
+    int r;
+    switch (s) {
+      case "a":
+        r = 1;
+        break;
+      case "b":
+        r = (int) (l >>> 3);
+        break;
+      default:
+        r = (int) d;
+    }
+    switch (r) {
+      case 1:
+      case 2:
+      case 3:
+        r += a.length;
+        break;
+      default:
+        r = -1;
+    }
+    try {
+      synchronized (BinaryJimpleTest.class) {
+        r ^= supplier.getAsInt() + a[0][1];
+      }
+    } catch (ArrayIndexOutOfBoundsException | NullPointerException e) {
+      r = s instanceof CharSequence ? 0 : Integer.MIN_VALUE;
+    }
+    int[][] m = new int[r & 3][2];
+    Object o = String.class;
+    return r + m.length + (o == null ? 1 : 0) + (int) (float) 1.5e10d;
+  }
+}
@@ -0,0 +1,176 @@
+package soot.jimple.cache;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.jimple.binary.BinaryJimpleReader;
+import soot.options.Options;
+
+/**
+ * Checks that bodies read from the {@link BodyCache} are the same as the bodies created by the jb pack.
+ */
+public class BodyCacheTest {
+
+  private static final String[] CLASSES = { "soot.util.HashChain", "soot.jimple.toolkits.scalar.Evaluator",
+      "soot.asm.AsmClassSource" };
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testCachedBodiesMatch() throws Exception {
+    File dir = tmp.newFolder("cache");
+
+    Map<String, String> uncached = loadBodies(null, false);
+    Map<String, String> stored = loadBodies(dir, false);
+    try (Stream<?> s = Files.walk(dir.toPath()).filter(Files::isRegularFile)) {
+      Assert.assertEquals(CLASSES.length, s.count());
+    }
+    Map<String, String> cached = loadBodies(dir, true);
+
+    assertSameBodies(uncached, stored);
+    assertSameBodies(uncached, cached);
+  }
+
+  @Test
+  public void testPartialEntries() throws Exception {
+    File dir = tmp.newFolder("cache");
+    final String name = CLASSES[0];
+
+    setup(dir, null);
+    List<SootMethod> methods = concreteMethods(name);
+    Set<String> loaded = new HashSet<>();
+    for (int i = 0; i < methods.size(); i += 2) {
+      methods.get(i).retrieveActiveBody();
+      loaded.add(methods.get(i).getSubSignature());
+    }
+    BodyCache.v().flush();
+    assertEntryHasBodies(dir, name, loaded);
+
+    // Bodies loaded in a later run are added to the entry
+    setup(dir, null);
+    for (SootMethod m : concreteMethods(name)) {
+      Assert.assertTrue(m.getSource() instanceof CachedMethodSource);
+      m.retrieveActiveBody();
+      loaded.add(m.getSubSignature());
+    }
+    BodyCache.v().flush();
+    assertEntryHasBodies(dir, name, loaded);
+  }
+
+  @Test
+  public void testClassPathChange() throws Exception {
+    File dir = tmp.newFolder("cache");
+    loadBodies(dir, false);
+    loadBodies(dir, true);
+
+    // Another class on the class path may change the typing of the cached bodies
+    File extra = tmp.newFolder("extra");
+    Files.write(new File(extra, "Extra.class").toPath(), new byte[] { 0 });
+    setup(dir, extra);
+    for (SootMethod m : concreteMethods(CLASSES[0])) {
+      Assert.assertFalse(m.getSignature(), m.getSource() instanceof CachedMethodSource);
+    }
+  }
+
+  private static void assertEntryHasBodies(File dir, String name, Set<String> expected) throws Exception {
+    List<Path> entries;
+    try (Stream<Path> s = Files.walk(dir.toPath()).filter(Files::isRegularFile)) {
+      entries = s.collect(Collectors.toList());
+    }
+    Assert.assertEquals(1, entries.size());
+    BinaryJimpleReader reader;
+    try (InputStream in = Files.newInputStream(entries.get(0))) {
+      reader = new BinaryJimpleReader(in);
+    }
+    Assert.assertEquals(name, reader.getClassName());
+    for (SootMethod m : concreteMethods(name)) {
+      Assert.assertEquals(m.getSignature(), expected.contains(m.getSubSignature()), reader.hasBody(m));
+    }
+  }
+
+  private static List<SootMethod> concreteMethods(String name) {
+    return Scene.v().getSootClass(name).getMethods().stream().filter(SootMethod::isConcrete).collect(Collectors.toList());
+  }
+
+  private static void assertSameBodies(Map<String, String> expected, Map<String, String> actual) {
+    Assert.assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<String, String> e : expected.entrySet()) {
+      Assert.assertEquals(e.getKey(), e.getValue(), actual.get(e.getKey()));
+    }
+  }
+
+  private static void setup(File cacheDir, File extraClassPath) {
+    G.reset();
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_prepend_classpath(true);
+    String cp = new File("target/classes").getAbsolutePath();
+    if (extraClassPath != null) {
+      cp += File.pathSeparator + extraClassPath.getAbsolutePath();
+    }
+    Options.v().set_soot_classpath(cp);
+    if (cacheDir != null) {
+      Options.v().set_body_cache_dir(cacheDir.getAbsolutePath());
+    }
+    for (String name : CLASSES) {
+      Scene.v().addBasicClass(name, SootClass.BODIES);
+    }
+    Scene.v().loadNecessaryClasses();
+  }
+
+  private static Map<String, String> loadBodies(File cacheDir, boolean expectCached) {
+    setup(cacheDir, null);
+
+    Map<String, String> bodies = new HashMap<>();
+    for (String name : CLASSES) {
+      SootClass sc = Scene.v().getSootClass(name);
+      for (SootMethod m : sc.getMethods()) {
+        if (m.isConcrete()) {
+          Assert.assertEquals(m.getSignature(), expectCached, m.getSource() instanceof CachedMethodSource);
+          bodies.put(m.getSignature(), m.retrieveActiveBody().toString());
+        }
+      }
+    }
+    return bodies;
+  }
+}
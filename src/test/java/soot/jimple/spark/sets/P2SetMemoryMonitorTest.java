@@ -0,0 +1,134 @@
+package soot.jimple.spark.sets;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.G;
+import soot.PackManager;
+import soot.Scene;
+import soot.SootClass;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.pag.VarNode;
+import soot.jimple.spark.solver.PropParallelTest.Program;
+import soot.options.Options;
+
+/**
+ * Checks that compacting the points-to sets of {@link P2SetMemoryMonitor} keeps their contents.
+ */
+public class P2SetMemoryMonitorTest {
+
+  @Test
+  public void testCompaction() {
+    PAG pag = analyze();
+    Map<String, String> before = contents(pag);
+
+    P2SetMemoryMonitor monitor = new P2SetMemoryMonitor(pag, 1);
+    monitor.check();
+    Assert.assertEquals(1, monitor.getCompactions());
+    Assert.assertTrue(monitor.getSharedOldSets() > 0);
+    Assert.assertTrue(monitor.getTotalBytes() > 0);
+    Assert.assertTrue(monitor.getPeakBytes() >= monitor.getTotalBytes());
+    Assert.assertFalse(monitor.getBytesByImplementation().isEmpty());
+    Assert.assertEquals(before, contents(pag));
+
+    // Adding to a set that shares its old set must not change the others
+    List<DoublePointsToSet> shared = new ArrayList<>();
+    for (VarNode vn : pag.getVarNodeNumberer()) {
+      if (vn.getReplacement() == vn && vn.getP2Set() instanceof DoublePointsToSet
+          && ((DoublePointsToSet) vn.getP2Set()).isOldSetShared()) {
+        shared.add((DoublePointsToSet) vn.getP2Set());
+      }
+    }
+    Assert.assertFalse(shared.isEmpty());
+    DoublePointsToSet changed = shared.get(0);
+    PointsToSetInternal canonical = changed.getOldSet();
+    List<DoublePointsToSet> others = new ArrayList<>();
+    for (DoublePointsToSet other : shared) {
+      if (other != changed && other.getOldSet() == canonical) {
+        others.add(other);
+      }
+    }
+    Assert.assertFalse(others.isEmpty());
+
+    AllocNode extra = null;
+    for (AllocNode an : pag.getAllocNodeNumberer()) {
+      if (changed.add(an)) {
+        extra = an;
+        break;
+      }
+    }
+    Assert.assertNotNull(extra);
+    changed.flushNew();
+    Assert.assertFalse(changed.isOldSetShared());
+    Assert.assertTrue(changed.getOldSet().contains(extra));
+    for (DoublePointsToSet other : others) {
+      Assert.assertSame(canonical, other.getOldSet());
+      Assert.assertFalse(other.contains(extra));
+    }
+  }
+
+  private static PAG analyze() {
+    G.reset();
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_whole_program(true);
+    Options.v().set_no_bodies_for_excluded(true);
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_soot_classpath(new File("target/test-classes").getAbsolutePath());
+    Options.v().setPhaseOption("cg.spark", "on");
+    Options.v().set_main_class(Program.class.getName());
+    Scene.v().addBasicClass(Program.class.getName(), SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+    PackManager.v().getPack("cg").apply();
+    return (PAG) Scene.v().getPointsToAnalysis();
+  }
+
+  private static Map<String, String> contents(PAG pag) {
+    Map<String, String> ret = new TreeMap<>();
+    for (VarNode vn : pag.getVarNodeNumberer()) {
+      if (vn.getReplacement() == vn) {
+        ret.put(vn.toString(), new TreeMap<>(toMap(vn.getP2Set())).toString());
+      }
+    }
+    return ret;
+  }
+
+  private static Map<Integer, String> toMap(PointsToSetInternal set) {
+    final Map<Integer, String> ret = new TreeMap<>();
+    set.forall(new P2SetVisitor() {
+      public void visit(Node n) {
+        ret.put(n.getNumber(), n.toString());
+      }
+    });
+    return ret;
+  }
+}
@@ -0,0 +1,112 @@
+package soot.jimple.spark.sets;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.G;
+import soot.Local;
+import soot.PackManager;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.solver.PropParallelTest.Program;
+import soot.options.Options;
+
+/**
+ * Checks that Spark computes the same points-to sets with {@link RoaringPointsToSet} as with the default sets.
+ */
+public class RoaringPointsToSetTest {
+
+  @Test
+  public void testSameAsHybrid() {
+    Map<String, Set<String>> expected = analyze("set-impl:hybrid");
+    Map<String, Set<String>> roaring = analyze("set-impl:roaring");
+
+    Assert.assertTrue(expected.values().stream().anyMatch(s -> s.size() > 1));
+    Assert.assertEquals(expected, roaring);
+  }
+
+  @Test
+  public void testDoubleSets() {
+    Map<String, Set<String>> expected = analyze("set-impl:double");
+    Map<String, Set<String>> roaring = analyze("set-impl:double,double-set-old:roaring,double-set-new:roaring");
+
+    Assert.assertEquals(expected, roaring);
+  }
+
+  private static Map<String, Set<String>> analyze(String setImpl) {
+    G.reset();
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_whole_program(true);
+    Options.v().set_no_bodies_for_excluded(true);
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_soot_classpath(new File("target/test-classes").getAbsolutePath());
+    Options.v().setPhaseOption("cg.spark", "on");
+    for (String option : setImpl.split(",")) {
+      Options.v().setPhaseOption("cg.spark", option);
+    }
+    Options.v().set_main_class(Program.class.getName());
+    Scene.v().addBasicClass(Program.class.getName(), SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+    PackManager.v().getPack("cg").apply();
+
+    PAG pag = (PAG) Scene.v().getPointsToAnalysis();
+    Map<String, Set<String>> ret = new TreeMap<>();
+    for (SootClass sc : Scene.v().getClasses()) {
+      if (!sc.getName().startsWith(Program.class.getName())) {
+        continue;
+      }
+      for (SootMethod m : sc.getMethods()) {
+        if (!m.hasActiveBody()) {
+          continue;
+        }
+        for (Local l : m.getActiveBody().getLocals()) {
+          PointsToSetInternal set = (PointsToSetInternal) pag.reachingObjects(l);
+          if (setImpl.contains("roaring") && !set.isEmpty()) {
+            Assert.assertTrue((set instanceof DoublePointsToSet ? set.getOldSet() : set) instanceof RoaringPointsToSet);
+          }
+          final Set<String> sites = new TreeSet<>();
+          set.forall(new P2SetVisitor() {
+            public void visit(Node n) {
+              AllocNode an = (AllocNode) n;
+              sites.add(an.getNewExpr() + " in " + an.getMethod());
+            }
+          });
+          ret.put(m.getSignature() + " " + l.getName(), sites);
+        }
+      }
+    }
+    return ret;
+  }
+}
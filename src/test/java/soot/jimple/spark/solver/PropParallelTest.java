@@ -0,0 +1,221 @@
+package soot.jimple.spark.solver;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.G;
+import soot.Local;
+import soot.PackManager;
+import soot.PhaseOptions;
+import soot.PointsToAnalysis;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.jimple.spark.builder.ContextInsensitiveBuilder;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.LocalVarNode;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.pag.VarNode;
+import soot.jimple.spark.sets.ConcurrentBitPointsToSet;
+import soot.jimple.spark.sets.P2SetVisitor;
+import soot.jimple.spark.sets.PointsToSetInternal;
+import soot.jimple.toolkits.callgraph.ReachableMethods;
+import soot.options.Options;
+import soot.options.SparkOptions;
+
+/**
+ * Checks that {@link PropParallel} computes the same points-to sets as {@link PropWorklist}.
+ */
+public class PropParallelTest {
+
+  @Test
+  public void testSameAsWorklist() {
+    Map<String, Set<String>> worklist = analyze("worklist");
+    Map<String, Set<String>> parallel = analyze("parallel");
+
+    Assert.assertTrue(worklist.values().stream().anyMatch(s -> s.size() > 1));
+    Assert.assertEquals(worklist, parallel);
+  }
+
+  /**
+   * Runs the propagators directly with the smallest split thresholds, so that the simple and load phases fork tasks on
+   * every occasion and several threads update the same sets.
+   */
+  @Test
+  public void testSplitTasksSameAsWorklist() {
+    Map<String, Set<String>> worklist = propagate(null);
+    PropParallel[] parallel = new PropParallel[1];
+    Map<String, Set<String>> split = propagate(pag -> parallel[0] = new PropParallel(pag, 4, 1, 1));
+
+    Assert.assertTrue(parallel[0].forkedTasks.get() > 0);
+    Assert.assertTrue(worklist.values().stream().anyMatch(s -> s.size() > 1));
+    Assert.assertEquals(worklist, split);
+  }
+
+  private static Map<String, Set<String>> propagate(Function<PAG, PropParallel> parallel) {
+    setUp(parallel == null ? "worklist" : "parallel");
+    SparkOptions opts = new SparkOptions(PhaseOptions.v().getPhaseOptions("cg.spark"));
+    ContextInsensitiveBuilder b = new ContextInsensitiveBuilder();
+    PAG pag = b.setup(opts);
+    b.build();
+    pag.getTypeManager().makeTypeMask();
+    pag.cleanUpMerges();
+    if (parallel == null) {
+      new PropWorklist(pag).propagate();
+    } else {
+      parallel.apply(pag).propagate();
+    }
+
+    Map<String, Set<String>> ret = new TreeMap<>();
+    for (VarNode vn : pag.getVarNodeNumberer()) {
+      // Variables of global nodes may be nodes themselves, whose numbers differ between runs
+      String key = String.valueOf(vn.getVariable()).replaceFirst("^(\\w+Node) \\d+", "$1");
+      if (vn instanceof LocalVarNode) {
+        key += " in " + ((LocalVarNode) vn).getMethod();
+      }
+      ret.computeIfAbsent(key, k -> new TreeSet<>()).addAll(sites(vn.getP2Set()));
+    }
+    return ret;
+  }
+
+  private static Set<String> sites(PointsToSetInternal set) {
+    final Set<String> sites = new TreeSet<>();
+    set.forall(new P2SetVisitor() {
+      public void visit(Node n) {
+        AllocNode an = (AllocNode) n;
+        sites.add(an.getNewExpr() + " in " + an.getMethod());
+      }
+    });
+    return sites;
+  }
+
+  private static void setUp(String propagator) {
+    G.reset();
+    Options.v().set_allow_phantom_refs(true);
+    Options.v().set_whole_program(true);
+    Options.v().set_no_bodies_for_excluded(true);
+    Options.v().set_prepend_classpath(true);
+    Options.v().set_soot_classpath(new File("target/test-classes").getAbsolutePath());
+    Options.v().set_num_threads(4);
+    Options.v().setPhaseOption("cg.spark", "on");
+    Options.v().setPhaseOption("cg.spark", "propagator:" + propagator);
+    Options.v().set_main_class(Program.class.getName());
+    Scene.v().addBasicClass(Program.class.getName(), SootClass.BODIES);
+    Scene.v().loadNecessaryClasses();
+  }
+
+  private static Map<String, Set<String>> analyze(String propagator) {
+    setUp(propagator);
+    PackManager.v().getPack("cg").apply();
+
+    PointsToAnalysis pta = Scene.v().getPointsToAnalysis();
+    Assert.assertTrue(pta instanceof PAG);
+    Map<String, Set<String>> ret = new TreeMap<>();
+    ReachableMethods rm = Scene.v().getReachableMethods();
+    List<SootMethod> methods = new ArrayList<>();
+    rm.listener().forEachRemaining(mm -> methods.add(mm.method()));
+    for (SootMethod m : methods) {
+      if (!m.getDeclaringClass().getName().startsWith(Program.class.getName()) || !m.hasActiveBody()) {
+        continue;
+      }
+      for (Local l : m.getActiveBody().getLocals()) {
+        PointsToSetInternal set = (PointsToSetInternal) pta.reachingObjects(l);
+        if ("parallel".equals(propagator) && !set.isEmpty()) {
+          Assert.assertTrue(set instanceof ConcurrentBitPointsToSet);
+        }
+        ret.put(m.getSignature() + " " + l.getName(), sites(set));
+      }
+    }
+    return ret;
+  }
+
+  public static class Program {
+    interface Shape {
+      Object make();
+    }
+
+    static class A implements Shape {
+      Object f;
+
+      public Object make() {
+        return new StringBuilder();
+      }
+    }
+
+    static class B implements Shape {
+      public Object make() {
+        return new ArrayList<Object>();
+      }
+    }
+
+    static class C extends A {
+      public Object make() {
+        return new Object[] { new A(), box };
+      }
+    }
+
+    static Object[] box = new Object[2];
+
+    public static void main(String[] args) {
+      Shape[] shapes = { new A(), new B() };
+      A a = new A();
+      for (Shape s : shapes) {
+        a.f = s.make();
+        box[0] = a;
+      }
+      Object o = ((A) box[0]).f;
+      link(a, o);
+      box[1] = fill(shapes);
+      box[0] = fill(new Shape[] { a, new B(), new C() })[0];
+    }
+
+    static Object[] fill(Shape[] shapes) {
+      Object[] objects = new Object[shapes.length];
+      for (int i = 0; i < shapes.length; i++) {
+        A holder = new A();
+        holder.f = shapes[i].make();
+        objects[i] = holder.f;
+      }
+      return objects;
+    }
+
+    static void link(A a, Object o) {
+      A b = new A();
+      b.f = a;
+      a.f = o;
+      box[1] = ((A) b.f).f;
+    }
+  }
+}
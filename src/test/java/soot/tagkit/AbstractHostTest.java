@@ -0,0 +1,86 @@
+package soot.tagkit;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks lookups and modifications of the key-indexed tag storage in {@link AbstractHost}.
+ */
+public class AbstractHostTest {
+
+  @Test
+  public void testLookupByNameAndKey() {
+    AbstractHost host = new AbstractHost();
+    Assert.assertTrue(host.getTags().isEmpty());
+    Assert.assertNull(host.getTag(LineNumberTag.KEY));
+    Assert.assertNull(host.getTag("NoSuchTagEverAdded"));
+
+    LineNumberTag ln = new LineNumberTag(42);
+    StringTag first = new StringTag("first");
+    StringTag second = new StringTag("second");
+    host.addTag(first);
+    host.addTag(ln);
+    host.addTag(second);
+
+    Assert.assertSame(ln, host.getTag(LineNumberTag.KEY));
+    Assert.assertSame(ln, host.getTag(LineNumberTag.NAME));
+    Assert.assertEquals(42, host.getJavaSourceStartLineNumber());
+    // the first tag with a name wins, as before
+    Assert.assertSame(first, host.getTag(first.getName()));
+    Assert.assertTrue(host.hasTag(TagKey.of(first.getName())));
+
+    host.removeTag(first.getName());
+    Assert.assertSame(second, host.getTag(second.getName()));
+    Assert.assertEquals(Arrays.asList(ln, second), host.getTags());
+
+    host.removeAllTags();
+    Assert.assertFalse(host.hasTag(LineNumberTag.KEY));
+    Assert.assertTrue(host.getTags().isEmpty());
+  }
+
+  @Test
+  public void testModificationThroughView() {
+    AbstractHost host = new AbstractHost();
+    LineNumberTag ln = new LineNumberTag(1);
+    StringTag str = new StringTag("s");
+    host.addTag(ln);
+    host.addTag(str);
+
+    List<Tag> tags = host.getTags();
+    Assert.assertTrue(tags.remove(ln));
+    Assert.assertFalse(host.hasTag(LineNumberTag.KEY));
+    Assert.assertSame(str, host.getTag(str.getName()));
+
+    // adding a list to itself duplicates its contents
+    tags.addAll(tags);
+    Assert.assertEquals(Arrays.asList(str, str), host.getTags());
+
+    AbstractHost copy = new AbstractHost();
+    copy.addAllTagsOf(host);
+    Assert.assertEquals(host.getTags(), copy.getTags());
+  }
+}
@@ -1516,6 +1516,36 @@ public class ThrowableSetTest {
 		assertTrue(bothPhantoms == bothPhantoms2);
 	}
 
+	@Test
+	public void test_15_CanonicalAndMemoizedCatches() {
+		if (DUMP_INTERNALS) {
+			System.err.println("\n\ntestCanonicalAndMemoizedCatches()");
+		}
+
+		ThrowableSet s1 = mgr.EMPTY.add(util.NULL_POINTER_EXCEPTION).add(util.ARITHMETIC_EXCEPTION)
+				.add(AnySubType.v(util.LINKAGE_ERROR));
+		ThrowableSet s2 = mgr.EMPTY.add(AnySubType.v(util.LINKAGE_ERROR)).add(util.ARITHMETIC_EXCEPTION)
+				.add(util.NULL_POINTER_EXCEPTION);
+		assertTrue(s1 == s2);
+		assertEquals(s1.hashCode(), s2.hashCode());
+
+		ThrowableSet.Pair p = s1.whichCatchableAs(util.RUNTIME_EXCEPTION);
+		assertTrue(p == s1.whichCatchableAs(util.RUNTIME_EXCEPTION));
+		assertSameMembers(p,
+				new RefLikeType[] { util.NULL_POINTER_EXCEPTION, util.ARITHMETIC_EXCEPTION },
+				new AnySubType[] {},
+				new RefLikeType[] { AnySubType.v(util.LINKAGE_ERROR) },
+				new AnySubType[] {});
+
+		for (int i = 0; i < 2; i++) {
+			assertTrue(s1.catchableAs(util.RUNTIME_EXCEPTION));
+			assertTrue(s1.catchableAs(util.ERROR));
+			assertFalse(s1.catchableAs(util.ARRAY_STORE_EXCEPTION));
+		}
+		// the uncaught part carries no exclusions here, so it is the canonical LinkageError set
+		assertTrue(p.getUncaught() == mgr.EMPTY.add(AnySubType.v(util.LINKAGE_ERROR)));
+	}
+
 	void printAllSets() {
 		for (ThrowableSet s : mgr.getThrowableSets()) {
 			System.err.println(s.toString());
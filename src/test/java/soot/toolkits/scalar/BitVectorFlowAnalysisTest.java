@@ -0,0 +1,213 @@
+package soot.toolkits.scalar;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import soot.Body;
+import soot.G;
+import soot.Local;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Unit;
+import soot.ValueBox;
+import soot.options.Options;
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+/**
+ * Compares {@link BitVectorFlowAnalysis} with equivalent analyses based on {@link FlowAnalysis}.
+ */
+public class BitVectorFlowAnalysisTest {
+
+  private static final List<Body> bodies = new ArrayList<>();
+
+  @BeforeClass
+  public static void setUp() {
+    G.reset();
+    Options.v().set_allow_phantom_refs(true);
+    for (String name : new String[] { "java.util.ArrayList", "java.util.HashMap", "java.util.regex.Pattern" }) {
+      Scene.v().addBasicClass(name, SootClass.BODIES);
+    }
+    Scene.v().loadNecessaryClasses();
+    for (String name : new String[] { "java.util.ArrayList", "java.util.HashMap", "java.util.regex.Pattern" }) {
+      for (SootMethod m : Scene.v().getSootClass(name).getMethods()) {
+        if (m.isConcrete()) {
+          bodies.add(m.retrieveActiveBody());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLiveLocals() {
+    for (Body b : bodies) {
+      for (UnitGraph g : new UnitGraph[] { new ExceptionalUnitGraph(b), new BriefUnitGraph(b) }) {
+        SimpleLiveLocals live = new SimpleLiveLocals(g);
+        LiveLocalsAnalysis expected = new LiveLocalsAnalysis(g);
+        for (Unit u : b.getUnits()) {
+          Assert.assertEquals(new HashSet<>(expected.getFlowBefore(u).toList()), new HashSet<>(live.getLiveLocalsBefore(u)));
+          Assert.assertEquals(new HashSet<>(expected.getFlowAfter(u).toList()), new HashSet<>(live.getLiveLocalsAfter(u)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDefinedLocals() {
+    for (Body b : bodies) {
+      UnitGraph g = new BriefUnitGraph(b);
+      final Local[] locals = b.getLocals().toArray(new Local[0]);
+      final Map<Local, Integer> index = new HashMap<>();
+      for (int i = 0; i < locals.length; i++) {
+        index.put(locals[i], i);
+      }
+      BitVectorFlowAnalysis<Unit> defined = new BitVectorFlowAnalysis<Unit>(g, locals.length, true, false) {
+        @Override
+        protected void genKill(Unit unit, long[] gen, long[] kill) {
+          for (ValueBox box : unit.getDefBoxes()) {
+            Integer i = index.get(box.getValue());
+            if (i != null) {
+              set(gen, i);
+            }
+          }
+        }
+      };
+      defined.doAnalysis();
+      DefinedLocalsAnalysis expected = new DefinedLocalsAnalysis(g, locals);
+      for (Unit u : b.getUnits()) {
+        Assert.assertEquals(toSet(expected.getFlowBefore(u)), bits(locals, defined, u, true));
+        Assert.assertEquals(toSet(expected.getFlowAfter(u)), bits(locals, defined, u, false));
+      }
+    }
+  }
+
+  private static Set<Local> toSet(FlowSet<Local> flow) {
+    return new HashSet<>(flow.toList());
+  }
+
+  private static Set<Local> bits(Local[] locals, BitVectorFlowAnalysis<Unit> a, Unit u, boolean before) {
+    Set<Local> ret = new HashSet<>();
+    for (int i = 0; i < locals.length; i++) {
+      if (before ? a.isSetBefore(u, i) : a.isSetAfter(u, i)) {
+        ret.add(locals[i]);
+      }
+    }
+    return ret;
+  }
+
+  /** The liveness analysis that {@link SimpleLiveLocals} used before. */
+  private static class LiveLocalsAnalysis extends BackwardFlowAnalysis<Unit, FlowSet<Local>> {
+    LiveLocalsAnalysis(UnitGraph g) {
+      super(g);
+      doAnalysis();
+    }
+
+    @Override
+    protected FlowSet<Local> newInitialFlow() {
+      return new ArraySparseSet<Local>();
+    }
+
+    @Override
+    protected void flowThrough(FlowSet<Local> in, Unit unit, FlowSet<Local> out) {
+      in.copy(out);
+      for (ValueBox box : unit.getDefBoxes()) {
+        if (box.getValue() instanceof Local) {
+          out.remove((Local) box.getValue());
+        }
+      }
+      for (ValueBox box : unit.getUseBoxes()) {
+        if (box.getValue() instanceof Local) {
+          out.add((Local) box.getValue());
+        }
+      }
+    }
+
+    @Override
+    protected void merge(FlowSet<Local> in1, FlowSet<Local> in2, FlowSet<Local> out) {
+      in1.union(in2, out);
+    }
+
+    @Override
+    protected void copy(FlowSet<Local> source, FlowSet<Local> dest) {
+      source.copy(dest);
+    }
+  }
+
+  /** Locals defined on all paths, starting from the full set so that loops converge to the greatest fixed point. */
+  private static class DefinedLocalsAnalysis extends ForwardFlowAnalysis<Unit, FlowSet<Local>> {
+    private final FlowSet<Local> full;
+
+    DefinedLocalsAnalysis(UnitGraph g, Local[] locals) {
+      super(g);
+      full = new ArrayPackedSet<Local>(new ArrayFlowUniverse<Local>(locals));
+      for (Local l : locals) {
+        full.add(l);
+      }
+      doAnalysis();
+    }
+
+    @Override
+    protected FlowSet<Local> newInitialFlow() {
+      return full.clone();
+    }
+
+    @Override
+    protected FlowSet<Local> entryInitialFlow() {
+      FlowSet<Local> ret = full.clone();
+      ret.clear();
+      return ret;
+    }
+
+    @Override
+    protected void flowThrough(FlowSet<Local> in, Unit unit, FlowSet<Local> out) {
+      in.copy(out);
+      for (ValueBox box : unit.getDefBoxes()) {
+        if (box.getValue() instanceof Local) {
+          out.add((Local) box.getValue());
+        }
+      }
+    }
+
+    @Override
+    protected void merge(FlowSet<Local> in1, FlowSet<Local> in2, FlowSet<Local> out) {
+      in1.intersection(in2, out);
+    }
+
+    @Override
+    protected void copy(FlowSet<Local> source, FlowSet<Local> dest) {
+      source.copy(dest);
+    }
+  }
+}
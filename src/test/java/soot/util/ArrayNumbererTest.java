@@ -0,0 +1,139 @@
+package soot.util;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that {@link ArrayNumberer} and {@link StringNumberer} hand out unique numbers when used from many threads.
+ */
+public class ArrayNumbererTest {
+
+  private static final int THREADS = 16;
+  private static final int PER_THREAD = 5000;
+
+  private static class Item implements Numberable {
+    private int number;
+
+    @Override
+    public void setNumber(int number) {
+      this.number = number;
+    }
+
+    @Override
+    public int getNumber() {
+      return number;
+    }
+  }
+
+  @Test
+  public void testConcurrentAdd() throws Exception {
+    final ArrayNumberer<Item> numberer = new ArrayNumberer<>();
+    final List<Item> items = new ArrayList<>();
+    for (int i = 0; i < THREADS * PER_THREAD; i++) {
+      items.add(new Item());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int offset = t;
+      futures.add(executor.submit(() -> {
+        // every item is added by two threads to exercise the duplicate check
+        for (int i = 0; i < PER_THREAD * 2; i++) {
+          numberer.add(items.get((offset * PER_THREAD + i) % items.size()));
+        }
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    Assert.assertEquals(items.size(), numberer.size());
+    BitSet seen = new BitSet();
+    for (Item item : items) {
+      int n = item.getNumber();
+      Assert.assertTrue(n > 0 && n <= items.size());
+      Assert.assertFalse(seen.get(n));
+      seen.set(n);
+      Assert.assertSame(item, numberer.get(n));
+    }
+    int count = 0;
+    for (Item item : numberer) {
+      Assert.assertNotNull(item);
+      count++;
+    }
+    Assert.assertEquals(items.size(), count);
+  }
+
+  @Test
+  public void testRemoveReusesNumbers() {
+    ArrayNumberer<Item> numberer = new ArrayNumberer<>();
+    Item a = new Item();
+    Item b = new Item();
+    Item c = new Item();
+    numberer.add(a);
+    numberer.add(b);
+    Assert.assertTrue(numberer.remove(a));
+    Assert.assertNull(numberer.get(1));
+    numberer.add(c);
+    Assert.assertEquals(1, c.getNumber());
+    Assert.assertSame(c, numberer.get(1));
+    Assert.assertSame(b, numberer.get(2));
+    Assert.assertNull(numberer.get(1L << 20));
+  }
+
+  @Test
+  public void testConcurrentStrings() throws Exception {
+    final StringNumberer numberer = new StringNumberer();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<List<NumberedString>>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      futures.add(executor.submit(() -> {
+        List<NumberedString> l = new ArrayList<>();
+        for (int i = 0; i < PER_THREAD; i++) {
+          l.add(numberer.findOrAdd("s" + i));
+        }
+        return l;
+      }));
+    }
+    List<NumberedString> first = futures.get(0).get();
+    for (Future<List<NumberedString>> f : futures) {
+      List<NumberedString> l = f.get();
+      for (int i = 0; i < PER_THREAD; i++) {
+        Assert.assertSame(first.get(i), l.get(i));
+      }
+    }
+    executor.shutdown();
+    Assert.assertEquals(PER_THREAD, numberer.size());
+  }
+}
@@ -0,0 +1,162 @@
+package soot.util;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks {@link CompactChain} against {@link HashChain} under random insertions and removals.
+ */
+public class CompactChainTest {
+
+  private static final int POOL = 2000;
+
+  @Test
+  public void testRandomEdits() {
+    Random random = new Random(7);
+    List<String> pool = new ArrayList<>();
+    for (int i = 0; i < POOL; i++) {
+      pool.add("e" + i);
+    }
+    Chain<String> expected = new HashChain<>();
+    Chain<String> actual = new CompactChain<>();
+    for (int round = 0; round < 50000; round++) {
+      String e = pool.get(random.nextInt(POOL));
+      if (expected.contains(e)) {
+        if (random.nextInt(4) == 0) {
+          // removal through an iterator
+          for (Iterator<String> it = actual.iterator(e); it.hasNext();) {
+            it.next();
+            it.remove();
+            break;
+          }
+          expected.remove(e);
+        } else {
+          Assert.assertTrue(actual.remove(e));
+          expected.remove(e);
+        }
+      } else if (expected.isEmpty()) {
+        expected.addFirst(e);
+        actual.addFirst(e);
+      } else {
+        String point = pool.get(random.nextInt(POOL));
+        if (!expected.contains(point)) {
+          point = expected.getLast();
+        }
+        switch (random.nextInt(4)) {
+          case 0:
+            expected.insertBefore(e, point);
+            actual.insertBefore(e, point);
+            break;
+          case 1:
+            expected.insertAfter(e, point);
+            actual.insertAfter(e, point);
+            break;
+          case 2:
+            expected.addFirst(e);
+            actual.addFirst(e);
+            break;
+          default:
+            expected.addLast(e);
+            actual.addLast(e);
+            break;
+        }
+      }
+      Assert.assertFalse(actual.remove("absent"));
+      if (round % 1000 == 0) {
+        assertSameChain(expected, actual);
+      }
+    }
+    assertSameChain(expected, actual);
+    actual.clear();
+    Assert.assertTrue(actual.isEmpty());
+    Assert.assertFalse(actual.iterator().hasNext());
+  }
+
+  @Test
+  public void testRangesAndOrder() {
+    Chain<String> chain = new CompactChain<>();
+    for (String s : new String[] { "a", "b", "c", "d" }) {
+      chain.add(s);
+    }
+    Assert.assertTrue(chain.follows("c", "a"));
+    Assert.assertFalse(chain.follows("a", "c"));
+    Assert.assertEquals("[b, c]", collect(chain.iterator("b", "c")).toString());
+    // tail immediately preceding head denotes an empty range
+    Assert.assertFalse(chain.iterator("c", "b").hasNext());
+    Assert.assertEquals("[c, d]", collect(chain.iterator("c")).toString());
+    try {
+      chain.iterator("x");
+      Assert.fail();
+    } catch (NoSuchElementException expected) {
+      // expected
+    }
+    try {
+      chain.addLast("a");
+      Assert.fail();
+    } catch (RuntimeException expected) {
+      Assert.assertEquals("Chain already contains object: a", expected.getMessage());
+    }
+    Iterator<String> it = chain.iterator();
+    it.next();
+    chain.remove("d");
+    try {
+      it.next();
+      Assert.fail();
+    } catch (ConcurrentModificationException expected) {
+      // expected
+    }
+    chain.swapWith("b", "x");
+    Assert.assertEquals("[a, x, c]", chain.toString());
+  }
+
+  private static List<String> collect(Iterator<String> it) {
+    List<String> l = new ArrayList<>();
+    while (it.hasNext()) {
+      l.add(it.next());
+    }
+    return l;
+  }
+
+  private static void assertSameChain(Chain<String> expected, Chain<String> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+    Assert.assertEquals(collect(expected.snapshotIterator()), collect(actual.snapshotIterator()));
+    for (String s : expected) {
+      Assert.assertTrue(actual.contains(s));
+      Assert.assertEquals(expected.getSuccOf(s), actual.getSuccOf(s));
+      Assert.assertEquals(expected.getPredOf(s), actual.getPredOf(s));
+    }
+    if (!expected.isEmpty()) {
+      Assert.assertEquals(expected.getFirst(), actual.getFirst());
+      Assert.assertEquals(expected.getLast(), actual.getLast());
+    }
+  }
+}
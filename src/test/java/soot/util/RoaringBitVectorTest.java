@@ -0,0 +1,161 @@
+package soot.util;
+
+/*-
+ * #%L
+ * Soot - a J*va Optimization Framework
+ * %%
+ * Copyright (C) 1997 - 2018 Raja Vallée-Rai and others
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks {@link RoaringBitVector} against {@link BitSet} on sparse, dense and run-shaped vectors.
+ */
+public class RoaringBitVectorTest {
+
+  private static final int UNIVERSE = 1 << 20;
+
+  @Test
+  public void testSetAndGet() {
+    Random random = new Random(1);
+    RoaringBitVector v = new RoaringBitVector();
+    BitSet expected = new BitSet();
+    for (int i = 0; i < 20000; i++) {
+      int bit = random.nextInt(UNIVERSE);
+      Assert.assertEquals(!expected.get(bit), v.set(bit));
+      expected.set(bit);
+    }
+    // A dense chunk, which becomes a bitmap, and a long run
+    for (int bit = 3 << 16; bit < (3 << 16) + 30000; bit += 3) {
+      Assert.assertEquals(!expected.get(bit), v.set(bit));
+      expected.set(bit);
+    }
+    for (int bit = (5 << 16) - 100; bit < (7 << 16) + 100; bit++) {
+      Assert.assertEquals(!expected.get(bit), v.set(bit));
+      expected.set(bit);
+    }
+    assertSame(expected, v);
+    v.runOptimize();
+    assertSame(expected, v);
+  }
+
+  @Test
+  public void testOrAndAndNot() {
+    Random random = new Random(2);
+    for (int round = 0; round < 20; round++) {
+      BitSet a = randomBits(random);
+      BitSet b = randomBits(random);
+      BitSet and = randomBits(random);
+      BitSet andNot = randomBits(random);
+      RoaringBitVector ra = toRoaring(a, random.nextBoolean());
+      RoaringBitVector rb = toRoaring(b, random.nextBoolean());
+      RoaringBitVector rAndNot = toRoaring(andNot, random.nextBoolean());
+      BitVector mask = new BitVector(UNIVERSE);
+      for (int bit = and.nextSetBit(0); bit >= 0; bit = and.nextSetBit(bit + 1)) {
+        mask.set(bit);
+      }
+
+      BitSet added = (BitSet) b.clone();
+      added.and(and);
+      added.andNot(andNot);
+      BitSet expected = (BitSet) a.clone();
+      expected.or(added);
+
+      Assert.assertEquals(!expected.equals(a), ra.orAndAndNot(rb, mask, rAndNot));
+      assertSame(expected, ra);
+      Assert.assertFalse(ra.orAndAndNot(rb, mask, rAndNot));
+
+      BitSet union = (BitSet) expected.clone();
+      union.or(b);
+      Assert.assertEquals(!union.equals(expected), ra.orAndAndNot(rb, null, null));
+      assertSame(union, ra);
+    }
+  }
+
+  @Test
+  public void testSparseVectorIsSmall() {
+    RoaringBitVector v = new RoaringBitVector();
+    for (int bit = 0; bit < UNIVERSE; bit += 1 << 14) {
+      v.set(bit);
+    }
+    // A BitVector would need UNIVERSE / 8 bytes
+    Assert.assertTrue(v.sizeInBytes() < 1024);
+  }
+
+  private static BitSet randomBits(Random random) {
+    BitSet ret = new BitSet();
+    int chunks = 1 + random.nextInt(4);
+    for (int i = 0; i < chunks; i++) {
+      int base = random.nextInt(UNIVERSE >>> 16) << 16;
+      switch (random.nextInt(3)) {
+        case 0:
+          // Sparse
+          for (int j = random.nextInt(100); j > 0; j--) {
+            ret.set(base + random.nextInt(1 << 16));
+          }
+          break;
+        case 1:
+          // Dense
+          for (int j = 10000 + random.nextInt(20000); j > 0; j--) {
+            ret.set(base + random.nextInt(1 << 16));
+          }
+          break;
+        default:
+          // Runs
+          for (int j = random.nextInt(10); j > 0; j--) {
+            int start = base + random.nextInt(1 << 16);
+            ret.set(start, Math.min(start + random.nextInt(20000), base + (1 << 16)));
+          }
+          break;
+      }
+    }
+    return ret;
+  }
+
+  private static RoaringBitVector toRoaring(BitSet bits, boolean optimize) {
+    RoaringBitVector ret = new RoaringBitVector();
+    for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+      ret.set(bit);
+    }
+    if (optimize) {
+      ret.runOptimize();
+    }
+    return ret;
+  }
+
+  private static void assertSame(BitSet expected, RoaringBitVector actual) {
+    Assert.assertEquals(expected.cardinality(), actual.cardinality());
+    final BitSet seen = new BitSet();
+    final int[] last = { -1 };
+    actual.forEach(bit -> {
+      Assert.assertTrue("not in increasing order", bit > last[0]);
+      last[0] = bit;
+      seen.set(bit);
+    });
+    Assert.assertEquals(expected, seen);
+    for (int bit = expected.nextSetBit(0); bit >= 0; bit = expected.nextSetBit(bit + 1)) {
+      Assert.assertTrue(actual.get(bit));
+      Assert.assertFalse(actual.get(bit + UNIVERSE));
+    }
+  }
+}